@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A BK-tree over a set of Strings, for finding the ones that are within some edit (Levenshtein) distance of a given
+ * String without computing the distance to all of them.
+ *
+ * <p>Each node stores its children by their distance to it. Thanks to the triangle inequality, a search only needs to
+ * visit the children whose distance to a node is within the tolerated distance of the distance between that node and
+ * the searched String.</p>
+ *
+ * @author Eric Bottard
+ */
+public class BKTree {
+
+	private Node root;
+
+	private int size;
+
+	public BKTree(Collection<String> words) {
+		for (String word : words) {
+			add(word);
+		}
+	}
+
+	private void add(String word) {
+		if (root == null) {
+			root = new Node(word);
+			size++;
+			return;
+		}
+		Node node = root;
+		while (true) {
+			int distance = distance(word, node.word, Integer.MAX_VALUE);
+			if (distance == 0) {
+				return;
+			}
+			Node child = node.children.get(distance);
+			if (child == null) {
+				node.children.put(distance, new Node(word));
+				size++;
+				return;
+			}
+			node = child;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the Strings that are at most {@literal maxDistance} edits away from the given one, closest first.
+	 */
+	public List<Suggestion> search(String word, int maxDistance) {
+		List<Suggestion> result = new ArrayList<>();
+		if (root == null) {
+			return result;
+		}
+		Deque<Node> toVisit = new ArrayDeque<>();
+		toVisit.push(root);
+		while (!toVisit.isEmpty()) {
+			Node node = toVisit.pop();
+			// Need the exact distance to prune children, hence no early termination below maxDistance
+			int distance = distance(word, node.word, Integer.MAX_VALUE);
+			if (distance <= maxDistance) {
+				result.add(new Suggestion(node.word, distance));
+			}
+			for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+				if (Math.abs(child.getKey() - distance) <= maxDistance) {
+					toVisit.push(child.getValue());
+				}
+			}
+		}
+		result.sort(Comparator.comparingInt(Suggestion::getDistance).thenComparing(Suggestion::getWord));
+		return result;
+	}
+
+	/**
+	 * Return the Levenshtein distance between two Strings, or any value greater than {@literal max} as soon as the
+	 * distance is known to exceed it.
+	 */
+	static int distance(CharSequence a, CharSequence b, int max) {
+		if (Math.abs(a.length() - b.length()) > max) {
+			return max + 1;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = current[0];
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > max) {
+				return max + 1;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[b.length()];
+	}
+
+	/**
+	 * A String found by a search, together with its distance to the searched String.
+	 */
+	public static class Suggestion {
+
+		private final String word;
+
+		private final int distance;
+
+		private Suggestion(String word, int distance) {
+			this.word = word;
+			this.distance = distance;
+		}
+
+		public String getWord() {
+			return word;
+		}
+
+		public int getDistance() {
+			return distance;
+		}
+
+		@Override
+		public String toString() {
+			return word + " (" + distance + ")";
+		}
+	}
+
+	private static class Node {
+
+		private final String word;
+
+		private final Map<Integer, Node> children = new HashMap<>();
+
+		private Node(String word) {
+			this.word = word;
+		}
+	}
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.shell;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -26,8 +27,26 @@ public class CommandNotFound extends RuntimeException {
 
 	private final List<String> words;
 
+	private final List<String> suggestions;
+
 	public CommandNotFound(List<String> words) {
+		this(words, Collections.emptyList());
+	}
+
+	/**
+	 * @param words the words the user typed
+	 * @param suggestions the names of existing commands that are close to what the user typed, closest first
+	 */
+	public CommandNotFound(List<String> words, List<String> suggestions) {
 		this.words = words;
+		this.suggestions = suggestions;
+	}
+
+	/**
+	 * Return the names of existing commands that are close to what the user typed, closest first.
+	 */
+	public List<String> getSuggestions() {
+		return suggestions;
 	}
 
 	@Override
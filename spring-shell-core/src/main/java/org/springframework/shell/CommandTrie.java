@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A trie over command names, answering "what is the longest command the given text starts with" in time proportional
+ * to the length of the command, regardless of how many commands there are.
+ *
+ * <p>Children of a node are kept in a sorted array and looked up by binary search, which keeps the trie compact.</p>
+ *
+ * @author Eric Bottard
+ */
+class CommandTrie {
+
+	private final Node root;
+
+	CommandTrie(Collection<String> commands) {
+		String[] sorted = commands.toArray(new String[commands.size()]);
+		Arrays.sort(sorted);
+		this.root = build(sorted, 0, sorted.length, 0);
+	}
+
+	/**
+	 * Build the node for the given range of sorted commands, which all share the same first {@literal depth}
+	 * characters.
+	 */
+	private static Node build(String[] sorted, int from, int to, int depth) {
+		Node node = new Node();
+		if (from < to && sorted[from].length() == depth) {
+			// Shortest string sorts first
+			node.command = sorted[from];
+			from++;
+		}
+		int count = 0;
+		for (int i = from; i < to; ) {
+			int end = endOfRange(sorted, i, to, depth);
+			count++;
+			i = end;
+		}
+		node.labels = new char[count];
+		node.children = new Node[count];
+		int c = 0;
+		for (int i = from; i < to; ) {
+			int end = endOfRange(sorted, i, to, depth);
+			node.labels[c] = sorted[i].charAt(depth);
+			node.children[c++] = build(sorted, i, end, depth + 1);
+			i = end;
+		}
+		return node;
+	}
+
+	private static int endOfRange(String[] sorted, int from, int to, int depth) {
+		char label = sorted[from].charAt(depth);
+		int end = from + 1;
+		while (end < to && sorted[end].charAt(depth) == label) {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * Return the longest command that the given text starts with, or {@literal null} if none.
+	 */
+	String longestPrefixOf(CharSequence text) {
+		Node node = root;
+		String result = node.command;
+		for (int i = 0; i < text.length(); i++) {
+			int index = Arrays.binarySearch(node.labels, text.charAt(i));
+			if (index < 0) {
+				break;
+			}
+			node = node.children[index];
+			if (node.command != null) {
+				result = node.command;
+			}
+		}
+		return result;
+	}
+
+	private static class Node {
+
+		private String command;
+
+		private char[] labels;
+
+		private Node[] children;
+	}
+}
@@ -33,6 +33,10 @@ public class CompletionContext {
 
 	private final int position;
 
+	private final int limit;
+
+	private String upToCursor;
+
 	/**
 	 *
 	 * @param words words in the buffer, excluding words for the command name
@@ -40,9 +44,21 @@ public class CompletionContext {
 	 * @param position the position inside the current word where the cursor is
 	 */
 	public CompletionContext(List<String> words, int wordIndex, int position) {
+		this(words, wordIndex, position, Integer.MAX_VALUE);
+	}
+
+	/**
+	 *
+	 * @param words words in the buffer, excluding words for the command name
+	 * @param wordIndex the index of the word the cursor is in
+	 * @param position the position inside the current word where the cursor is
+	 * @param limit the maximum number of proposals the user interface is interested in
+	 */
+	public CompletionContext(List<String> words, int wordIndex, int position, int limit) {
 		this.words = words;
 		this.wordIndex = wordIndex;
 		this.position = position;
+		this.limit = limit;
 	}
 
 	public List<String> getWords() {
@@ -57,7 +73,25 @@ public class CompletionContext {
 		return position;
 	}
 
+	/**
+	 * Return the maximum number of proposals the user interface is interested in. Proposals past that limit don't need
+	 * to be computed.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Return the text of the buffer up to the cursor, with words joined by a single space.
+	 */
 	public String upToCursor() {
+		if (upToCursor == null) {
+			upToCursor = computeUpToCursor();
+		}
+		return upToCursor;
+	}
+
+	private String computeUpToCursor() {
 		String start = words.subList(0, wordIndex).stream().collect(Collectors.joining(" "));
 		if (wordIndex < words.size()) {
 			if (!start.isEmpty()) {
@@ -84,6 +118,6 @@ public class CompletionContext {
 	 * Return a copy of this context, as if the first {@literal nbWords} were not present
 	 */
 	public CompletionContext drop(int nbWords) {
-		return new CompletionContext(new ArrayList<String>(words.subList(nbWords, words.size())), wordIndex-nbWords, position);
+		return new CompletionContext(new ArrayList<String>(words.subList(nbWords, words.size())), wordIndex-nbWords, position, limit);
 	}
 }
@@ -16,9 +16,15 @@
 
 package org.springframework.shell;
 
+import java.util.function.Supplier;
+
 /**
  * Represents a proposal for TAB completion, made not only of the text to append, but also metadata about the proposal.
  *
+ * <p>Metadata can be supplied lazily, in which case it is only computed (once) if the proposal is actually displayed.
+ * This matters when completing against a large number of candidates, most of which are never shown. Suppliers are
+ * called at most once, even if several threads ask for the same metadata concurrently.</p>
+ *
  * @author Eric Bottard
  */
 public class CompletionProposal {
@@ -29,19 +35,21 @@ public class CompletionProposal {
 	private String value;
 
 	/**
-	 * The text displayed while the proposal is being considered.
+	 * The text displayed while the proposal is being considered, if different from the value. Either a String or a
+	 * {@link Lazy} String.
 	 */
-	private String displayText;
+	private Object displayText;
 
 	/**
-	 * The description for the proposal.
+	 * The description for the proposal. Either a String or a {@link Lazy} String.
 	 */
-	private String description;
+	private Object description;
 
 	/**
-	 * The category of the proposal, which may be used to group proposals together.
+	 * The category of the proposal, which may be used to group proposals together. Either a String or a {@link Lazy}
+	 * String.
 	 */
-	private String category;
+	private Object category;
 
 	/**
 	 * Whether the proposal should bypass escaping and quoting rules. This is useful for command proposals, which can
@@ -49,8 +57,14 @@ public class CompletionProposal {
 	 */
 	private boolean dontQuote = false;
 
+	/**
+	 * Whether the proposal is a whole value, in which case the user interface may append a delimiter once it has been
+	 * selected. Proposals that are only a beginning should set this to {@literal false}.
+	 */
+	private boolean complete = true;
+
 	public CompletionProposal(String value) {
-		this.value = this.displayText = value;
+		this.value = value;
 	}
 
 	public String value() {
@@ -58,12 +72,19 @@ public class CompletionProposal {
 	}
 
 	public CompletionProposal value(String value) {
+		if (displayText == null) {
+			// Keep displaying the original value
+			displayText = this.value;
+		}
 		this.value = value;
 		return this;
 	}
 
 	public String displayText() {
-		return displayText;
+		if (displayText == null) {
+			return value;
+		}
+		return resolve(displayText);
 	}
 
 	public CompletionProposal displayText(String displayText) {
@@ -71,8 +92,16 @@ public class CompletionProposal {
 		return this;
 	}
 
+	/**
+	 * Set the text to display, computed only when first asked for.
+	 */
+	public CompletionProposal lazyDisplayText(Supplier<String> displayText) {
+		this.displayText = new Lazy(displayText);
+		return this;
+	}
+
 	public String description() {
-		return description;
+		return resolve(description);
 	}
 
 	public CompletionProposal description(String description) {
@@ -80,8 +109,16 @@ public class CompletionProposal {
 		return this;
 	}
 
+	/**
+	 * Set the description, computed only when first asked for.
+	 */
+	public CompletionProposal lazyDescription(Supplier<String> description) {
+		this.description = new Lazy(description);
+		return this;
+	}
+
 	public String category() {
-		return category;
+		return resolve(category);
 	}
 
 	public CompletionProposal category(String category) {
@@ -89,6 +126,14 @@ public class CompletionProposal {
 		return this;
 	}
 
+	/**
+	 * Set the category, computed only when first asked for.
+	 */
+	public CompletionProposal lazyCategory(Supplier<String> category) {
+		this.category = new Lazy(category);
+		return this;
+	}
+
 	public CompletionProposal dontQuote(boolean dontQuote) {
 		this.dontQuote = dontQuote;
 		return this;
@@ -98,8 +143,46 @@ public class CompletionProposal {
 		return dontQuote;
 	}
 
+	public CompletionProposal complete(boolean complete) {
+		this.complete = complete;
+		return this;
+	}
+
+	public boolean complete() {
+		return complete;
+	}
+
+	/**
+	 * Compute the value of a lazily supplied field, if needed.
+	 */
+	private static String resolve(Object field) {
+		return field instanceof Lazy ? ((Lazy) field).get() : (String) field;
+	}
+
 	@Override
 	public String toString() {
 		return value;
 	}
+
+	/**
+	 * A String computed by a supplier the first time it is asked for. The supplier is released afterwards.
+	 */
+	private static final class Lazy {
+
+		private Supplier<String> supplier;
+
+		private String value;
+
+		private Lazy(Supplier<String> supplier) {
+			this.supplier = supplier;
+		}
+
+		private synchronized String get() {
+			if (supplier != null) {
+				value = supplier.get();
+				supplier = null;
+			}
+			return value;
+		}
+	}
 }
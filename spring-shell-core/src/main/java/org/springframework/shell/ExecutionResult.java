@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What happened when {@link Shell#execute(List) executing} some input: the command that matched, the value it returned
+ * or the exception that prevented it from completing, and how long it took.
+ *
+ * @author Eric Bottard
+ */
+public class ExecutionResult {
+
+	private final List<String> words;
+
+	private final String command;
+
+	private final Object value;
+
+	private final Exception exception;
+
+	private final long resolutionNanos;
+
+	private final long invocationNanos;
+
+	private final long totalNanos;
+
+	ExecutionResult(List<String> words, String command, Object value, Exception exception, long resolutionNanos,
+			long invocationNanos, long totalNanos) {
+		this.words = Collections.unmodifiableList(words);
+		this.command = command;
+		this.value = value;
+		this.exception = exception;
+		this.resolutionNanos = resolutionNanos;
+		this.invocationNanos = invocationNanos;
+		this.totalNanos = totalNanos;
+	}
+
+	/**
+	 * Return the words that were executed, including those of the command name.
+	 */
+	public List<String> getWords() {
+		return words;
+	}
+
+	/**
+	 * Return the name of the command the words matched, or {@literal null} if there was none.
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+	/**
+	 * Return the value returned by the command, {@literal null} for void methods or if it did not complete.
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	/**
+	 * Return what prevented the command from completing, be it a {@link CommandNotFound no matching command}, arguments
+	 * that could not be resolved or an exception thrown by the command itself. {@literal null} on success.
+	 */
+	public Exception getException() {
+		return exception;
+	}
+
+	public boolean isSuccess() {
+		return exception == null;
+	}
+
+	/**
+	 * Return the exception if there is one, or else the value, which is what the interactive shell passes on to its
+	 * {@link ResultHandler}.
+	 */
+	public Object getResult() {
+		return exception != null ? exception : value;
+	}
+
+	/**
+	 * Return the time spent resolving and validating arguments.
+	 */
+	public Duration getResolutionTime() {
+		return Duration.ofNanos(resolutionNanos);
+	}
+
+	/**
+	 * Return the time spent in the command itself.
+	 */
+	public Duration getInvocationTime() {
+		return Duration.ofNanos(invocationNanos);
+	}
+
+	/**
+	 * Return the time spent overall, including finding the command.
+	 */
+	public Duration getDuration() {
+		return Duration.ofNanos(totalNanos);
+	}
+
+	@Override
+	public String toString() {
+		return "ExecutionResult[" + String.join(" ", words) + " -> " + (exception != null ? exception : value)
+			+ " in " + getDuration().toMillis() + "ms]";
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the best candidates for some typed text among a fixed set of Strings (<em>e.g.</em> command names), where the
+ * typed characters must appear in order in a candidate, but not necessarily next to each other.
+ *
+ * <p>Candidates are indexed once: they are kept sorted, so that exact prefixes are found by binary search, and each
+ * one is given a 64 bit signature of the characters it contains (its 1-grams). For each of those 64 bits, the
+ * candidates having it set are listed, so that a lookup only visits the candidates containing the rarest character of
+ * the typed text, rejecting those that lack any other character with a single bitwise operation. The remaining
+ * candidates are {@linkplain #score(String, String) scored}, and only the best ones are retained on a bounded
+ * heap.</p>
+ *
+ * @author Eric Bottard
+ */
+public class FuzzyMatcher {
+
+	/**
+	 * Score bonus for a match at the very start of the candidate.
+	 */
+	private static final int START_BONUS = 8;
+
+	/**
+	 * Score bonus for a character matched right after the previous one.
+	 */
+	private static final int CONSECUTIVE_BONUS = 5;
+
+	/**
+	 * Score bonus for a character matched at the start of a word.
+	 */
+	private static final int WORD_START_BONUS = 3;
+
+	private final String[] candidates;
+
+	/**
+	 * The lower case variants of all candidates, laid out one after the other for locality.
+	 */
+	private final char[] lowerCase;
+
+	/**
+	 * Where each candidate starts in {@link #lowerCase}, plus the total length as a last element.
+	 */
+	private final int[] offsets;
+
+	private final long[] signatures;
+
+	/**
+	 * For each bit of the signatures, the indices of the candidates that have it set, in ascending order.
+	 */
+	private final int[][] postings = new int[64][];
+
+	public FuzzyMatcher(Collection<String> candidates) {
+		this.candidates = candidates.toArray(new String[candidates.size()]);
+		Arrays.sort(this.candidates);
+		this.offsets = new int[this.candidates.length + 1];
+		StringBuilder all = new StringBuilder();
+		for (int i = 0; i < this.candidates.length; i++) {
+			offsets[i] = all.length();
+			all.append(this.candidates[i].toLowerCase(Locale.ROOT));
+		}
+		offsets[this.candidates.length] = all.length();
+		this.lowerCase = all.toString().toCharArray();
+		this.signatures = new long[this.candidates.length];
+		for (int i = 0; i < this.candidates.length; i++) {
+			signatures[i] = signature(lowerCase, offsets[i], offsets[i + 1]);
+		}
+		int[] sizes = new int[64];
+		for (long signature : signatures) {
+			for (long bits = signature; bits != 0L; bits &= bits - 1) {
+				sizes[Long.numberOfTrailingZeros(bits)]++;
+			}
+		}
+		for (int bit = 0; bit < 64; bit++) {
+			postings[bit] = new int[sizes[bit]];
+			sizes[bit] = 0;
+		}
+		for (int i = 0; i < signatures.length; i++) {
+			for (long bits = signatures[i]; bits != 0L; bits &= bits - 1) {
+				int bit = Long.numberOfTrailingZeros(bits);
+				postings[bit][sizes[bit]++] = i;
+			}
+		}
+	}
+
+	/**
+	 * Return at most {@literal limit} candidates that start with the given prefix, in order.
+	 */
+	public List<String> startingWith(String prefix, int limit) {
+		int from = Arrays.binarySearch(candidates, prefix);
+		from = from >= 0 ? from : -from - 1;
+		List<String> result = new ArrayList<>();
+		for (int i = from; i < candidates.length && result.size() < limit && candidates[i].startsWith(prefix); i++) {
+			result.add(candidates[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Return at most {@literal limit} candidates matching the given text, best match first.
+	 */
+	public List<String> match(String typed, int limit) {
+		if (limit <= 0) {
+			return Collections.emptyList();
+		}
+		char[] query = typed.toLowerCase(Locale.ROOT).toCharArray();
+		long signature = signature(query, 0, query.length);
+		int[] visited = rarest(signature);
+		// Worst retained match at the head
+		PriorityQueue<Match> best = new PriorityQueue<>(Math.min(limit, 64) + 1);
+		for (int i : visited) {
+			if ((signatures[i] & signature) != signature) {
+				continue;
+			}
+			int score = score(query, lowerCase, offsets[i], offsets[i + 1], best.size() < limit ? -1 : best.peek().score);
+			if (score < 0) {
+				continue;
+			}
+			if (best.size() < limit) {
+				best.add(new Match(candidates[i], score));
+			}
+			// Candidates come in alphabetical order, so a later one needs a strictly better score
+			else if (score > best.peek().score) {
+				best.poll();
+				best.add(new Match(candidates[i], score));
+			}
+		}
+		List<String> result = new ArrayList<>(best.size());
+		while (!best.isEmpty()) {
+			result.add(best.poll().candidate);
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * Return the shortest list of candidates containing one of the characters of the given signature.
+	 */
+	private int[] rarest(long signature) {
+		if (signature == 0L) {
+			// Empty text matches everything
+			int[] all = new int[candidates.length];
+			for (int i = 0; i < all.length; i++) {
+				all[i] = i;
+			}
+			return all;
+		}
+		int[] result = null;
+		for (long bits = signature; bits != 0L; bits &= bits - 1) {
+			int[] posting = postings[Long.numberOfTrailingZeros(bits)];
+			if (result == null || posting.length < result.length) {
+				result = posting;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return how well the given candidate matches some typed text (the higher the better), or -1 if it does not match
+	 * at all, <em>i.e.</em> the typed characters don't all appear in order in the candidate. Matching ignores case.
+	 */
+	public static int score(String typed, String candidate) {
+		char[] text = candidate.toLowerCase(Locale.ROOT).toCharArray();
+		return score(typed.toLowerCase(Locale.ROOT).toCharArray(), text, 0, text.length, -1);
+	}
+
+	/**
+	 * Score the candidate found between {@literal from} and {@literal to} in {@literal text}, giving up (and returning
+	 * -1) as soon as it is certain not to score above {@literal threshold}.
+	 */
+	private static int score(char[] query, char[] text, int from, int to, int threshold) {
+		int lengthBonus = Math.max(0, 63 - (to - from));
+		int score = 0;
+		int previous = -2;
+		int j = 0;
+		for (int i = from; i < to && j < query.length; i++) {
+			if (i > from && (score + (query.length - j) * (WORD_START_BONUS + CONSECUTIVE_BONUS)) * 64 + lengthBonus <= threshold) {
+				return -1;
+			}
+			if (text[i] != query[j]) {
+				continue;
+			}
+			if (i == from) {
+				score += START_BONUS;
+			}
+			else if (!Character.isLetterOrDigit(text[i - 1])) {
+				score += WORD_START_BONUS;
+			}
+			if (i == previous + 1) {
+				score += CONSECUTIVE_BONUS;
+			}
+			previous = i;
+			j++;
+		}
+		if (j < query.length) {
+			return -1;
+		}
+		// Prefer shorter candidates, all other things being equal
+		return score * 64 + lengthBonus;
+	}
+
+	/**
+	 * Return a bit set of the characters present in the given text, with characters past 'z' folded onto the
+	 * remaining bits.
+	 */
+	private static long signature(char[] text, int from, int to) {
+		long result = 0L;
+		for (int i = from; i < to; i++) {
+			char c = text[i];
+			if (c >= 'a' && c <= 'z') {
+				result |= 1L << (c - 'a');
+			}
+			else if (c >= '0' && c <= '9') {
+				result |= 1L << (26 + c - '0');
+			}
+			else {
+				result |= 1L << (36 + c % 28);
+			}
+		}
+		return result;
+	}
+
+	private static class Match implements Comparable<Match> {
+
+		private final String candidate;
+
+		private final int score;
+
+		private Match(String candidate, int score) {
+			this.candidate = candidate;
+			this.score = score;
+		}
+
+		/**
+		 * Orders by score, then by reverse alphabetical order, so that the best match compares the highest.
+		 */
+		@Override
+		public int compareTo(Match other) {
+			int byScore = Integer.compare(score, other.score);
+			return byScore != 0 ? byScore : other.candidate.compareTo(candidate);
+		}
+	}
+}
@@ -32,6 +32,11 @@ import org.springframework.core.MethodParameter;
  */
 public class ParameterDescription {
 
+	/**
+	 * Value of {@link #arity()} for parameters that consume every word up to the next key.
+	 */
+	public static final int ARITY_UNBOUNDED = Integer.MAX_VALUE;
+
 	/**
 	 * The original method parameter this is describing.
 	 */
@@ -60,6 +65,12 @@ public class ParameterDescription {
 	 */
 	private Optional<String> defaultValueWhenFlag = Optional.empty();
 
+	/**
+	 * The number of words this parameter consumes as its value, if known to the {@link ParameterResolver}.
+	 * <p>{@literal 0} means a mere flag, while {@link #ARITY_UNBOUNDED} means every word up to the next key.</p>
+	 */
+	private Optional<Integer> arity = Optional.empty();
+
 	/**
 	 * The list of 'keys' that can be used to specify this parameter, if any.
 	 */
@@ -113,6 +124,15 @@ public class ParameterDescription {
 		return this;
 	}
 
+	public Optional<Integer> arity() {
+		return arity;
+	}
+
+	public ParameterDescription arity(int arity) {
+		this.arity = Optional.of(arity);
+		return this;
+	}
+
 	public ParameterDescription keys(List<String> keys) {
 		this.keys = keys;
 		return this;
@@ -165,12 +185,13 @@ public class ParameterDescription {
 			Objects.equals(formal, that.formal) &&
 			Objects.equals(defaultValue, that.defaultValue) &&
 			Objects.equals(defaultValueWhenFlag, that.defaultValueWhenFlag) &&
+			Objects.equals(arity, that.arity) &&
 			Objects.equals(keys, that.keys) &&
 			Objects.equals(help, that.help);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(parameter, type, formal, defaultValue, defaultValueWhenFlag, keys, mandatoryKey, help);
+		return Objects.hash(parameter, type, formal, defaultValue, defaultValueWhenFlag, arity, keys, mandatoryKey, help);
 	}
 }
@@ -16,6 +16,7 @@
 
 package org.springframework.shell;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -51,4 +52,34 @@ public interface ParameterResolver {
 	 */
 	List<CompletionProposal> complete(MethodParameter parameter, CompletionContext context);
 
+	/**
+	 * Invoked during TAB completion, once for all the parameters of a command that this resolver supports.
+	 * <p>The default implementation invokes {@link #complete(MethodParameter, CompletionContext)} for each parameter
+	 * in turn. Implementations that need to analyze the whole input anyway should override this method, so that the
+	 * input is analyzed once per completion request, whatever the number of parameters.</p>
+	 */
+	default List<CompletionProposal> completeAll(List<MethodParameter> parameters, CompletionContext context) {
+		List<CompletionProposal> result = new ArrayList<>();
+		for (MethodParameter parameter : parameters) {
+			result.addAll(complete(parameter, context));
+		}
+		return result;
+	}
+
+	/**
+	 * Return whether resolving the given parameter has no side effect, and thus may be done ahead of time (maybe in
+	 * vain) while the user is still typing. Defaults to {@literal false}.
+	 */
+	default boolean isPure(MethodParameter parameter) {
+		return false;
+	}
+
+	/**
+	 * Return whether the values bound to the given parameter may be remembered, to rank value proposals by how often
+	 * they are used. Defaults to {@literal false}, as values may be sensitive (<em>e.g.</em> passwords).
+	 */
+	default boolean isRecordable(MethodParameter parameter) {
+		return false;
+	}
+
 }
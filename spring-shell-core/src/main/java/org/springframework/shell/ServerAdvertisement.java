@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Tells local clients where a server listening on the loopback interface can be reached, and lets that server make
+ * sure its clients are run by the same user.
+ *
+ * <p>The port of the server is written to a file only readable by its owner, together with a random token. Clients
+ * must present that token, followed by a newline, as soon as they connect. Connections that don't do so within a
+ * few seconds are refused.</p>
+ *
+ * <p>Only depends on the JDK, so that clients using it stay quick to start.</p>
+ *
+ * @author Eric Bottard
+ */
+public class ServerAdvertisement {
+
+	/**
+	 * The number of characters of a token, which is made of 32 random bytes in hexadecimal.
+	 */
+	public static final int TOKEN_LENGTH = 64;
+
+	/**
+	 * How long (in milliseconds) clients have to present the token once connected.
+	 */
+	private static final int HANDSHAKE_TIMEOUT = 5_000;
+
+	private final Path file;
+
+	private final String token;
+
+	private final String content;
+
+	private boolean withdrawn;
+
+	private ServerAdvertisement(Path file, int port, String token) {
+		this.file = file;
+		this.token = token;
+		this.content = port + " " + token;
+	}
+
+	/**
+	 * Advertise a server listening on the given port in the given file, replacing any previous advertisement.
+	 */
+	public static ServerAdvertisement publish(Path file, int port) throws IOException {
+		byte[] secret = new byte[TOKEN_LENGTH / 2];
+		new SecureRandom().nextBytes(secret);
+		StringBuilder sb = new StringBuilder(TOKEN_LENGTH);
+		for (byte b : secret) {
+			sb.append(String.format("%02x", b));
+		}
+		ServerAdvertisement advertisement = new ServerAdvertisement(file, port, sb.toString());
+
+		Path directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		// Temporary files are only readable by their owner, and moving one in place keeps it that way
+		Path temp = Files.createTempFile(directory, "." + file.getFileName(), ".tmp");
+		try {
+			Files.write(temp, advertisement.content.getBytes(StandardCharsets.UTF_8));
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+		return advertisement;
+	}
+
+	/**
+	 * Connect to the server advertised in the given file and present its token, returning {@literal null} if there is
+	 * no such server running.
+	 */
+	public static Socket connect(Path file) throws IOException {
+		String content;
+		try {
+			content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+		int separator = content.indexOf(' ');
+		if (separator < 0) {
+			// Being written
+			return null;
+		}
+		Socket socket;
+		try {
+			socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(content.substring(0, separator)));
+		}
+		catch (ConnectException e) {
+			// Left behind by a server that did not stop cleanly
+			return null;
+		}
+		socket.getOutputStream().write((content.substring(separator + 1) + "\n").getBytes(StandardCharsets.UTF_8));
+		return socket;
+	}
+
+	/**
+	 * Read the token the client on the other end of the given socket presents, and return whether it is the right one.
+	 * Reads no more than the token and its newline, and waits a few seconds at most.
+	 */
+	public boolean authenticate(Socket socket) throws IOException {
+		int timeout = socket.getSoTimeout();
+		socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+		InputStream in = socket.getInputStream();
+		byte[] presented = new byte[TOKEN_LENGTH + 1];
+		for (int read = 0; read < presented.length; ) {
+			int count = in.read(presented, read, presented.length - read);
+			if (count < 0) {
+				return false;
+			}
+			read += count;
+		}
+		socket.setSoTimeout(timeout);
+		return MessageDigest.isEqual((token + "\n").getBytes(StandardCharsets.UTF_8), presented);
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Delete the advertisement file, unless another server has advertised itself in it since.
+	 */
+	public synchronized void withdraw() throws IOException {
+		if (!withdrawn && Files.exists(file) && content.equals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))) {
+			Files.delete(file);
+		}
+		withdrawn = true;
+	}
+}
@@ -21,20 +21,36 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Validation;
 import javax.validation.executable.ExecutableValidator;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.MethodParameter;
+import org.springframework.shell.jline.ExtendedDefaultParser;
 import org.springframework.util.ReflectionUtils;
 
 /**
@@ -49,6 +65,11 @@ import org.springframework.util.ReflectionUtils;
  */
 public class Shell implements CommandRegistry {
 
+	/**
+	 * The {@link UsageStatistics} category for command names.
+	 */
+	public static final String COMMAND_USAGE = "command";
+
 	private final InputProvider inputProvider;
 
 	private final ResultHandler resultHandler;
@@ -56,21 +77,70 @@ public class Shell implements CommandRegistry {
 	@Autowired
 	protected ApplicationContext applicationContext;
 
-	protected Map<String, MethodTarget> methodTargets = new HashMap<>();
+	protected volatile Map<String, MethodTarget> methodTargets = new HashMap<>();
+
+	/**
+	 * An index over the names of {@link #methodTargets}, together with the map it was built from.
+	 */
+	private volatile CommandIndex commandIndex;
 
 	@Autowired
 	protected List<ParameterResolver> parameterResolvers = new ArrayList<>();
 
+	private UsageStatistics usageStatistics;
+
+	private boolean speculativeResolution;
+
+	/**
+	 * The {@link ShellSession} attribute holding the pending speculation of that session, if any.
+	 */
+	private static final String SPECULATION_ATTRIBUTE = Shell.class.getName() + ".speculation";
+
+	private ExecutorService speculationExecutor;
+
+	private boolean shutdown;
+
+	private volatile ExecutableValidator executableValidator;
+
 	/**
 	 * Marker object to distinguish unresolved arguments from {@code null}, which is a valid value.
 	 */
 	protected static final Object UNRESOLVED = new Object();
 
+	/**
+	 * The maximum number of similar commands suggested when no command matches user input.
+	 */
+	private static final int MAX_SUGGESTIONS = 3;
+
+	/**
+	 * The maximum edit distance between user input and a suggested command.
+	 */
+	private static final int MAX_SUGGESTION_DISTANCE = 3;
+
 	public Shell(InputProvider inputProvider, ResultHandler resultHandler) {
 		this.inputProvider = inputProvider;
 		this.resultHandler = resultHandler;
 	}
 
+	@Autowired(required = false)
+	public void setUsageStatistics(UsageStatistics usageStatistics) {
+		this.usageStatistics = usageStatistics;
+	}
+
+	/**
+	 * Whether to resolve arguments in the background while the user types, so that only invocation remains to be done
+	 * once input is submitted. Only parameters whose resolution {@link ParameterResolver#isPure(MethodParameter) has no
+	 * side effect} are resolved ahead of time.
+	 */
+	@Value("${spring.shell.speculative-resolution:false}")
+	public void setSpeculativeResolution(boolean speculativeResolution) {
+		this.speculativeResolution = speculativeResolution;
+	}
+
+	public boolean isSpeculativeResolution() {
+		return speculativeResolution;
+	}
+
 	@Override
 	public Map<String, MethodTarget> listCommands() {
 		return methodTargets;
@@ -83,6 +153,7 @@ public class Shell implements CommandRegistry {
 			resolver.register(registry);
 		}
 		methodTargets = registry.listCommands();
+		commandIndex = new CommandIndex(methodTargets);
 	}
 
 	/**
@@ -90,6 +161,16 @@ public class Shell implements CommandRegistry {
 	 * {@link ResultHandler} causes the process to exit.
 	 */
 	public void run() throws IOException {
+		run(inputProvider, resultHandler);
+	}
+
+	/**
+	 * Run the program loop against the given input and output, <em>e.g.</em> those of a remote session. Repeat until
+	 * the {@link ResultHandler} throws an exception, which is propagated.
+	 *
+	 * <p>Commands are shared, so this may be invoked by several threads at the same time.</p>
+	 */
+	public void run(InputProvider inputProvider, ResultHandler<Object> resultHandler) throws IOException {
 		while (true) {
 			Input input;
 			try {
@@ -102,32 +183,93 @@ public class Shell implements CommandRegistry {
 			if (noInput(input)) {
 				continue;
 			}
+			resultHandler.handleResult(execute(input.words()).getResult());
+		}
+	}
 
+	/**
+	 * Execute the command the given line starts with, as {@link #execute(List)} does. The line is split into words
+	 * the same way as when typed at the prompt, honoring quotes and escapes.
+	 */
+	public ExecutionResult execute(String line) {
+		return execute(ExtendedDefaultParser.splitWords(line));
+	}
 
-			String line = input.words().stream().collect(Collectors.joining(" ")).trim();
-			String command = findLongestCommand(line);
+	/**
+	 * Execute the command the given words start with, and return what happened. Unlike {@link #run()}, this does not
+	 * involve any {@link InputProvider} or {@link ResultHandler}, so the result is left for the caller to deal with.
+	 *
+	 * <p>Commands are shared, so this may be invoked by several threads at the same time.</p>
+	 */
+	public ExecutionResult execute(List<String> words) {
+		long start = System.nanoTime();
+		// Argument resolution trims the list it is given
+		List<String> copy = new ArrayList<>(words);
+		if (copy.stream().allMatch(w -> w.trim().isEmpty())) {
+			return new ExecutionResult(copy, null, null, null, 0L, 0L, System.nanoTime() - start);
+		}
+		String command = findLongestCommand(String.join(" ", copy).trim());
+		if (command == null) {
+			CommandNotFound notFound = new CommandNotFound(copy, suggestCommands(copy));
+			return new ExecutionResult(copy, null, null, notFound, 0L, 0L, System.nanoTime() - start);
+		}
 
-			List<String> words = input.words();
-			Object result;
-			if (command != null) {
-				MethodTarget methodTarget = methodTargets.get(command);
-				List<String> wordsForArgs = wordsForArguments(command, words);
-				Method method = methodTarget.getMethod();
+		MethodTarget methodTarget = methodTargets.get(command);
+		List<String> wordsForArgs = wordsForArguments(command, new ArrayList<>(copy));
+		Method method = methodTarget.getMethod();
+		long found = System.nanoTime();
+		long resolved = -1L;
+		Object value = null;
+		Exception exception = null;
+		try {
+			ValueResult[] values = resolveValues(method, wordsForArgs, takeSpeculation(copy, methodTarget));
+			Object[] args = Arrays.stream(values).map(ValueResult::resolvedValue).toArray();
+			validateArgs(args, methodTarget);
+			resolved = System.nanoTime();
+			value = ReflectionUtils.invokeMethod(method, methodTarget.getBean(), args);
+			recordUsage(command, values, wordsForArgs);
+		}
+		catch (Exception e) {
+			exception = e;
+		}
+		long end = System.nanoTime();
+		if (resolved < 0) {
+			// Failed before invocation
+			resolved = end;
+		}
+		return new ExecutionResult(copy, command, value, exception, resolved - found, end - resolved, end - start);
+	}
 
-				try {
-					Object[] args = resolveArgs(method, wordsForArgs);
-					validateArgs(args, methodTarget);
-					result = ReflectionUtils.invokeMethod(method, methodTarget.getBean(), args);
-				}
-				catch (Exception e) {
-					result = e;
-				}
+	/**
+	 * Try to resolve the arguments of the command the given words start with, without invoking it, and return the
+	 * problems that would prevent it from running. The result is empty if the words don't start with a known command,
+	 * or if all arguments could be resolved.
+	 *
+	 * <p>Uses the same resolvers as actual invocation, so may be as expensive. Only parameters whose resolution
+	 * {@link ParameterResolver#isPure(MethodParameter) has no side effect} are considered.</p>
+	 */
+	public List<Exception> diagnose(List<String> words) {
+		String command = findLongestCommand(words.stream().collect(Collectors.joining(" ")).trim());
+		if (command == null) {
+			return Collections.emptyList();
+		}
+		Method method = methodTargets.get(command).getMethod();
+		List<String> wordsForArgs = wordsForArguments(command, new ArrayList<>(words));
+		List<Exception> result = new ArrayList<>();
+		for (int i = 0; i < method.getParameterCount(); i++) {
+			MethodParameter methodParameter = Utils.createMethodParameter(method, i);
+			ParameterResolver resolver = findResolver(methodParameter);
+			if (!resolver.isPure(methodParameter)) {
+				continue;
 			}
-			else {
-				result = new CommandNotFound(words);
+			try {
+				resolver.resolve(methodParameter, wordsForArgs);
+			}
+			catch (Exception e) {
+				result.add(e);
 			}
-			resultHandler.handleResult(result);
 		}
+		return result;
 	}
 
 	/**
@@ -162,34 +304,92 @@ public class Shell implements CommandRegistry {
 		String prefix = context.upToCursor();
 
 		List<CompletionProposal> candidates = new ArrayList<>();
-		candidates.addAll(commandsStartingWith(prefix));
+		candidates.addAll(commandsStartingWith(prefix, context.getLimit()));
 
 		String best = findLongestCommand(prefix);
-		if (best != null) {
+		if (best == null && candidates.isEmpty() && !prefix.trim().isEmpty()) {
+			// User is typing a command, but no command starts with it
+			candidates.addAll(commandsMatching(prefix, context.getLimit()));
+		}
+		else if (best != null) {
 			CompletionContext argsContext = context.drop(best.split(" ").length);
 			// Try to complete arguments
 			MethodTarget methodTarget = methodTargets.get(best);
 			Method method = methodTarget.getMethod();
-			Arrays.stream(method.getParameters())
-				.map(Utils::createMethodParameter)
-				.flatMap(mp -> findResolver(mp).complete(mp, argsContext).stream())
-				.forEach(candidates::add);
+			// Group parameters by resolver, so that each resolver analyzes the input only once
+			Map<ParameterResolver, List<MethodParameter>> parametersByResolver = new LinkedHashMap<>();
+			Utils.createMethodParameters(method)
+				.forEach(mp -> parametersByResolver.computeIfAbsent(findResolver(mp), r -> new ArrayList<>()).add(mp));
+			parametersByResolver.forEach((resolver, parameters) -> candidates.addAll(resolver.completeAll(parameters, argsContext)));
 		}
-		return candidates;
+		return candidates.size() > context.getLimit() ? candidates.subList(0, context.getLimit()) : candidates;
 	}
 
-	private List<CompletionProposal> commandsStartingWith(String prefix) {
-		return methodTargets.entrySet().stream()
-			.filter(e -> e.getKey().startsWith(prefix))
-			.map(e -> toCommandProposal(e.getKey(), e.getValue()))
+	/**
+	 * Return the commands that start with the given prefix. The most used ones come first, then the others in
+	 * alphabetical order.
+	 */
+	private List<CompletionProposal> commandsStartingWith(String prefix, int limit) {
+		Collection<String> commands = commandIndex().matcher.startingWith(prefix, limit);
+		if (usageStatistics != null) {
+			Set<String> ranked = new LinkedHashSet<>();
+			usageStatistics.mostUsed(COMMAND_USAGE, prefix, limit).stream()
+				.filter(methodTargets::containsKey)
+				.forEach(ranked::add);
+			ranked.addAll(commands);
+			commands = ranked;
+		}
+		return commands.stream()
+			.limit(limit)
+			.map(c -> toCommandProposal(c, methodTargets.get(c)))
+			.collect(Collectors.toList());
+	}
+
+	private List<CompletionProposal> commandsMatching(String typed, int limit) {
+		return commandIndex().matcher.match(typed, limit).stream()
+			.map(c -> toCommandProposal(c, methodTargets.get(c)))
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Return the names of the commands closest to what the user typed, in terms of edit distance. As command names may
+	 * be made of several words, the first words of the input are tried in turn.
+	 */
+	private List<String> suggestCommands(List<String> words) {
+		CommandIndex index = commandIndex();
+		Map<String, Integer> distances = new HashMap<>();
+		for (int n = 1; n <= Math.min(words.size(), index.maxWords); n++) {
+			String typed = String.join(" ", words.subList(0, n));
+			int maxDistance = Math.max(1, Math.min(MAX_SUGGESTION_DISTANCE, typed.length() / 3));
+			for (BKTree.Suggestion suggestion : index.names.search(typed, maxDistance)) {
+				distances.merge(suggestion.getWord(), suggestion.getDistance(), Math::min);
+			}
+		}
+		return distances.entrySet().stream()
+			.sorted(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+			.limit(MAX_SUGGESTIONS)
+			.map(Map.Entry::getKey)
 			.collect(Collectors.toList());
 	}
 
+	/**
+	 * Return the index over the current command names, only building it again if the set of commands has changed.
+	 */
+	private CommandIndex commandIndex() {
+		Map<String, MethodTarget> commands = methodTargets;
+		CommandIndex index = commandIndex;
+		if (index == null || index.commands != commands || index.size != commands.size()) {
+			index = new CommandIndex(commands);
+			commandIndex = index;
+		}
+		return index;
+	}
+
 	private CompletionProposal toCommandProposal(String command, MethodTarget methodTarget) {
 		return new CompletionProposal(command)
 			.dontQuote(true)
 			.category("Available commands")
-			.description(methodTarget.getHelp());
+			.lazyDescription(methodTarget::getHelp);
 	}
 
 	private void validateArgs(Object[] args, MethodTarget methodTarget) {
@@ -199,14 +399,27 @@ public class Shell implements CommandRegistry {
 				throw new IllegalStateException("Could not resolve " + methodParameter);
 			}
 		}
-		ExecutableValidator executableValidator = Validation
-			.buildDefaultValidatorFactory().getValidator().forExecutables();
-		Set<ConstraintViolation<Object>> constraintViolations = executableValidator.validateParameters(methodTarget.getBean(),
+		Set<ConstraintViolation<Object>> constraintViolations = executableValidator().validateParameters(methodTarget.getBean(),
 			methodTarget.getMethod(),
 			args);
 		if (constraintViolations.size() > 0) {
-			System.out.println(constraintViolations);
+			String message = constraintViolations.stream()
+				.map(v -> v.getPropertyPath() + " " + v.getMessage())
+				.collect(Collectors.joining(", "));
+			throw new ConstraintViolationException(message, constraintViolations);
+		}
+	}
+
+	/**
+	 * Validators are thread-safe, and expensive to build.
+	 */
+	private ExecutableValidator executableValidator() {
+		ExecutableValidator validator = executableValidator;
+		if (validator == null) {
+			validator = Validation.buildDefaultValidatorFactory().getValidator().forExecutables();
+			executableValidator = validator;
 		}
+		return validator;
 	}
 
 	/**
@@ -215,18 +428,165 @@ public class Shell implements CommandRegistry {
 	 * @param method       the method for which parameters should be computed
 	 * @param wordsForArgs the list of 'words' that should be converted to parameter values.
 	 *                     May include markers for passing parameters 'by name'
-	 * @return an array containing resolved parameter values, or {@link #UNRESOLVED} for parameters that could not be
-	 * resolved
+	 * @param prepared     values already resolved ahead of time, if any. Parameters with a {@literal null} value
+	 *                     are resolved now
+	 * @return the resolved values, one per parameter
 	 */
-	private Object[] resolveArgs(Method method, List<String> wordsForArgs) {
+	private ValueResult[] resolveValues(Method method, List<String> wordsForArgs, ValueResult[] prepared) {
 		Parameter[] parameters = method.getParameters();
-		Object[] args = new Object[parameters.length];
-		Arrays.fill(args, UNRESOLVED);
+		ValueResult[] values = prepared != null ? prepared : new ValueResult[parameters.length];
 		for (int i = 0; i < parameters.length; i++) {
+			if (values[i] == null) {
+				MethodParameter methodParameter = Utils.createMethodParameter(method, i);
+				values[i] = findResolver(methodParameter).resolve(methodParameter, wordsForArgs);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Resolve, ahead of time, the parameters whose resolution has no side effect. Parameters that are not pure, or
+	 * that fail to resolve, are left {@literal null}.
+	 */
+	private ValueResult[] resolvePureValues(Method method, List<String> wordsForArgs) {
+		ValueResult[] values = new ValueResult[method.getParameterCount()];
+		for (int i = 0; i < values.length && !Thread.currentThread().isInterrupted(); i++) {
 			MethodParameter methodParameter = Utils.createMethodParameter(method, i);
-			args[i] = findResolver(methodParameter).resolve(methodParameter, wordsForArgs).resolvedValue();
+			ParameterResolver resolver = findResolver(methodParameter);
+			if (resolver.isPure(methodParameter)) {
+				try {
+					values[i] = resolver.resolve(methodParameter, wordsForArgs);
+				}
+				catch (Exception e) {
+					// Will be resolved again, and fail for real, if the user submits this input
+				}
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Start resolving arguments for the given words in the background, if {@link #setSpeculativeResolution(boolean)
+	 * enabled}, so that they're ready if the user submits them as is. Any previous speculation is cancelled.
+	 *
+	 * <p>This is meant to be invoked by the user interface, as soon as input forms a complete line. It never
+	 * blocks. Speculations are kept per {@link ShellSession}, and only used by the thread that made them, as threads
+	 * without a session of their own share the default one.</p>
+	 */
+	public void speculate(List<String> words) {
+		if (!speculativeResolution) {
+			return;
+		}
+		List<String> key = withoutTrailingEmptyWord(words);
+		Map<String, Object> attributes = ShellSession.current().getAttributes();
+		Speculation previous = (Speculation) attributes.get(SPECULATION_ATTRIBUTE);
+		if (previous != null && previous.words.equals(key)) {
+			return;
+		}
+		if (previous != null) {
+			previous.task.cancel(true);
+		}
+		String command = findLongestCommand(key.stream().collect(Collectors.joining(" ")).trim());
+		MethodTarget methodTarget = command != null ? methodTargets.get(command) : null;
+		if (methodTarget == null) {
+			attributes.remove(SPECULATION_ATTRIBUTE);
+			return;
+		}
+		List<String> wordsForArgs = wordsForArguments(command, new ArrayList<>(key));
+		Speculation current = new Speculation(key, methodTarget, () -> resolvePureValues(methodTarget.getMethod(), wordsForArgs));
+		attributes.put(SPECULATION_ATTRIBUTE, current);
+		try {
+			speculationExecutor().execute(current.task);
+		}
+		catch (RejectedExecutionException e) {
+			// Shutting down, arguments will be resolved on submit, if ever
+			attributes.remove(SPECULATION_ATTRIBUTE, current);
+		}
+	}
+
+	/**
+	 * Return the values prepared for the given input, if any, waiting for them if they are being computed.
+	 */
+	private ValueResult[] takeSpeculation(List<String> words, MethodTarget methodTarget) {
+		Map<String, Object> attributes = ShellSession.current().getAttributes();
+		Speculation current = (Speculation) attributes.get(SPECULATION_ATTRIBUTE);
+		if (current == null || current.owner != Thread.currentThread()) {
+			// Made for someone else sharing the session, e.g. the interactive user of the default session
+			return null;
+		}
+		attributes.remove(SPECULATION_ATTRIBUTE, current);
+		if (current.methodTarget != methodTarget || !current.words.equals(withoutTrailingEmptyWord(words))) {
+			current.task.cancel(true);
+			return null;
+		}
+		if (!current.started.get() && current.task.cancel(false)) {
+			// Not started yet, resolving now is as fast
+			return null;
+		}
+		try {
+			return current.task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException | CancellationException e) {
+			return null;
+		}
+	}
+
+	private List<String> withoutTrailingEmptyWord(List<String> words) {
+		int size = words.size();
+		while (size > 0 && words.get(size - 1).isEmpty()) {
+			size--;
+		}
+		return new ArrayList<>(words.subList(0, size));
+	}
+
+	private synchronized ExecutorService speculationExecutor() {
+		if (shutdown) {
+			throw new RejectedExecutionException("Shell has been shut down");
+		}
+		if (speculationExecutor == null) {
+			speculationExecutor = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "speculative-resolution");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return speculationExecutor;
+	}
+
+	/**
+	 * Cancel speculative resolution, if any is running, and release the thread used for it.
+	 */
+	@PreDestroy
+	public synchronized void shutdown() {
+		shutdown = true;
+		if (speculationExecutor != null) {
+			speculationExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Record that the given command has been invoked successfully, with the given argument values. Only the words of
+	 * parameters whose resolver {@linkplain ParameterResolver#isRecordable(MethodParameter) allows it} are recorded,
+	 * each one on its own, as that is how value proposals are ranked.
+	 */
+	private void recordUsage(String command, ValueResult[] values, List<String> wordsForArgs) {
+		if (usageStatistics == null) {
+			return;
+		}
+		usageStatistics.record(COMMAND_USAGE, command);
+		for (ValueResult value : values) {
+			MethodParameter parameter = value.methodParameter();
+			if (parameter == null || value.wordsUsedForValue() == null || !findResolver(parameter).isRecordable(parameter)) {
+				continue;
+			}
+			for (String word : value.wordsUsedForValue(wordsForArgs)) {
+				usageStatistics.record(UsageStatistics.categoryFor(parameter), word);
+			}
 		}
-		return args;
 	}
 
 	private ParameterResolver findResolver(MethodParameter parameter) {
@@ -242,13 +602,66 @@ public class Shell implements CommandRegistry {
 	 *
 	 * @return a valid command name, or {@literal null} if none matched
 	 */
-	private String findLongestCommand(String prefix) {
-		String result = methodTargets.keySet().stream()
-			.filter(prefix::startsWith)
-			.reduce("", (c1, c2) -> c1.length() > c2.length() ? c1 : c2);
+	public String findLongestCommand(CharSequence prefix) {
+		String result = commandIndex().trie.longestPrefixOf(prefix);
 		return "".equals(result) ? null : result;
 	}
 
+	/**
+	 * Arguments being resolved ahead of time, for a given input.
+	 */
+	private static class Speculation {
+
+		private final List<String> words;
+
+		private final MethodTarget methodTarget;
+
+		/**
+		 * The thread that asked for this speculation, which is the only one to use it.
+		 */
+		private final Thread owner = Thread.currentThread();
+
+		private final AtomicBoolean started = new AtomicBoolean();
+
+		private final FutureTask<ValueResult[]> task;
+
+		private Speculation(List<String> words, MethodTarget methodTarget, Callable<ValueResult[]> resolution) {
+			this.words = words;
+			this.methodTarget = methodTarget;
+			this.task = new FutureTask<>(() -> {
+				started.set(true);
+				return resolution.call();
+			});
+		}
+	}
+
+	private static class CommandIndex {
+
+		private final Map<String, MethodTarget> commands;
+
+		private final int size;
+
+		private final FuzzyMatcher matcher;
+
+		private final BKTree names;
+
+		private final CommandTrie trie;
+
+		/**
+		 * The largest number of words in a command name.
+		 */
+		private final int maxWords;
+
+		private CommandIndex(Map<String, MethodTarget> commands) {
+			this.commands = commands;
+			this.size = commands.size();
+			this.matcher = new FuzzyMatcher(commands.keySet());
+			this.names = new BKTree(commands.keySet());
+			this.trie = new CommandTrie(commands.keySet());
+			this.maxWords = commands.keySet().stream().mapToInt(c -> c.split(" ").length).max().orElse(0);
+		}
+	}
+
 	public interface InputProvider {
 		/**
 		 * Return text entered by user to invoke commands.
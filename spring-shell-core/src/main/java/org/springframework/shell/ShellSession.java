@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jline.reader.History;
+import org.jline.terminal.Terminal;
+
+/**
+ * The state that belongs to one user of the shell, as opposed to commands and caches that are shared by all users.
+ *
+ * <p>A session is {@link #bind() bound} to the thread that reads its input and runs its commands, and shared components
+ * that need per-user state get it from the {@link #current() current session}. Code that does not run within a session,
+ * such as the shell attached to the terminal of the process, uses the default session.</p>
+ *
+ * <p>Besides the terminal, history and last error, sessions hold attributes, for components that need to keep other
+ * state per user.</p>
+ *
+ * @author Eric Bottard
+ */
+public class ShellSession {
+
+	private static final ThreadLocal<ShellSession> CURRENT = new ThreadLocal<>();
+
+	private static final ShellSession DEFAULT = new ShellSession("default", null, null);
+
+	private final String id;
+
+	private final Terminal terminal;
+
+	private final History history;
+
+	private volatile Throwable lastError;
+
+	private final ConcurrentMap<String, Object> attributes = new ConcurrentHashMap<>();
+
+	/**
+	 * @param id a name for this session, for display purposes
+	 * @param terminal the terminal of this session, or {@literal null} to use the one the process is attached to
+	 * @param history the history of this session, or {@literal null} to use the one of the process
+	 */
+	public ShellSession(String id, Terminal terminal, History history) {
+		this.id = id;
+		this.terminal = terminal;
+		this.history = history;
+	}
+
+	/**
+	 * Return the session bound to the current thread, or the default session if there is none.
+	 */
+	public static ShellSession current() {
+		ShellSession session = CURRENT.get();
+		return session != null ? session : DEFAULT;
+	}
+
+	/**
+	 * Bind this session to the current thread, until the returned binding is closed. Bindings may be nested.
+	 */
+	public Binding bind() {
+		ShellSession previous = CURRENT.get();
+		CURRENT.set(this);
+		return () -> {
+			if (previous != null) {
+				CURRENT.set(previous);
+			}
+			else {
+				CURRENT.remove();
+			}
+		};
+	}
+
+	/**
+	 * Call the given action with this session bound to the current thread, and return its result.
+	 */
+	public <T, E extends Exception> T call(Action<T, E> action) throws E {
+		Binding binding = bind();
+		try {
+			return action.call();
+		}
+		finally {
+			binding.close();
+		}
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Terminal getTerminal() {
+		return terminal;
+	}
+
+	public History getHistory() {
+		return history;
+	}
+
+	/**
+	 * Return the last error reported to the user of this session, if any.
+	 */
+	public Throwable getLastError() {
+		return lastError;
+	}
+
+	public void setLastError(Throwable lastError) {
+		this.lastError = lastError;
+	}
+
+	public ConcurrentMap<String, Object> getAttributes() {
+		return attributes;
+	}
+
+	@Override
+	public String toString() {
+		return "ShellSession[" + id + "]";
+	}
+
+	/**
+	 * Something to {@link #call(Action) call} within a session.
+	 */
+	@FunctionalInterface
+	public interface Action<T, E extends Exception> {
+
+		T call() throws E;
+	}
+
+	/**
+	 * The binding of a session to a thread, undone when closed.
+	 */
+	public interface Binding extends AutoCloseable {
+
+		@Override
+		void close();
+	}
+}
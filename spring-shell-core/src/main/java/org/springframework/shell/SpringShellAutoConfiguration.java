@@ -16,16 +16,25 @@
 
 package org.springframework.shell;
 
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.shell.daemon.ShellDaemon;
 import org.springframework.shell.jline.JLineShell;
+import org.springframework.shell.machine.MachineConfiguration;
 import org.springframework.shell.result.ResultHandlerConfig;
 
 /**
@@ -33,7 +42,7 @@ import org.springframework.shell.result.ResultHandlerConfig;
  */
 @Configuration
 @ComponentScan(basePackageClasses = ResultHandlerConfig.class)
-@Import(JLineShell.class)
+@Import({JLineShell.class, MachineConfiguration.class})
 public class SpringShellAutoConfiguration {
 
 	@Bean
@@ -42,7 +51,25 @@ public class SpringShellAutoConfiguration {
 		return new DefaultConversionService();
 	}
 
+	/**
+	 * Ranks completion proposals by past usage. Opt-in, as it writes statistics to the user's home directory.
+	 */
+	@Bean
+	@ConditionalOnMissingBean(UsageStatistics.class)
+	@ConditionalOnProperty(prefix = "spring.shell.usage", name = "enabled")
+	public UsageStatistics usageStatistics(
+			@Value("${spring.shell.usage.file:" + UsageStatistics.DEFAULT_FILE + "}") String file,
+			@Value("${spring.shell.usage.half-life:" + UsageStatistics.DEFAULT_HALF_LIFE + "}") long halfLife,
+			@Value("${spring.shell.usage.maximum-size:" + UsageStatistics.DEFAULT_MAXIMUM_SIZE + "}") int maximumSize) {
+		return new UsageStatistics(file, halfLife, maximumSize);
+	}
+
+	/**
+	 * Runs the shell on the terminal the process is attached to. May be disabled for services that only accept
+	 * remote sessions.
+	 */
 	@Bean
+	@ConditionalOnProperty(prefix = "spring.shell.interactive", name = "enabled", matchIfMissing = true)
 	public ApplicationRunner applicationRunner(Shell shell) {
 		return new ApplicationRunner() {
 			@Override
@@ -52,4 +79,18 @@ public class SpringShellAutoConfiguration {
 		};
 	}
 
+	/**
+	 * Keeps the shell resident for {@link org.springframework.shell.daemon.DaemonClient}, exiting the process once idle.
+	 */
+	@Bean
+	@ConditionalOnProperty(prefix = "spring.shell.daemon", name = "enabled")
+	public ShellDaemon shellDaemon(Shell shell, @Qualifier("main") ResultHandler<Object> resultHandler,
+			ConfigurableApplicationContext applicationContext,
+			@Value("${spring.shell.daemon.file:" + ShellDaemon.DEFAULT_FILE + "}") String file,
+			@Value("${spring.shell.daemon.idle-timeout:" + ShellDaemon.DEFAULT_IDLE_TIMEOUT + "}") long idleTimeout,
+			@Value("${spring.shell.daemon.max-connections:" + ShellDaemon.DEFAULT_MAX_CONNECTIONS + "}") int maxConnections) {
+		return new ShellDaemon(shell, resultHandler, Paths.get(file), idleTimeout, maxConnections,
+			() -> System.exit(SpringApplication.exit(applicationContext)));
+	}
+
 }
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.core.MethodParameter;
+
+/**
+ * Keeps track of how often and how recently things (commands, option values, <em>etc.</em>) have been used, so that
+ * completion proposals can be ranked accordingly.
+ *
+ * <p>Each use adds 1 to a score that halves every {@literal halfLife} milliseconds. Scores are grouped by category
+ * (<em>e.g.</em> one category for command names, one per option for its values) and persisted to a compact binary file
+ * between sessions. That file is only read the first time statistics are needed, not at startup.</p>
+ *
+ * <p>Uses are recorded in memory, and written in batches by a background thread shortly after they happen, as well as
+ * when statistics are {@linkplain #close() closed}. Each write merges the uses recorded since the previous one into
+ * what the file holds at that time, under a file lock, so that several shells sharing the file don't lose each other's
+ * updates.</p>
+ *
+ * <p>Statistics are best effort: failure to read or write the file is silently ignored.</p>
+ *
+ * @author Eric Bottard
+ */
+public class UsageStatistics {
+
+	/**
+	 * The default location of the statistics file, as a placeholder to be resolved against system properties.
+	 */
+	public static final String DEFAULT_FILE = "${user.home}/.spring-shell/usage.bin";
+
+	/**
+	 * 30 days.
+	 */
+	public static final long DEFAULT_HALF_LIFE = 30L * 24 * 60 * 60 * 1000;
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+	/**
+	 * Items longer than that are not recorded.
+	 */
+	public static final int MAXIMUM_ITEM_LENGTH = 256;
+
+	/**
+	 * How long (in milliseconds) to wait for more uses before writing the first unsaved one to disk.
+	 */
+	private static final long SAVE_DELAY = 1000L;
+
+	/**
+	 * Scores below that are considered worthless and not persisted.
+	 */
+	private static final double MINIMUM_SCORE = 0.01d;
+
+	private static final int MAGIC = 0x53535553;
+
+	private static final int VERSION = 1;
+
+	private final Path file;
+
+	private final long halfLife;
+
+	private final int maximumSize;
+
+	private final ScheduledExecutorService saver;
+
+	private Map<String, Map<String, Usage>> usages;
+
+	/**
+	 * The uses recorded since statistics were last written to disk.
+	 */
+	private Map<String, Map<String, Usage>> unsaved = new HashMap<>();
+
+	private boolean saveScheduled;
+
+	/**
+	 * @param file the file to persist statistics to, or {@literal null} to keep them in memory only
+	 * @param halfLife the time (in milliseconds) it takes for the score of an unused item to be divided by two
+	 * @param maximumSize the maximum number of items to persist, least used items being discarded first
+	 */
+	public UsageStatistics(Path file, long halfLife, int maximumSize) {
+		this.file = file;
+		this.halfLife = halfLife;
+		this.maximumSize = maximumSize;
+		this.saver = file != null ? Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "shell-usage-statistics");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
+	}
+
+	public UsageStatistics(String file, long halfLife, int maximumSize) {
+		this(file.isEmpty() ? null : Paths.get(file), halfLife, maximumSize);
+	}
+
+	/**
+	 * Return the category for the values of the given parameter.
+	 */
+	public static String categoryFor(MethodParameter parameter) {
+		Method method = parameter.getMethod();
+		return method.getDeclaringClass().getName() + "#" + method.getName() + "#" + parameter.getParameterIndex();
+	}
+
+	/**
+	 * Record that the given item of the given category has just been used. Items longer than
+	 * {@value #MAXIMUM_ITEM_LENGTH} characters are ignored.
+	 */
+	public void record(String category, String item) {
+		if (item.length() > MAXIMUM_ITEM_LENGTH) {
+			return;
+		}
+		record(category, item, System.currentTimeMillis());
+	}
+
+	synchronized void record(String category, String item, long now) {
+		add(usages(), category, item, new Usage(1d, now));
+		if (saver == null) {
+			if (size(usages) > 2 * maximumSize) {
+				usages = prune(usages, now);
+			}
+			return;
+		}
+		add(unsaved, category, item, new Usage(1d, now));
+		if (!saveScheduled) {
+			saveScheduled = true;
+			try {
+				saver.schedule(this::save, SAVE_DELAY, TimeUnit.MILLISECONDS);
+			}
+			catch (RejectedExecutionException e) {
+				// Closed, uses are kept in memory only
+			}
+		}
+	}
+
+	/**
+	 * Return the current score of the given item, 0 if it has never been used.
+	 */
+	public double score(String category, String item) {
+		return score(category, item, System.currentTimeMillis());
+	}
+
+	synchronized double score(String category, String item, long now) {
+		Usage usage = usages().getOrDefault(category, Collections.emptyMap()).get(item);
+		return usage != null ? usage.scoreAt(now, halfLife) : 0d;
+	}
+
+	/**
+	 * Return the items of the given category that start with the given prefix, most used first.
+	 */
+	public synchronized List<String> mostUsed(String category, String prefix, int limit) {
+		long now = System.currentTimeMillis();
+		Map<String, Usage> items = usages().getOrDefault(category, Collections.emptyMap());
+		return items.entrySet().stream()
+			.filter(e -> e.getKey().startsWith(prefix))
+			.sorted(Comparator.comparingDouble((Map.Entry<String, Usage> e) -> e.getValue().scoreAt(now, halfLife)).reversed())
+			.limit(limit)
+			.map(Map.Entry::getKey)
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Return the given elements, most used first. Elements that have the same score, which includes those that have
+	 * never been used, keep their relative order.
+	 * @param key how to compute the item name of an element
+	 */
+	public synchronized <T> List<T> rank(String category, List<T> elements, Function<T, String> key) {
+		Map<String, Usage> items = usages().get(category);
+		if (items == null || items.isEmpty() || elements.size() < 2) {
+			return elements;
+		}
+		long now = System.currentTimeMillis();
+		Map<T, Double> scores = new HashMap<>();
+		for (T element : elements) {
+			Usage usage = items.get(key.apply(element));
+			scores.put(element, usage != null ? usage.scoreAt(now, halfLife) : 0d);
+		}
+		List<T> result = new ArrayList<>(elements);
+		result.sort(Comparator.comparingDouble((T e) -> scores.get(e)).reversed());
+		return result;
+	}
+
+	/**
+	 * Write the uses that were not saved yet to disk, then stop the background thread.
+	 */
+	public void close() {
+		if (saver != null) {
+			saver.shutdown();
+			save();
+		}
+	}
+
+	private Map<String, Map<String, Usage>> usages() {
+		if (usages == null) {
+			usages = load();
+		}
+		return usages;
+	}
+
+	/**
+	 * Merge the uses recorded since the last call into the file, and pick up the uses other shells wrote to it in the
+	 * meantime.
+	 */
+	private void save() {
+		Map<String, Map<String, Usage>> uses;
+		synchronized (this) {
+			uses = unsaved;
+			unsaved = new HashMap<>();
+			saveScheduled = false;
+		}
+		if (uses.isEmpty()) {
+			return;
+		}
+		// As of the latest use, so that pruning does not depend on how late the write happens
+		long now = uses.values().stream().flatMap(items -> items.values().stream()).mapToLong(u -> u.lastUsed).max().getAsLong();
+		Map<String, Map<String, Usage>> merged;
+		// File locks are held on behalf of the whole JVM, so several threads can't lock the same file
+		synchronized (UsageStatistics.class) {
+			try {
+				if (file.getParent() != null) {
+					Files.createDirectories(file.getParent());
+				}
+				try (FileChannel lock = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+						StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+					// Released when the channel is closed
+					lock.lock();
+					Map<String, Map<String, Usage>> stored = load();
+					uses.forEach((category, items) -> items.forEach((item, usage) -> add(stored, category, item, usage)));
+					merged = prune(stored, now);
+					write(merged);
+				}
+			}
+			catch (IOException e) {
+				// Statistics are a nicety, don't get in the way of the user
+				return;
+			}
+		}
+		synchronized (this) {
+			// Uses recorded while writing are already part of the previous in-memory statistics
+			Map<String, Map<String, Usage>> current = merged;
+			unsaved.forEach((category, items) -> items.forEach((item, usage) -> add(current, category, item, usage)));
+			usages = current;
+		}
+	}
+
+	private Map<String, Map<String, Usage>> load() {
+		Map<String, Map<String, Usage>> result = new HashMap<>();
+		if (file == null) {
+			return result;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+				return result;
+			}
+			for (int c = in.readInt(); c > 0; c--) {
+				String category = in.readUTF();
+				Map<String, Usage> items = new HashMap<>();
+				for (int i = in.readInt(); i > 0; i--) {
+					items.put(in.readUTF(), new Usage(in.readFloat(), in.readLong()));
+				}
+				result.put(category, items);
+			}
+		}
+		catch (NoSuchFileException e) {
+			// Nothing recorded yet
+		}
+		catch (IOException e) {
+			// Corrupt or unreadable file, start afresh
+			result.clear();
+		}
+		return result;
+	}
+
+	private void write(Map<String, Map<String, Usage>> usages) throws IOException {
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(usages.size());
+			for (Map.Entry<String, Map<String, Usage>> category : usages.entrySet()) {
+				out.writeUTF(category.getKey());
+				out.writeInt(category.getValue().size());
+				for (Map.Entry<String, Usage> item : category.getValue().entrySet()) {
+					out.writeUTF(item.getKey());
+					out.writeFloat((float) item.getValue().score);
+					out.writeLong(item.getValue().lastUsed);
+				}
+			}
+		}
+		try {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Add the given usage to the one already known for an item, if any.
+	 */
+	private void add(Map<String, Map<String, Usage>> usages, String category, String item, Usage usage) {
+		usages.computeIfAbsent(category, c -> new HashMap<>()).merge(item, usage, (a, b) -> a.plus(b, halfLife));
+	}
+
+	private static int size(Map<String, Map<String, Usage>> usages) {
+		return usages.values().stream().mapToInt(Map::size).sum();
+	}
+
+	/**
+	 * Return the given statistics, without worthless items and the least used ones if there are too many.
+	 */
+	private Map<String, Map<String, Usage>> prune(Map<String, Map<String, Usage>> usages, long now) {
+		List<Item> items = new ArrayList<>();
+		usages.forEach((category, map) -> map.forEach((item, usage) -> items.add(new Item(category, item, usage.scoreAt(now, halfLife)))));
+		items.removeIf(i -> i.score < MINIMUM_SCORE);
+		if (items.size() > maximumSize) {
+			items.sort(Comparator.comparingDouble((Item i) -> i.score).reversed());
+			items.subList(maximumSize, items.size()).clear();
+		}
+		if (items.size() == size(usages)) {
+			return usages;
+		}
+		Map<String, Map<String, Usage>> kept = new HashMap<>();
+		items.forEach(i -> kept.computeIfAbsent(i.category, c -> new HashMap<>()).put(i.item, usages.get(i.category).get(i.item)));
+		return kept;
+	}
+
+	private static class Usage {
+
+		/**
+		 * The score, as of {@link #lastUsed}.
+		 */
+		private final double score;
+
+		private final long lastUsed;
+
+		private Usage(double score, long lastUsed) {
+			this.score = score;
+			this.lastUsed = lastUsed;
+		}
+
+		private double scoreAt(long now, long halfLife) {
+			return score * Math.pow(0.5d, (double) Math.max(0L, now - lastUsed) / halfLife);
+		}
+
+		/**
+		 * Return the usage that combines this one and the given one, as of the most recent of both.
+		 */
+		private Usage plus(Usage other, long halfLife) {
+			long last = Math.max(lastUsed, other.lastUsed);
+			return new Usage(scoreAt(last, halfLife) + other.scoreAt(last, halfLife), last);
+		}
+	}
+
+	private static class Item {
+
+		private final String category;
+
+		private final String item;
+
+		private final double score;
+
+		private Item(String category, String item, double score) {
+			this.category = category;
+			this.item = item;
+			this.score = score;
+		}
+	}
+}
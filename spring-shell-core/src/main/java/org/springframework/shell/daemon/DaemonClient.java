@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.shell.ServerAdvertisement;
+
+/**
+ * A launcher that runs a command in a {@link ShellDaemon}, starting one first if needed. Arguments form the command
+ * to run, standard input and output are forwarded, and the process exits with the status of the command.
+ *
+ * <p>This class only depends on the JDK (and {@link ServerAdvertisement}, which does too), so that the JVM it runs in
+ * starts quickly. Use it as the main class of scripts, setting the {@value #MAIN_CLASS_PROPERTY} system property to
+ * the main class of the application, so that the daemon can be started on first use, <em>e.g.</em></p>
+ * <pre>
+ * java -cp app.jar -Dspring.shell.daemon.main-class=com.example.App org.springframework.shell.daemon.DaemonClient help
+ * </pre>
+ *
+ * @author Eric Bottard
+ */
+public final class DaemonClient {
+
+	/**
+	 * The system property telling where the daemon advertises itself, which must match the
+	 * {@literal spring.shell.daemon.file} property of the daemon.
+	 */
+	public static final String FILE_PROPERTY = "spring.shell.daemon.file";
+
+	/**
+	 * The system property giving the main class to start the daemon with, if it is not running.
+	 */
+	public static final String MAIN_CLASS_PROPERTY = "spring.shell.daemon.main-class";
+
+	private static final long STARTUP_TIMEOUT = 60_000;
+
+	private static final long STARTUP_POLL_INTERVAL = 50;
+
+	/**
+	 * Serializes daemon startup between threads of this JVM, which a {@link FileLock} doesn't.
+	 */
+	private static final Object STARTUP_LOCK = new Object();
+
+	private DaemonClient() {
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		Path file = DaemonProtocol.resolve(System.getProperty(FILE_PROPERTY, DaemonProtocol.DEFAULT_FILE));
+		OutputStream stdout = new FileOutputStream(FileDescriptor.out);
+		OutputStream stderr = new FileOutputStream(FileDescriptor.err);
+		int status;
+		try {
+			Socket socket = connectOrStart(file, DaemonClient::startDaemon);
+			status = run(socket, args, System.in, stdout, stderr);
+		}
+		catch (IOException e) {
+			System.err.println("Could not run command in the shell daemon: " + e.getMessage());
+			status = 1;
+		}
+		System.exit(status);
+	}
+
+	/**
+	 * Connect to the daemon advertised in the given file, returning {@literal null} if there is none running.
+	 */
+	static Socket connect(Path file) throws IOException {
+		return ServerAdvertisement.connect(file);
+	}
+
+	/**
+	 * Connect to the daemon advertised in the given file, using the given starter first if it is not running. Clients
+	 * hold a lock on a sibling file while checking and starting, so that scripts run in parallel share the daemon
+	 * the first of them starts, rather than each starting their own.
+	 */
+	static Socket connectOrStart(Path file, Starter starter) throws IOException, InterruptedException {
+		Socket socket = connect(file);
+		if (socket != null) {
+			return socket;
+		}
+		Path lock = Paths.get(file + ".lock");
+		Files.createDirectories(lock.toAbsolutePath().getParent());
+		synchronized (STARTUP_LOCK) {
+			try (FileChannel channel = FileChannel.open(lock, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					FileLock ignored = channel.lock()) {
+				// Another client may have started it while this one was waiting for the lock
+				socket = connect(file);
+				return socket != null ? socket : starter.start(file);
+			}
+		}
+	}
+
+	private static Socket startDaemon(Path file) throws IOException, InterruptedException {
+		String mainClass = System.getProperty(MAIN_CLASS_PROPERTY);
+		if (mainClass == null) {
+			throw new IOException("it is not running, and " + MAIN_CLASS_PROPERTY + " is not set to start it");
+		}
+		Path log = Paths.get(file + ".log");
+		Files.createDirectories(log.toAbsolutePath().getParent());
+		Process process = new ProcessBuilder(
+				Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+				"-cp", System.getProperty("java.class.path"),
+				mainClass,
+				"--spring.shell.daemon.enabled=true",
+				"--spring.shell.daemon.file=" + file,
+				"--spring.shell.interactive.enabled=false")
+			.redirectErrorStream(true)
+			.redirectOutput(log.toFile())
+			.start();
+		process.getOutputStream().close();
+
+		long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+		while (System.currentTimeMillis() < deadline) {
+			if (!process.isAlive()) {
+				throw new IOException("it failed to start, see " + log);
+			}
+			Socket socket = connect(file);
+			if (socket != null) {
+				return socket;
+			}
+			Thread.sleep(STARTUP_POLL_INTERVAL);
+		}
+		throw new IOException("it did not start within " + STARTUP_TIMEOUT / 1000 + "s, see " + log);
+	}
+
+	/**
+	 * Run the command formed by the given arguments, over a connection to the daemon, and return its exit status.
+	 */
+	static int run(Socket socket, String[] args, InputStream stdin, OutputStream stdout, OutputStream stderr)
+			throws IOException {
+		try (Socket s = socket) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+			DaemonProtocol.writeString(out, terminalType());
+			out.writeInt(args.length);
+			for (String arg : args) {
+				DaemonProtocol.writeString(out, arg);
+			}
+			out.flush();
+
+			Thread pump = new Thread(() -> forward(stdin, out), "stdin");
+			// The command may well never read its input, so don't wait for it to end
+			pump.setDaemon(true);
+			pump.start();
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			byte[] buffer = new byte[8192];
+			while (true) {
+				byte channel;
+				try {
+					channel = in.readByte();
+				}
+				catch (IOException e) {
+					throw new IOException("connection to the daemon was lost", e);
+				}
+				if (channel == DaemonProtocol.EXIT) {
+					return in.readInt();
+				}
+				OutputStream target = channel == DaemonProtocol.STDERR ? stderr : stdout;
+				for (int remaining = in.readInt(); remaining > 0; ) {
+					int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+					if (read < 0) {
+						throw new IOException("connection to the daemon was lost");
+					}
+					target.write(buffer, 0, read);
+					remaining -= read;
+				}
+				target.flush();
+			}
+		}
+	}
+
+	private static void forward(InputStream stdin, DataOutputStream out) {
+		byte[] buffer = new byte[8192];
+		try {
+			for (int read = stdin.read(buffer); read >= 0; read = stdin.read(buffer)) {
+				if (read > 0) {
+					out.writeInt(read);
+					out.write(buffer, 0, read);
+					out.flush();
+				}
+			}
+			out.writeInt(0);
+			out.flush();
+		}
+		catch (IOException e) {
+			// The command is over
+		}
+	}
+
+	/**
+	 * Starts the daemon advertised in a given file, and returns a connection to it once it is up.
+	 */
+	@FunctionalInterface
+	interface Starter {
+
+		Socket start(Path file) throws IOException, InterruptedException;
+	}
+
+	/**
+	 * Only let the daemon emit escape sequences if they end up on a terminal.
+	 */
+	private static String terminalType() {
+		String type = System.getenv("TERM");
+		return System.console() != null && type != null ? type : "dumb";
+	}
+}
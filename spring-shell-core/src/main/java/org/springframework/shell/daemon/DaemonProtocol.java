@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The wire format spoken between {@link DaemonClient} and {@link ShellDaemon}. Only depends on the JDK, so that the
+ * client stays quick to start.
+ *
+ * <p>The daemon listens on the loopback interface and advertises its port, together with a secret token, in a file
+ * only readable by its owner (see {@link org.springframework.shell.ServerAdvertisement}). A client then sends:</p>
+ * <ol>
+ *     <li>the token, followed by a newline,</li>
+ *     <li>the terminal type to emulate,</li>
+ *     <li>the number of arguments, followed by each argument,</li>
+ *     <li>chunks of standard input, each preceded by its length, a length of 0 standing for the end of input.</li>
+ * </ol>
+ * <p>The daemon answers with chunks of standard output and standard error, each preceded by its channel and length,
+ * and finally with the exit status. Strings are sent as their length in UTF-8, followed by their bytes.</p>
+ *
+ * @author Eric Bottard
+ */
+final class DaemonProtocol {
+
+	static final String DEFAULT_FILE = "${user.home}/.spring-shell/daemon";
+
+	static final byte STDOUT = 1;
+
+	static final byte STDERR = 2;
+
+	static final byte EXIT = 3;
+
+	static final int MAX_ARGUMENTS = 64 * 1024;
+
+	static final int MAX_STRING_LENGTH = 1024 * 1024;
+
+	private DaemonProtocol() {
+	}
+
+	static Path resolve(String file) {
+		return Paths.get(file.replace("${user.home}", System.getProperty("user.home")));
+	}
+
+	static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > MAX_STRING_LENGTH) {
+			throw new IOException("Invalid string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a stream sent as length-prefixed chunks, up to the empty chunk.
+	 */
+	static class ChunkedInputStream extends InputStream {
+
+		private final DataInputStream in;
+
+		private int remaining;
+
+		private boolean eof;
+
+		ChunkedInputStream(DataInputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (remaining == 0) {
+				if (eof) {
+					return -1;
+				}
+				remaining = in.readInt();
+				eof = remaining == 0;
+			}
+			int read = in.read(b, off, Math.min(len, remaining));
+			if (read == -1) {
+				throw new IOException("Connection closed in the middle of a chunk");
+			}
+			remaining -= read;
+			return read;
+		}
+
+		@Override
+		public synchronized int available() throws IOException {
+			return Math.min(remaining, in.available());
+		}
+	}
+
+	/**
+	 * Writes data as chunks of the given channel, sharing the underlying stream with other channels.
+	 */
+	static class ChannelOutputStream extends OutputStream {
+
+		private final DataOutputStream out;
+
+		private final byte channel;
+
+		ChannelOutputStream(DataOutputStream out, byte channel) {
+			this.out = out;
+			this.channel = channel;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return;
+			}
+			synchronized (out) {
+				out.writeByte(channel);
+				out.writeInt(len);
+				out.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (out) {
+				out.flush();
+			}
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOError;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.jline.terminal.Size;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+
+import org.springframework.shell.ExecutionResult;
+import org.springframework.shell.ExitRequest;
+import org.springframework.shell.ResultHandler;
+import org.springframework.shell.ServerAdvertisement;
+import org.springframework.shell.Shell;
+import org.springframework.shell.ShellSession;
+
+/**
+ * Keeps the shell resident, so that scripts can invoke its commands many times without paying for startup each time.
+ *
+ * <p>Each invocation, made through {@link DaemonClient}, runs the command formed by the arguments of the client within
+ * a {@link ShellSession} of its own, with standard input and output forwarded from and to the client. Errors are
+ * written to standard error and set the exit status to 1, unless the command asks to exit with another status.</p>
+ *
+ * <p>The daemon listens on the loopback interface, and advertises itself with a {@link ServerAdvertisement}, so that
+ * only clients presenting its token may invoke commands. Connections past a maximum are closed right away. It evicts
+ * itself after having been idle for some time.</p>
+ *
+ * @author Eric Bottard
+ */
+public class ShellDaemon {
+
+	public static final String DEFAULT_FILE = DaemonProtocol.DEFAULT_FILE;
+
+	public static final long DEFAULT_IDLE_TIMEOUT = 30L * 60 * 1000;
+
+	public static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+	/**
+	 * How often (in milliseconds) to check for idleness, at most, so that eviction happens soon after the timeout.
+	 */
+	private static final int IDLE_CHECK_INTERVAL = 1_000;
+
+	/**
+	 * How long (in milliseconds) clients have to send the command to run, once they have presented the token.
+	 */
+	private static final int REQUEST_TIMEOUT = 5_000;
+
+	private static final Size DEFAULT_SIZE = new Size(80, 24);
+
+	private final Shell shell;
+
+	private final ResultHandler<Object> resultHandler;
+
+	private final Path file;
+
+	private final long idleTimeout;
+
+	private final int maxConnections;
+
+	private final Runnable eviction;
+
+	/**
+	 * Connections that have not presented their token yet, which don't count as activity.
+	 */
+	private final Set<Socket> handshakes = ConcurrentHashMap.newKeySet();
+
+	private final Set<Socket> invocations = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger invocationCount = new AtomicInteger();
+
+	private volatile long lastActivity;
+
+	private volatile ServerSocket serverSocket;
+
+	private volatile ServerAdvertisement advertisement;
+
+	/**
+	 * @param shell the shell to run commands with
+	 * @param resultHandler the handler to pass results to, on the thread of the invocation that produced them
+	 * @param file where to advertise the port and token of this daemon
+	 * @param idleTimeout the number of milliseconds without any invocation after which to stop, 0 to never stop
+	 * @param maxConnections the maximum number of connections open at the same time, further ones being closed
+	 * @param eviction what to do once stopped for being idle, <em>e.g.</em> exiting the process
+	 */
+	public ShellDaemon(Shell shell, ResultHandler<Object> resultHandler, Path file, long idleTimeout,
+			int maxConnections, Runnable eviction) {
+		this.shell = shell;
+		this.resultHandler = resultHandler;
+		this.file = file;
+		this.idleTimeout = idleTimeout;
+		this.maxConnections = maxConnections;
+		this.eviction = eviction;
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		ServerSocket socket = new ServerSocket();
+		socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		if (idleTimeout > 0) {
+			// Wake up regularly to check for idleness
+			socket.setSoTimeout((int) Math.min(idleTimeout, IDLE_CHECK_INTERVAL));
+		}
+		serverSocket = socket;
+		lastActivity = System.currentTimeMillis();
+		advertisement = ServerAdvertisement.publish(file, socket.getLocalPort());
+		// Not a daemon thread, so that the process keeps running until evicted
+		Thread acceptor = new Thread(this::accept, "shell-daemon");
+		acceptor.start();
+	}
+
+	/**
+	 * Stop accepting invocations, abort running ones and withdraw the advertisement of this daemon.
+	 */
+	@PreDestroy
+	public void stop() throws IOException {
+		ServerSocket socket = serverSocket;
+		if (socket != null) {
+			socket.close();
+		}
+		for (Socket handshake : handshakes) {
+			handshake.close();
+		}
+		for (Socket invocation : invocations) {
+			invocation.close();
+		}
+		ServerAdvertisement advertised = advertisement;
+		if (advertised != null) {
+			advertised.withdraw();
+		}
+	}
+
+	/**
+	 * Return the port actually listened on, or -1 if not started.
+	 */
+	public int getPort() {
+		ServerSocket socket = serverSocket;
+		return socket != null ? socket.getLocalPort() : -1;
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}
+			catch (SocketTimeoutException e) {
+				if (invocations.isEmpty() && System.currentTimeMillis() - lastActivity >= idleTimeout) {
+					evict();
+					return;
+				}
+				continue;
+			}
+			catch (IOException e) {
+				// Closed by stop(), or a connection that failed early
+				continue;
+			}
+			if (handshakes.size() + invocations.size() >= maxConnections) {
+				close(socket);
+				continue;
+			}
+			handshakes.add(socket);
+			Thread thread = new Thread(() -> serve(socket), "shell-invocation-" + invocationCount.incrementAndGet());
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void close(Socket socket) {
+		try {
+			socket.close();
+		}
+		catch (IOException e) {
+			// Nothing more to tell that client
+		}
+	}
+
+	private void evict() {
+		try {
+			stop();
+		}
+		catch (IOException e) {
+			// Stopping anyway
+		}
+		eviction.run();
+	}
+
+	private void serve(Socket socket) {
+		try (Socket s = socket) {
+			// Read straight from the socket, so that nothing past the token gets buffered
+			if (!advertisement.authenticate(s)) {
+				return;
+			}
+			invocations.add(s);
+			handshakes.remove(s);
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+			s.setSoTimeout(REQUEST_TIMEOUT);
+			String type = DaemonProtocol.readString(in);
+			int argc = in.readInt();
+			if (argc < 0 || argc > DaemonProtocol.MAX_ARGUMENTS) {
+				return;
+			}
+			List<String> words = new ArrayList<>(argc);
+			for (int i = 0; i < argc; i++) {
+				words.add(DaemonProtocol.readString(in));
+			}
+			// Commands may wait for standard input for as long as they like
+			s.setSoTimeout(0);
+
+			int status = invoke(words, type, new DaemonProtocol.ChunkedInputStream(in),
+				new DaemonProtocol.ChannelOutputStream(out, DaemonProtocol.STDOUT),
+				new DaemonProtocol.ChannelOutputStream(out, DaemonProtocol.STDERR));
+			synchronized (out) {
+				out.writeByte(DaemonProtocol.EXIT);
+				out.writeInt(status);
+				out.flush();
+			}
+		}
+		catch (IOException | IOError | RuntimeException e) {
+			// Client went away, or the daemon is stopping
+		}
+		finally {
+			handshakes.remove(socket);
+			if (invocations.remove(socket)) {
+				lastActivity = System.currentTimeMillis();
+			}
+		}
+	}
+
+	private int invoke(List<String> words, String type, InputStream stdin, OutputStream stdout, OutputStream stderr)
+			throws IOException {
+		String name = Thread.currentThread().getName();
+		try (Terminal out = terminal(name, type, stdin, stdout);
+				Terminal err = terminal(name, type, new ByteArrayInputStream(new byte[0]), stderr)) {
+			ShellSession session = new ShellSession(name, out, null);
+			ShellSession errors = new ShellSession(name, err, null);
+			ExecutionResult execution = session.call(() -> shell.execute(words));
+			if (execution.getException() instanceof ExitRequest) {
+				return ((ExitRequest) execution.getException()).status();
+			}
+			if (execution.isSuccess()) {
+				session.call(() -> {
+					resultHandler.handleResult(execution.getValue());
+					return null;
+				});
+				out.flush();
+				return 0;
+			}
+			errors.call(() -> {
+				resultHandler.handleResult(execution.getException());
+				return null;
+			});
+			err.flush();
+			return 1;
+		}
+	}
+
+	private Terminal terminal(String name, String type, InputStream in, OutputStream out) throws IOException {
+		// Commands only see streams, so there is nothing to emulate
+		Terminal terminal = new DumbTerminal(name, type, in, out, StandardCharsets.UTF_8.name());
+		terminal.setSize(DEFAULT_SIZE);
+		return terminal;
+	}
+}
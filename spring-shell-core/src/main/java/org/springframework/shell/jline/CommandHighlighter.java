@@ -0,0 +1,359 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.jline.reader.Highlighter;
+import org.jline.reader.LineReader;
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser;
+import org.jline.reader.SyntaxError;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStringBuilder;
+import org.jline.utils.AttributedStyle;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.shell.MethodTarget;
+import org.springframework.shell.ParameterDescription;
+import org.springframework.shell.ParameterResolver;
+import org.springframework.shell.Shell;
+import org.springframework.shell.Utils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Highlights the command name at the start of the buffer in bold, or the whole buffer in red if it does not start
+ * with a known command.
+ *
+ * <p>Arguments are highlighted too, based on the {@link ParameterDescription descriptions} of the command parameters:
+ * known keys are shown in cyan, while unknown keys and values that can't be converted to the parameter type are
+ * shown in red. Descriptions are gathered once per command, and only values of simple types (numbers, booleans,
+ * enums, <em>etc.</em>) are checked.</p>
+ *
+ * <p>As JLine asks for highlighting on every redraw, which may happen several times per keystroke, the command is
+ * located using the index maintained by the {@link Shell}, words are located by the (incremental)
+ * {@link ExtendedDefaultParser} and the last result is remembered. Arguments are highlighted within a
+ * {@link #setTimeBudget(long) time budget}, past which the rest of the buffer is left as is.</p>
+ *
+ * @author Eric Bottard
+ */
+public class CommandHighlighter implements Highlighter {
+
+	/**
+	 * 1 millisecond, in nanoseconds.
+	 */
+	public static final long DEFAULT_TIME_BUDGET = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final AttributedStyle UNKNOWN_COMMAND = AttributedStyle.DEFAULT.foreground(AttributedStyle.RED);
+
+	private static final AttributedStyle KEY = AttributedStyle.DEFAULT.foreground(AttributedStyle.CYAN);
+
+	private static final AttributedStyle UNKNOWN_KEY = AttributedStyle.DEFAULT.foreground(AttributedStyle.RED);
+
+	private static final AttributedStyle INVALID_VALUE = AttributedStyle.DEFAULT.foreground(AttributedStyle.RED).underline();
+
+	private Shell shell;
+
+	private List<ParameterResolver> parameterResolvers = Collections.emptyList();
+
+	private ConversionService conversionService;
+
+	private long timeBudget = DEFAULT_TIME_BUDGET;
+
+	private final Map<MethodTarget, Schema> schemas = new ConcurrentReferenceHashMap<>();
+
+	private volatile Highlight last;
+
+	public void setShell(Shell shell) {
+		this.shell = shell;
+	}
+
+	/**
+	 * Lazily injected, as resolvers may depend on the shell, which depends on this.
+	 */
+	@Autowired(required = false) @Lazy
+	public void setParameterResolvers(List<ParameterResolver> parameterResolvers) {
+		this.parameterResolvers = parameterResolvers;
+	}
+
+	/**
+	 * Set the conversion service used to check values. If not set, values are not checked.
+	 */
+	@Autowired(required = false)
+	public void setConversionService(ConversionService conversionService) {
+		this.conversionService = conversionService;
+	}
+
+	/**
+	 * Set the time (in nanoseconds) allotted to highlighting arguments, for each redraw.
+	 */
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	@Override
+	public AttributedString highlight(LineReader reader, String buffer) {
+		Map<String, MethodTarget> commands = shell.listCommands();
+		Highlight previous = last;
+		AttributedString result;
+		if (previous != null && previous.commands == commands && previous.buffer.equals(buffer)) {
+			result = previous.result;
+		}
+		else {
+			result = doHighlight(reader != null ? reader.getParser() : null, buffer, commands);
+			last = new Highlight(buffer, commands, result);
+			if (reader != null && shell.isSpeculativeResolution()) {
+				speculate(reader, buffer);
+			}
+		}
+		return result;
+	}
+
+	private AttributedString doHighlight(Parser parser, String buffer, Map<String, MethodTarget> commands) {
+		long deadline = System.nanoTime() + timeBudget;
+		String command = shell.findLongestCommand(buffer);
+		if (command == null) {
+			return new AttributedString(buffer, UNKNOWN_COMMAND);
+		}
+		AttributedStringBuilder result = new AttributedStringBuilder(buffer.length())
+			.style(AttributedStyle.BOLD).append(buffer, 0, command.length())
+			.style(AttributedStyle.DEFAULT);
+		int done = command.length();
+		ExtendedDefaultParser.ExtendedArgumentList line = parse(parser, buffer);
+		MethodTarget methodTarget = commands.get(command);
+		if (line != null && methodTarget != null) {
+			Schema schema = schemas.computeIfAbsent(methodTarget, this::schemaFor);
+			if (schema.bindable) {
+				done = highlightArguments(result, line, command.split(" ").length, schema, done, deadline);
+			}
+		}
+		return result.style(AttributedStyle.DEFAULT).append(buffer, done, buffer.length()).toAttributedString();
+	}
+
+	/**
+	 * Let the shell prepare arguments, if the buffer forms a complete line.
+	 */
+	private void speculate(LineReader reader, String buffer) {
+		try {
+			ParsedLine line = reader.getParser().parse(buffer, buffer.length(), Parser.ParseContext.ACCEPT_LINE);
+			shell.speculate(JLineShell.sanitizeInput(line.words()));
+		}
+		catch (SyntaxError e) {
+			// Not complete yet
+		}
+	}
+
+	private ExtendedDefaultParser.ExtendedArgumentList parse(Parser parser, String buffer) {
+		if (!(parser instanceof ExtendedDefaultParser)) {
+			return null;
+		}
+		try {
+			ParsedLine parsed = parser.parse(buffer, buffer.length(), Parser.ParseContext.COMPLETE);
+			return parsed instanceof ExtendedDefaultParser.ExtendedArgumentList ? (ExtendedDefaultParser.ExtendedArgumentList) parsed : null;
+		}
+		catch (SyntaxError e) {
+			// Line continuation, only highlight the command
+			return null;
+		}
+	}
+
+	/**
+	 * Append the words of the line that come after the command, binding them to parameters the way most resolvers do:
+	 * first by key, and then by position for the remaining ones.
+	 * @return the offset in the buffer up to which text has been appended
+	 */
+	private int highlightArguments(AttributedStringBuilder result, ExtendedDefaultParser.ExtendedArgumentList line,
+			int firstWord, Schema schema, int done, long deadline) {
+		String buffer = line.line();
+		Set<Slot> bound = new HashSet<>();
+		int positional = 0;
+		for (int i = firstWord; i < line.locatedWords(); ) {
+			if (System.nanoTime() > deadline) {
+				break;
+			}
+			String word = line.words().get(i);
+			Slot slot = schema.byKey.get(word);
+			if (slot == null && schema.isKeyLike(word)) {
+				boolean typing = i == line.locatedWords() - 1 && line.wordEnd(i) == buffer.length();
+				done = append(result, line, i, typing && schema.isKeyPrefix(word) ? AttributedStyle.DEFAULT : UNKNOWN_KEY, done);
+				i++;
+				continue;
+			}
+			if (slot != null) {
+				bound.add(slot);
+				done = append(result, line, i++, KEY, done);
+			}
+			else {
+				// Flags can't be set by position
+				while (positional < schema.slots.size()
+						&& (bound.contains(schema.slots.get(positional)) || schema.slots.get(positional).arity == 0)) {
+					positional++;
+				}
+				if (positional == schema.slots.size()) {
+					// Too many arguments, leave them as is
+					break;
+				}
+				slot = schema.slots.get(positional);
+				bound.add(slot);
+			}
+			for (int v = 0; i < line.locatedWords() && (slot.arity < 0 || v < slot.arity); v++, i++) {
+				String value = line.words().get(i);
+				if (slot.arity < 0 && (schema.byKey.containsKey(value) || schema.isKeyLike(value))) {
+					break;
+				}
+				done = append(result, line, i, isValid(slot, value) ? AttributedStyle.DEFAULT : INVALID_VALUE, done);
+			}
+		}
+		return done;
+	}
+
+	/**
+	 * Append the text between what has already been appended and the given word, then the word itself.
+	 */
+	private int append(AttributedStringBuilder result, ExtendedDefaultParser.ExtendedArgumentList line, int word,
+			AttributedStyle style, int done) {
+		int start = Math.max(done, line.wordStart(word));
+		int end = Math.max(start, line.wordEnd(word));
+		result.style(AttributedStyle.DEFAULT).append(line.line(), done, start);
+		result.style(style).append(line.line(), start, end);
+		return end;
+	}
+
+	private boolean isValid(Slot slot, String value) {
+		if (slot.checkedType == null || conversionService == null || value.isEmpty()) {
+			return true;
+		}
+		try {
+			conversionService.convert(value, slot.checkedType);
+			return true;
+		}
+		catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	private Schema schemaFor(MethodTarget methodTarget) {
+		List<ParameterDescription> descriptions = Utils.createMethodParameters(methodTarget.getMethod())
+			.flatMap(mp -> parameterResolvers.stream().filter(pr -> pr.supports(mp)).limit(1L).flatMap(pr -> pr.describe(mp)))
+			.collect(Collectors.toList());
+		return new Schema(descriptions);
+	}
+
+	/**
+	 * What the highlighter needs to know about the parameters of a command.
+	 */
+	private static class Schema {
+
+		private final List<Slot> slots = new ArrayList<>();
+
+		/**
+		 * Whether every parameter declares its arity. If not, words can't be reliably bound and are left as is.
+		 */
+		private final boolean bindable;
+
+		private final Map<String, Slot> byKey = new HashMap<>();
+
+		/**
+		 * The leading punctuation of keys, <em>e.g.</em> {@literal --}.
+		 */
+		private final Set<String> keyPrefixes = new HashSet<>();
+
+		private Schema(List<ParameterDescription> descriptions) {
+			bindable = descriptions.stream().allMatch(d -> d.arity().isPresent());
+			for (ParameterDescription description : descriptions) {
+				Slot slot = new Slot(description);
+				slots.add(slot);
+				for (String key : description.keys()) {
+					byKey.put(key, slot);
+					int p = 0;
+					while (p < key.length() && !Character.isLetterOrDigit(key.charAt(p))) {
+						p++;
+					}
+					if (p > 0) {
+						keyPrefixes.add(key.substring(0, p));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Return whether the given word looks like a key (as opposed to a value, even a negative number).
+		 */
+		private boolean isKeyLike(String word) {
+			for (String prefix : keyPrefixes) {
+				if (word.length() > prefix.length() && word.startsWith(prefix) && Character.isLetter(word.charAt(prefix.length()))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean isKeyPrefix(String word) {
+			return byKey.keySet().stream().anyMatch(k -> k.startsWith(word));
+		}
+	}
+
+	/**
+	 * A parameter (or part of a parameter) as described by its resolver.
+	 */
+	private static class Slot {
+
+		/**
+		 * The number of words this parameter consumes, or -1 if it consumes words up to the next key.
+		 */
+		private final int arity;
+
+		/**
+		 * The type values must be convertible to, when cheap enough to check.
+		 */
+		private final Class<?> checkedType;
+
+		private Slot(ParameterDescription description) {
+			int declared = description.arity().orElse(0);
+			this.arity = declared == ParameterDescription.ARITY_UNBOUNDED ? -1 : declared;
+			Class<?> type = description.parameter().getParameterType();
+			boolean simple = ClassUtils.isPrimitiveOrWrapper(type) || type.isEnum();
+			this.checkedType = arity == 1 && simple ? type : null;
+		}
+	}
+
+	private static class Highlight {
+
+		private final String buffer;
+
+		private final Map<String, MethodTarget> commands;
+
+		private final AttributedString result;
+
+		private Highlight(String buffer, Map<String, MethodTarget> commands, AttributedString result) {
+			this.buffer = buffer;
+			this.commands = commands;
+			this.result = result;
+		}
+	}
+}
@@ -16,8 +16,8 @@
 
 package org.springframework.shell.jline;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
@@ -32,6 +32,10 @@ import org.springframework.shell.CompletingParsedLine;
  * Shameful copy-paste of JLine's {@link org.jline.reader.impl.DefaultParser} which
  * creates {@link CompletingParsedLine}.
  *
+ * <p>Remembers the last line it parsed, so that parsing a line that only differs by its end (which is the case
+ * when the user is typing, or pressing TAB repeatedly) resumes tokenization at the first word that changed.
+ * Instances are meant to be used by a single {@link org.jline.reader.LineReader}.</p>
+ *
  * @author Original JLine author
  * @author Eric Bottard
  */
@@ -45,6 +49,11 @@ public class ExtendedDefaultParser implements Parser {
 
 	private boolean eofOnEscapedNewLine;
 
+	/**
+	 * The result of the last successful parse, used to skip re-tokenizing the words that did not change.
+	 */
+	private volatile ExtendedArgumentList lastParse;
+
 	public void setQuoteChars(final char[] chars) {
 		this.quoteChars = chars;
 	}
@@ -77,14 +86,45 @@ public class ExtendedDefaultParser implements Parser {
 		return eofOnEscapedNewLine;
 	}
 
+	/**
+	 * Split a whole line into words, honoring quotes and escapes as when it is typed at the prompt. Unlike
+	 * {@link #parse(String, int, ParseContext)}, this doesn't add an empty word for a cursor at the end of the line.
+	 */
+	public static List<String> splitWords(String line) {
+		List<String> words = new ArrayList<>(new ExtendedDefaultParser().parse(line, line.length(), ParseContext.ACCEPT_LINE).words());
+		// The word the cursor is in is only empty if added for the cursor alone
+		if (!words.isEmpty() && words.get(words.size() - 1).isEmpty()) {
+			words.remove(words.size() - 1);
+		}
+		return words;
+	}
+
 	public ParsedLine parse(final String line, final int cursor, ParseContext context) {
-		List<String> words = new LinkedList<>();
+		List<String> words = new ArrayList<>();
+		List<Integer> wordStarts = new ArrayList<>();
+		List<Integer> wordEnds = new ArrayList<>();
 		StringBuilder current = new StringBuilder();
 		int wordCursor = -1;
 		int wordIndex = -1;
 		int quoteStart = -1;
 
-		for (int i = 0; (line != null) && (i < line.length()); i++) {
+		int resumeAt = 0;
+		ExtendedArgumentList previous = lastParse;
+		if (previous != null && line != null) {
+			int resumeWord = previous.resumableWords(line, cursor);
+			if (resumeWord > 0) {
+				words.addAll(previous.words.subList(0, resumeWord));
+				wordStarts.addAll(previous.wordStarts.subList(0, resumeWord));
+				wordEnds.addAll(previous.wordEnds.subList(0, resumeWord));
+				resumeAt = previous.wordStarts.get(resumeWord);
+			}
+		}
+
+		for (int i = resumeAt; (line != null) && (i < line.length()); i++) {
+			// remember where each word starts, as tokenization can be resumed from there
+			if (quoteStart < 0 && current.length() == 0 && wordStarts.size() == words.size() && !isDelimiter(line, i)) {
+				wordStarts.add(i);
+			}
 			// once we reach the cursor, set the
 			// position of the selected index
 			if (i == cursor) {
@@ -103,6 +143,7 @@ public class ExtendedDefaultParser implements Parser {
 				if (line.charAt(quoteStart) == line.charAt(i) && !isEscaped(line, i)) {
 					// End the block; arg could be empty, but that's fine
 					words.add(current.toString());
+					wordEnds.add(i + 1);
 					current.setLength(0);
 					quoteStart = -1;
 				}
@@ -116,6 +157,7 @@ public class ExtendedDefaultParser implements Parser {
 				if (isDelimiter(line, i)) {
 					if (current.length() > 0) {
 						words.add(current.toString());
+						wordEnds.add(i);
 						current.setLength(0); // reset the arg
 					}
 				}
@@ -128,6 +170,9 @@ public class ExtendedDefaultParser implements Parser {
 		if (current.length() > 0 || cursor == line.length()) {
 			words.add(current.toString());
 		}
+		if (wordEnds.size() < wordStarts.size()) {
+			wordEnds.add(line.length());
+		}
 
 		if (cursor == line.length()) {
 			wordIndex = words.size() - 1;
@@ -142,7 +187,9 @@ public class ExtendedDefaultParser implements Parser {
 		}
 
 		String openingQuote = quoteStart >= 0 ? line.substring(quoteStart, quoteStart + 1) : null;
-		return new ExtendedArgumentList(line, words, wordIndex, wordCursor, cursor, openingQuote);
+		ExtendedArgumentList result = new ExtendedArgumentList(line, words, wordIndex, wordCursor, cursor, openingQuote, wordStarts, wordEnds);
+		lastParse = result;
+		return result;
 	}
 
 	/**
@@ -239,14 +286,71 @@ public class ExtendedDefaultParser implements Parser {
 
 		private final String openingQuote;
 
+		/**
+		 * The offset in the line where each word starts.
+		 */
+		private final List<Integer> wordStarts;
+
+		/**
+		 * The offset in the line right after each word, including closing quotes.
+		 */
+		private final List<Integer> wordEnds;
+
 		public ExtendedArgumentList(final String line, final List<String> words, final int wordIndex,
 				final int wordCursor, final int cursor, final String openingQuote) {
+			this(line, words, wordIndex, wordCursor, cursor, openingQuote, Collections.emptyList(), Collections.emptyList());
+		}
+
+		private ExtendedArgumentList(final String line, final List<String> words, final int wordIndex,
+				final int wordCursor, final int cursor, final String openingQuote, final List<Integer> wordStarts,
+				final List<Integer> wordEnds) {
 			this.line = line;
 			this.words = Collections.unmodifiableList(Objects.requireNonNull(words));
 			this.wordIndex = wordIndex;
 			this.wordCursor = wordCursor;
 			this.cursor = cursor;
 			this.openingQuote = openingQuote;
+			this.wordStarts = wordStarts;
+			this.wordEnds = wordEnds;
+		}
+
+		/**
+		 * Return the number of words whose location in the line is known. This may be less than the number of
+		 * {@link #words()}, as the empty word the cursor may be in has no location.
+		 */
+		public int locatedWords() {
+			return wordStarts.size();
+		}
+
+		/**
+		 * Return the offset in the line where the given word starts, including any opening quote.
+		 */
+		public int wordStart(int index) {
+			return wordStarts.get(index);
+		}
+
+		/**
+		 * Return the offset in the line right after the given word, including any closing quote.
+		 */
+		public int wordEnd(int index) {
+			return wordEnds.get(index);
+		}
+
+		/**
+		 * Return the number of leading words of this parsed line that can be reused as-is when parsing the given
+		 * line, <em>i.e.</em> the index of the last word that starts before any change (and before the cursor).
+		 */
+		private int resumableWords(String newLine, int newCursor) {
+			int common = 0;
+			int max = Math.min(line.length(), newLine.length());
+			while (common < max && line.charAt(common) == newLine.charAt(common)) {
+				common++;
+			}
+			int result = wordStarts.size() - 1;
+			while (result > 0 && (wordStarts.get(result) > common || wordStarts.get(result) > newCursor)) {
+				result--;
+			}
+			return result;
 		}
 
 		public int wordIndex() {
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.jline.reader.History;
+import org.jline.reader.LineReader;
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser;
+import org.jline.reader.SyntaxError;
+import org.jline.reader.Widget;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStringBuilder;
+import org.jline.utils.AttributedStyle;
+
+import org.springframework.core.convert.ConversionFailedException;
+import org.springframework.shell.CompletionContext;
+import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.ParameterDescription;
+import org.springframework.shell.ParameterMissingResolutionException;
+import org.springframework.shell.Shell;
+import org.springframework.shell.UnfinishedParameterResolutionException;
+
+/**
+ * Shows fish-style suggestions while the user types: the rest of the line, taken from history or from the only
+ * possible completion, is shown faintly after the cursor, together with a hint about what would prevent the command
+ * from running (<em>e.g.</em> "missing --name" or "not an int").
+ *
+ * <p>Suggestions are computed on a background thread, once the user has stopped typing for a short delay. Pending
+ * computations are cancelled as soon as the buffer changes, and the input thread never waits for them: it shows the
+ * suggestion for the current buffer if there is one, and the line is redrawn when one becomes available while the
+ * user is idle.</p>
+ *
+ * <p>Once {@link #install(LineReader) installed}, moving right at the end of the line accepts the suggestion.</p>
+ *
+ * @author Eric Bottard
+ */
+public class InlineSuggestions {
+
+	/**
+	 * 100 milliseconds.
+	 */
+	public static final long DEFAULT_DELAY = 100L;
+
+	private static final AttributedStyle SUGGESTION = AttributedStyle.DEFAULT.faint();
+
+	private static final AttributedStyle HINT = AttributedStyle.DEFAULT.foreground(AttributedStyle.RED).faint();
+
+	private final long delay;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "inline-suggestions");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private Shell shell;
+
+	/**
+	 * The buffer suggestions were last asked for.
+	 */
+	private String requested;
+
+	private Future<?> pending;
+
+	private volatile Suggestion current;
+
+	public InlineSuggestions() {
+		this(DEFAULT_DELAY);
+	}
+
+	/**
+	 * @param delay the time (in milliseconds) the user must have stopped typing for, before suggestions are computed
+	 */
+	public InlineSuggestions(long delay) {
+		this.delay = delay;
+	}
+
+	public void setShell(Shell shell) {
+		this.shell = shell;
+	}
+
+	/**
+	 * Let users accept suggestions with the keys that move forward, and make sure suggestions are not left over on
+	 * screen once a line is accepted.
+	 */
+	public void install(LineReader reader) {
+		wrap(reader, LineReader.FORWARD_CHAR, w -> () -> accept(reader) || w.apply());
+		wrap(reader, LineReader.END_OF_LINE, w -> () -> accept(reader) || w.apply());
+		wrap(reader, LineReader.ACCEPT_LINE, w -> () -> {
+			dismiss();
+			return w.apply();
+		});
+	}
+
+	private void wrap(LineReader reader, String name, Function<Widget, Widget> wrapper) {
+		Widget widget = reader.getBuiltinWidgets().get(name);
+		if (widget != null) {
+			reader.getWidgets().put(name, wrapper.apply(widget));
+		}
+	}
+
+	/**
+	 * Append the suggestion for the given buffer, if already known, to its highlighted form. Otherwise, schedule its
+	 * computation. Invoked by the input thread and never blocks.
+	 */
+	public AttributedString decorate(LineReader reader, String buffer, AttributedString highlighted) {
+		Suggestion suggestion = current;
+		if (suggestion == null || !suggestion.buffer.equals(buffer)) {
+			request(reader, buffer);
+			return highlighted;
+		}
+		if (suggestion.isEmpty() || (reader != null && reader.getBuffer().cursor() != buffer.length())) {
+			return highlighted;
+		}
+		AttributedStringBuilder result = new AttributedStringBuilder(highlighted.length() + 40).append(highlighted);
+		if (suggestion.completion != null) {
+			result.append(suggestion.completion, SUGGESTION);
+		}
+		if (suggestion.hint != null) {
+			result.append("  ").append(suggestion.hint, HINT);
+		}
+		return result.toAttributedString();
+	}
+
+	private synchronized void request(LineReader reader, String buffer) {
+		if (buffer.equals(requested)) {
+			return;
+		}
+		requested = buffer;
+		if (pending != null) {
+			pending.cancel(true);
+		}
+		pending = executor.schedule(() -> {
+			Suggestion suggestion = compute(reader, buffer);
+			if (!Thread.currentThread().isInterrupted()) {
+				current = suggestion;
+				redisplay(reader, buffer);
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Ask JLine to redraw the line, which will pick the new suggestion up. This is only safe while the input thread is
+	 * blocked waiting for input, which only readers implementing {@link InputTracking} can tell. Otherwise, the
+	 * suggestion shows up on the next keystroke.
+	 */
+	private void redisplay(LineReader reader, String buffer) {
+		if (!(reader instanceof InputTracking)) {
+			return;
+		}
+		((InputTracking) reader).whileWaitingForInput(() -> {
+			if (buffer.equals(reader.getBuffer().toString())) {
+				reader.callWidget(LineReader.REDISPLAY);
+				reader.getTerminal().flush();
+			}
+		});
+	}
+
+	private boolean accept(LineReader reader) {
+		Suggestion suggestion = current;
+		String buffer = reader.getBuffer().toString();
+		if (suggestion == null || suggestion.completion == null || !suggestion.buffer.equals(buffer)
+				|| reader.getBuffer().cursor() != buffer.length()) {
+			return false;
+		}
+		reader.getBuffer().write(suggestion.completion);
+		return true;
+	}
+
+	private synchronized void dismiss() {
+		if (pending != null) {
+			pending.cancel(true);
+		}
+		requested = null;
+		current = null;
+	}
+
+	/**
+	 * Compute the suggestion for the given buffer. May be slow, as it invokes resolvers and value providers.
+	 */
+	Suggestion compute(LineReader reader, String buffer) {
+		if (buffer.trim().isEmpty()) {
+			return new Suggestion(buffer, null, null);
+		}
+		ParsedLine line = parse(reader, buffer);
+		String completion = fromHistory(reader, buffer);
+		if (completion == null && line != null) {
+			completion = fromCompletion(line);
+		}
+		String hint = line != null ? hint(line) : null;
+		return new Suggestion(buffer, completion, hint);
+	}
+
+	private ParsedLine parse(LineReader reader, String buffer) {
+		try {
+			Parser parser = reader != null && reader.getParser() != null ? reader.getParser() : new ExtendedDefaultParser();
+			return parser.parse(buffer, buffer.length(), Parser.ParseContext.COMPLETE);
+		}
+		catch (SyntaxError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Return the rest of the most recent history entry that starts with the given buffer.
+	 */
+	private String fromHistory(LineReader reader, String buffer) {
+		History history = reader != null ? reader.getHistory() : null;
+		if (history == null || history.isEmpty()) {
+			return null;
+		}
+		try {
+			for (ListIterator<History.Entry> it = history.iterator(history.last() + 1); it.hasPrevious(); ) {
+				String entry = it.previous().line();
+				if (entry.length() > buffer.length() && entry.startsWith(buffer)) {
+					return entry.substring(buffer.length());
+				}
+			}
+		}
+		catch (RuntimeException e) {
+			// History modified concurrently, the line was just accepted
+		}
+		return null;
+	}
+
+	/**
+	 * Return the rest of the word being typed, if there is only one way to complete it.
+	 */
+	private String fromCompletion(ParsedLine line) {
+		CompletionContext context = new CompletionContext(JLineShell.sanitizeInput(line.words()), line.wordIndex(), line.wordCursor(), 2);
+		List<CompletionProposal> proposals = shell.complete(context);
+		if (proposals.size() != 1 || !proposals.get(0).complete()) {
+			return null;
+		}
+		String value = proposals.get(0).value();
+		String typed = context.upToCursor();
+		String word = context.currentWordUpToCursor() != null ? context.currentWordUpToCursor() : "";
+		// Command names span several words, argument values are a single word
+		String start = value.startsWith(typed) ? typed : word;
+		boolean quotingNeeded = !proposals.get(0).dontQuote() && value.chars().anyMatch(Character::isWhitespace);
+		if (quotingNeeded || !value.startsWith(start) || value.length() == start.length()) {
+			return null;
+		}
+		return value.substring(start.length());
+	}
+
+	/**
+	 * Return a short description of the first problem that would prevent the command from running.
+	 */
+	private String hint(ParsedLine line) {
+		List<String> words = JLineShell.sanitizeInput(line.words());
+		Optional<Exception> problem = shell.diagnose(words).stream()
+			.filter(e -> !(e instanceof UnfinishedParameterResolutionException))
+			.findFirst();
+		return problem.map(this::describe).orElse(null);
+	}
+
+	private String describe(Exception problem) {
+		if (problem instanceof ParameterMissingResolutionException) {
+			ParameterDescription description = ((ParameterMissingResolutionException) problem).getParameterDescription();
+			return "missing " + (description.keys().isEmpty() ? description.formal() : description.keys().get(0));
+		}
+		for (Throwable t = problem; t != null; t = t.getCause()) {
+			if (t instanceof ConversionFailedException) {
+				String type = ((ConversionFailedException) t).getTargetType().getType().getSimpleName();
+				return ("AEIOUaeiou".indexOf(type.charAt(0)) >= 0 ? "not an " : "not a ") + type;
+			}
+		}
+		return problem.getMessage();
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Implemented by line readers that can tell whether their input thread is blocked waiting for input, the only time
+	 * they can safely be redrawn from another thread.
+	 */
+	interface InputTracking {
+
+		/**
+		 * Run the given action if the input thread is blocked waiting for input, making sure it does not resume before
+		 * the action is over.
+		 * @return whether the action was run
+		 */
+		boolean whileWaitingForInput(Runnable action);
+	}
+
+	/**
+	 * What to show after a given buffer.
+	 */
+	static class Suggestion {
+
+		private final String buffer;
+
+		/**
+		 * The text that would complete the buffer, if any.
+		 */
+		private final String completion;
+
+		/**
+		 * What prevents the command from running, if anything.
+		 */
+		private final String hint;
+
+		private Suggestion(String buffer, String completion, String hint) {
+			this.buffer = buffer;
+			this.completion = completion;
+			this.hint = hint;
+		}
+
+		String getCompletion() {
+			return completion;
+		}
+
+		String getHint() {
+			return hint;
+		}
+
+		private boolean isEmpty() {
+			return completion == null && hint == null;
+		}
+	}
+}
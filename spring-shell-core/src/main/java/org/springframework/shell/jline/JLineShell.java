@@ -17,27 +17,37 @@
 package org.springframework.shell.jline;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import javax.annotation.PostConstruct;
 
+import org.jline.keymap.KeyMap;
+import org.jline.reader.Binding;
 import org.jline.reader.Candidate;
 import org.jline.reader.Completer;
-import org.jline.reader.Highlighter;
+import org.jline.reader.History;
 import org.jline.reader.LineReader;
-import org.jline.reader.LineReaderBuilder;
 import org.jline.reader.ParsedLine;
 import org.jline.reader.UserInterruptException;
+import org.jline.reader.impl.LineReaderImpl;
 import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
 import org.jline.utils.AttributedString;
-import org.jline.utils.AttributedStringBuilder;
 import org.jline.utils.AttributedStyle;
 
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.shell.CompletingParsedLine;
@@ -47,6 +57,7 @@ import org.springframework.shell.ExitRequest;
 import org.springframework.shell.Input;
 import org.springframework.shell.ResultHandler;
 import org.springframework.shell.Shell;
+import org.springframework.shell.ShellSession;
 
 /**
  * Shell implementation using JLine to capture input and trigger completions.
@@ -57,18 +68,51 @@ import org.springframework.shell.Shell;
 @Configuration
 public class JLineShell {
 
+	private static final Pattern LEADING_OR_TRAILING_NEWLINES = Pattern.compile("^\\n+|\\n+$");
+
+	private static final Pattern INNER_NEWLINES = Pattern.compile("\\n+");
+
 	@Autowired
 	@Qualifier("main")
 	private  ResultHandler resultHandler;
 
+	@Value("${spring.shell.history.file:" + PersistentHistory.DEFAULT_FILE + "}")
+	private String historyFile;
+
+	@Value("${spring.shell.history.maximum-size:" + PersistentHistory.DEFAULT_MAXIMUM_SIZE + "}")
+	private int historyMaximumSize;
+
+	private Terminal systemTerminal;
+
+	/**
+	 * Return the terminal of the {@link ShellSession#current() current session} if it has one, or else the one the
+	 * process is attached to.
+	 */
 	@Bean
 	public Terminal terminal() {
-		try {
-			return TerminalBuilder.builder().build();
-		}
-		catch (IOException e) {
-			throw new BeanCreationException("Could not create Terminal: " + e.getMessage());
+		Terminal system = systemTerminal();
+		return (Terminal) Proxy.newProxyInstance(Terminal.class.getClassLoader(), new Class<?>[] {Terminal.class},
+			(proxy, method, args) -> {
+				Terminal session = ShellSession.current().getTerminal();
+				try {
+					return method.invoke(session != null ? session : system, args);
+				}
+				catch (InvocationTargetException e) {
+					throw e.getTargetException();
+				}
+			});
+	}
+
+	private synchronized Terminal systemTerminal() {
+		if (systemTerminal == null) {
+			try {
+				systemTerminal = TerminalBuilder.builder().build();
+			}
+			catch (IOException e) {
+				throw new BeanCreationException("Could not create Terminal: " + e.getMessage());
+			}
 		}
+		return systemTerminal;
 	}
 
 	@Bean
@@ -81,77 +125,116 @@ public class JLineShell {
 		return new CompleterAdapter();
 	}
 
+	@Bean
+	public CommandHighlighter highlighter() {
+		return new CommandHighlighter();
+	}
+
+	@Bean
+	public InlineSuggestions inlineSuggestions() {
+		return new InlineSuggestions();
+	}
+
+	@Bean
+	public PersistentHistory history() {
+		return new PersistentHistory(historyFile, historyMaximumSize);
+	}
+
 	/*
 	 * Using setter injection to work around a circular dependency.
 	 */
 	@PostConstruct
 	public void lateInit() {
 		completer().setShell(shell());
+		highlighter().setShell(shell());
+		inlineSuggestions().setShell(shell());
 	}
 
 	@Bean
 	public LineReader lineReader() {
+		LineReaderImpl lineReader = newLineReader(systemTerminal(), history());
+		// Suggestions are tied to a single reader
+		CommandHighlighter highlighter = highlighter();
+		InlineSuggestions inlineSuggestions = inlineSuggestions();
+		lineReader.setHighlighter((reader, buffer) -> inlineSuggestions.decorate(reader, buffer, highlighter.highlight(reader, buffer)));
+		inlineSuggestions.install(lineReader);
+		return lineReader;
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "spring.shell.server", name = "enabled")
+	public ShellServer shellServer(
+			@Value("${spring.shell.server.port:" + ShellServer.DEFAULT_PORT + "}") int port,
+			@Value("${spring.shell.server.max-sessions:" + ShellServer.DEFAULT_MAX_SESSIONS + "}") int maxSessions,
+			@Value("${spring.shell.server.file:" + ShellServer.DEFAULT_FILE + "}") String file) {
+		return new ShellServer(shell(), resultHandler, this::sessionLineReader, port, maxSessions, Paths.get(file));
+	}
+
+	/**
+	 * Create a line reader for a {@link ShellServer} session, set up like the main one, but using the terminal and
+	 * history of the session and without inline suggestions.
+	 */
+	LineReader sessionLineReader(ShellSession session) {
+		return newLineReader(session.getTerminal(), session.getHistory());
+	}
+
+	private LineReaderImpl newLineReader(Terminal terminal, History history) {
 		ExtendedDefaultParser parser = new ExtendedDefaultParser();
 		parser.setEofOnUnclosedQuote(true);
 		parser.setEofOnEscapedNewLine(true);
 
-		LineReaderBuilder lineReaderBuilder = LineReaderBuilder.builder()
-				.terminal(terminal())
-				.appName("Foo")
-				.completer(completer())
-				.highlighter(new Highlighter() {
-
-					@Override
-					public AttributedString highlight(LineReader reader, String buffer) {
-						int l = 0;
-						String best = null;
-						for (String command : shell().listCommands().keySet()) {
-							if (buffer.startsWith(command) && command.length() > l) {
-								l = command.length();
-								best = command;
-							}
-						}
-						if (best != null) {
-							return new AttributedStringBuilder(buffer.length()).append(best, AttributedStyle.BOLD).append(buffer.substring(l)).toAttributedString();
-						}
-						else {
-							return new AttributedString(buffer, AttributedStyle.DEFAULT.foreground(AttributedStyle.RED));
-						}
-					}
-				})
-				.parser(parser);
-
-		return lineReaderBuilder.build();
+		LineReaderImpl lineReader = new IndexedSearchLineReader(terminal, "Foo", new HashMap<>());
+		lineReader.setCompleter(completer());
+		lineReader.setHighlighter(highlighter());
+		lineReader.setParser(parser);
+		lineReader.setHistory(history);
+		return lineReader;
 	}
 
 	/**
 	 * Sanitize the buffer input given the customizations applied to the JLine parser (<em>e.g.</em> support for
 	 * line continuations, <em>etc.</em>)
 	 */
-	static private List<String> sanitizeInput(List<String> words) {
-		words = words.stream()
-			.map(s -> s.replaceAll("^\\n+|\\n+$", "")) // CR at beginning/end of line introduced by backslash continuation
-			.map(s -> s.replaceAll("\\n+", " ")) // CR in middle of word introduced by return inside a quoted string
-			.collect(Collectors.toList());
-		return words;
+	static List<String> sanitizeInput(List<String> words) {
+		List<String> result = new ArrayList<>(words.size());
+		for (String word : words) {
+			result.add(sanitizeWord(word));
+		}
+		return result;
+	}
+
+	static private String sanitizeWord(String word) {
+		if (word.indexOf('\n') < 0) {
+			return word;
+		}
+		word = LEADING_OR_TRAILING_NEWLINES.matcher(word).replaceAll(""); // CR at beginning/end of line introduced by backslash continuation
+		return INNER_NEWLINES.matcher(word).replaceAll(" "); // CR in middle of word introduced by return inside a quoted string
 	}
 
 	/**
 	 * A bridge between JLine's {@link Completer} contract and our own.
+	 *
+	 * <p>Remembers the words it sanitized last, so that words left untouched by the parser between two completion
+	 * requests are not sanitized again.</p>
 	 * @author Eric Bottard
 	 */
 	public static class CompleterAdapter implements Completer {
 
 		private Shell shell;
 
+		private volatile SanitizedWords lastWords = new SanitizedWords(Collections.emptyList(), Collections.emptyList());
+
 		@Override
 		public void complete(LineReader reader, ParsedLine line, List<Candidate> candidates) {
 			CompletingParsedLine cpl = (line instanceof CompletingParsedLine) ? ((CompletingParsedLine) line) : t -> t;
 
-			CompletionContext context = new CompletionContext(sanitizeInput(line.words()), line.wordIndex(), line.wordCursor());
+			// Ask for one more proposal than what is displayed, to know whether some were left out
+			int max = listMax(reader);
+			CompletionContext context = new CompletionContext(sanitize(line.words()), line.wordIndex(), line.wordCursor(), max + 1);
 
 			List<CompletionProposal> proposals = shell.complete(context);
 			proposals.stream()
+				.limit(max)
 				.map(p -> new Candidate(
 					p.dontQuote() ? p.value() : cpl.emit(p.value()).toString(),
 					p.displayText(),
@@ -159,14 +242,129 @@ public class JLineShell {
 					p.description(),
 					null,
 					null,
-					true)
+					p.complete())
 				)
 				.forEach(candidates::add);
+			if (proposals.size() > max) {
+				// Repeats what the user typed, so that no common prefix of the displayed proposals gets inserted
+				String typed = line.word().substring(0, line.wordCursor());
+				candidates.add(new Candidate(cpl.emit(typed).toString(), "...", null,
+					"More proposals are available, type more characters to narrow them down", null, null, false));
+			}
+		}
+
+		private int listMax(LineReader reader) {
+			Object value = reader != null ? reader.getVariable(LineReader.LIST_MAX) : null;
+			if (value instanceof Number) {
+				return ((Number) value).intValue();
+			}
+			else if (value != null) {
+				try {
+					return Integer.parseInt(value.toString());
+				}
+				catch (NumberFormatException e) {
+					// fall back to the default
+				}
+			}
+			return LineReaderImpl.DEFAULT_LIST_MAX;
 		}
 
 		public void setShell(Shell shell) {
 			this.shell = shell;
 		}
+
+		private List<String> sanitize(List<String> words) {
+			SanitizedWords previous = lastWords;
+			List<String> result = new ArrayList<>(words.size());
+			for (int i = 0; i < words.size(); i++) {
+				String word = words.get(i);
+				// The parser hands back the very same instances for words that did not change
+				if (i < previous.raw.size() && previous.raw.get(i) == word) {
+					result.add(previous.sanitized.get(i));
+				}
+				else {
+					result.add(sanitizeWord(word));
+				}
+			}
+			lastWords = new SanitizedWords(words, result);
+			return result;
+		}
+	}
+
+	private static class SanitizedWords {
+
+		private final List<String> raw;
+
+		private final List<String> sanitized;
+
+		private SanitizedWords(List<String> raw, List<String> sanitized) {
+			this.raw = raw;
+			this.sanitized = sanitized;
+		}
+	}
+
+	/**
+	 * A line reader that searches history using the index of a {@link PersistentHistory}, instead of iterating over
+	 * all entries. It also tells {@link InlineSuggestions} when it is safe to redraw it.
+	 *
+	 * @author Eric Bottard
+	 */
+	private static class IndexedSearchLineReader extends LineReaderImpl implements InlineSuggestions.InputTracking {
+
+		private final Object inputLock = new Object();
+
+		private boolean waitingForInput;
+
+		private IndexedSearchLineReader(Terminal terminal, String appName, Map<String, Object> variables) {
+			super(terminal, appName, variables);
+		}
+
+		@Override
+		public Binding readBinding(KeyMap<Binding> keys, KeyMap<Binding> local) {
+			synchronized (inputLock) {
+				waitingForInput = true;
+			}
+			try {
+				return super.readBinding(keys, local);
+			}
+			finally {
+				synchronized (inputLock) {
+					waitingForInput = false;
+				}
+			}
+		}
+
+		@Override
+		public boolean whileWaitingForInput(Runnable action) {
+			synchronized (inputLock) {
+				if (!waitingForInput) {
+					return false;
+				}
+				action.run();
+				return true;
+			}
+		}
+
+		@Override
+		public int searchBackwards(String searchTerm, int startIndex, boolean startsWith) {
+			if (history instanceof PersistentHistory) {
+				return ((PersistentHistory) history).searchBackwards(searchTerm, startIndex, startsWith);
+			}
+			return super.searchBackwards(searchTerm, startIndex, startsWith);
+		}
+
+		@Override
+		public int searchForwards(String searchTerm, int startIndex, boolean startsWith) {
+			if (history instanceof PersistentHistory) {
+				// Same semantics as the default implementation: skip the current match, if any
+				int start = Math.min(startIndex, history.last());
+				if (searchIndex != -1) {
+					start++;
+				}
+				return ((PersistentHistory) history).searchForwards(searchTerm, start, startsWith);
+			}
+			return super.searchForwards(searchTerm, startIndex, startsWith);
+		}
 	}
 
 	public static class JLineInputProvider implements Shell.InputProvider {
@@ -0,0 +1,744 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.jline.reader.History;
+import org.jline.reader.LineReader;
+
+/**
+ * A JLine {@link History} backed by an append-only log file, meant to hold a very large number of entries.
+ *
+ * <p>Each accepted line is appended to the log as soon as it is added, while holding an exclusive lock on the file, so
+ * that several shells running at the same time can safely share it. The log is not read when the shell starts, but the
+ * first time history is actually needed (<em>e.g.</em> when pressing the up arrow). It is then memory-mapped and only
+ * the offsets of the most recent {@literal maximumSize} entries are kept on the heap, lines being decoded on demand.</p>
+ *
+ * <p>An inverted index from whitespace separated tokens to the entries that contain them makes
+ * {@link #searchBackwards(String, int, boolean) searching} history cost proportional to the number of candidate entries,
+ * rather than to the size of history. That index lives on the heap. It is built by a background thread once history
+ * has been loaded, and searches scan entries one by one until it is ready.</p>
+ *
+ * <p>The file uses the same format as JLine's own history file. History is best effort: failure to read or write the
+ * file is silently ignored.</p>
+ *
+ * @author Eric Bottard
+ */
+public class PersistentHistory implements History {
+
+	/**
+	 * The default location of the history file, as a placeholder to be resolved against the environment. Each
+	 * application gets its own file, named after {@literal spring.application.name}, so that one shell's commands
+	 * don't end up in another's history.
+	 */
+	public static final String DEFAULT_FILE = "${user.home}/.spring-shell/${spring.application.name:application}/history";
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 1_000_000;
+
+	/**
+	 * File locks are held on behalf of the whole JVM, so appends from within the same JVM must be serialized first.
+	 */
+	private static final Object APPEND_MONITOR = new Object();
+
+	private final Path file;
+
+	private final int maximumSize;
+
+	private LineReader reader;
+
+	private boolean loaded;
+
+	/**
+	 * The part of the file that was read when loading, or {@literal null} if there was nothing to read.
+	 */
+	private ByteBuffer mapped;
+
+	/**
+	 * Where each loaded entry starts and ends (excluding the newline) in {@link #mapped}.
+	 */
+	private int[] starts = new int[0];
+
+	private int[] ends = new int[0];
+
+	/**
+	 * Entries added since history was loaded.
+	 */
+	private final List<Entry> added = new ArrayList<>();
+
+	/**
+	 * The inverted index, or {@literal null} while it is being built.
+	 */
+	private Map<String, Postings> index;
+
+	/**
+	 * Incremented every time history is reset, so that an index built for a previous state is discarded.
+	 */
+	private int generation;
+
+	/**
+	 * The fragments of the last search term, and the postings of all tokens that contain each of them.
+	 */
+	private Map<String, List<Postings>> searched = new HashMap<>();
+
+	/**
+	 * The current position in history, or -1 when past the most recent entry.
+	 */
+	private int current = -1;
+
+	private String lastAdded;
+
+	/**
+	 * @param file the file to persist history to, or {@literal null} to keep it in memory only
+	 * @param maximumSize the maximum number of (most recent) entries to load from the file
+	 */
+	public PersistentHistory(Path file, int maximumSize) {
+		this.file = file;
+		this.maximumSize = maximumSize;
+	}
+
+	public PersistentHistory(String file, int maximumSize) {
+		this(file.isEmpty() ? null : Paths.get(file), maximumSize);
+	}
+
+	@Override
+	public synchronized void attach(LineReader reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	public synchronized void load() throws IOException {
+		loaded = file == null && loaded;
+		ensureLoaded();
+	}
+
+	/**
+	 * Does nothing, as entries are written to the file as soon as they are added.
+	 */
+	@Override
+	public void save() throws IOException {
+	}
+
+	@Override
+	public synchronized void purge() throws IOException {
+		if (file != null) {
+			synchronized (APPEND_MONITOR) {
+				// Deleting rather than truncating, as other shells may have the file mapped
+				Files.deleteIfExists(file);
+			}
+		}
+		reset(null);
+		loaded = true;
+	}
+
+	@Override
+	public synchronized int size() {
+		ensureLoaded();
+		return starts.length + added.size();
+	}
+
+	@Override
+	public int index() {
+		return current < 0 ? size() : current;
+	}
+
+	@Override
+	public int first() {
+		return 0;
+	}
+
+	@Override
+	public int last() {
+		return size() - 1;
+	}
+
+	@Override
+	public synchronized String get(int index) {
+		return entry(index).line();
+	}
+
+	@Override
+	public synchronized void add(Instant time, String line) {
+		if (line.trim().isEmpty()
+				|| isSet(LineReader.Option.HISTORY_IGNORE_DUPS) && line.equals(lastAdded)
+				|| isSet(LineReader.Option.HISTORY_IGNORE_SPACE) && line.startsWith(" ")) {
+			return;
+		}
+		lastAdded = line;
+		append(time, line);
+		// If not loaded yet, the entry will be read back from the file
+		if (loaded || file == null) {
+			int i = size();
+			added.add(new EntryImpl(i, time, line));
+			if (index != null) {
+				indexTokens(index, i, line);
+				// New tokens may contain fragments of the last search
+				searched = new HashMap<>();
+			}
+		}
+		current = -1;
+	}
+
+	private boolean isSet(LineReader.Option option) {
+		return reader != null ? reader.isSet(option) : option.isDef();
+	}
+
+	@Override
+	public synchronized ListIterator<Entry> iterator(int index) {
+		int size = size();
+		return new AbstractList<Entry>() {
+
+			@Override
+			public Entry get(int i) {
+				synchronized (PersistentHistory.this) {
+					return entry(i);
+				}
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		}.listIterator(index);
+	}
+
+	@Override
+	public synchronized String current() {
+		int i = index();
+		return i < size() ? get(i) : "";
+	}
+
+	@Override
+	public synchronized boolean previous() {
+		int i = index();
+		if (i <= 0) {
+			return false;
+		}
+		current = i - 1;
+		return true;
+	}
+
+	@Override
+	public synchronized boolean next() {
+		int i = index();
+		if (i >= size()) {
+			return false;
+		}
+		current = i + 1 < size() ? i + 1 : -1;
+		return true;
+	}
+
+	@Override
+	public synchronized boolean moveToFirst() {
+		if (size() > 0 && index() != 0) {
+			current = 0;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized boolean moveToLast() {
+		int last = last();
+		if (last >= 0 && index() != last) {
+			current = last;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized boolean moveTo(int index) {
+		if (index >= 0 && index < size()) {
+			current = index;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Does not load history, as this is called every time a line is read.
+	 */
+	@Override
+	public synchronized void moveToEnd() {
+		current = -1;
+	}
+
+	/**
+	 * Return the index of the most recent entry strictly before {@literal start} that contains (or starts with, if
+	 * {@literal prefix} is set) the given term, or -1 if there is none.
+	 */
+	public synchronized int searchBackwards(String term, int start, boolean prefix) {
+		List<Postings> candidates = candidates(term);
+		int bound = Math.min(start, size());
+		if (candidates == null) {
+			for (int i = bound - 1; i >= 0; i--) {
+				if (matches(i, term, prefix)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		while (true) {
+			int best = -1;
+			for (Postings postings : candidates) {
+				best = Math.max(best, postings.lower(bound));
+			}
+			if (best < 0 || matches(best, term, prefix)) {
+				return best;
+			}
+			bound = best;
+		}
+	}
+
+	/**
+	 * Return the index of the oldest entry at or after {@literal start} that contains (or starts with, if
+	 * {@literal prefix} is set) the given term, or -1 if there is none.
+	 */
+	public synchronized int searchForwards(String term, int start, boolean prefix) {
+		List<Postings> candidates = candidates(term);
+		int size = size();
+		int bound = Math.max(start, 0);
+		if (candidates == null) {
+			for (int i = bound; i < size; i++) {
+				if (matches(i, term, prefix)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		while (true) {
+			int best = Integer.MAX_VALUE;
+			for (Postings postings : candidates) {
+				best = Math.min(best, postings.higher(bound));
+			}
+			if (best == Integer.MAX_VALUE) {
+				return -1;
+			}
+			if (matches(best, term, prefix)) {
+				return best;
+			}
+			bound = best + 1;
+		}
+	}
+
+	/**
+	 * Return whether searches can use the index yet.
+	 */
+	synchronized boolean isIndexed() {
+		ensureLoaded();
+		return index != null;
+	}
+
+	private boolean matches(int i, String term, boolean prefix) {
+		String line = get(i);
+		return prefix ? line.startsWith(term) : line.contains(term);
+	}
+
+	/**
+	 * Return the postings of entries that may contain the given term, or {@literal null} if the term has no token to
+	 * narrow the search down with or the index is not ready yet. Every whitespace-free fragment of the term must appear
+	 * inside a token of a matching entry, so the fragment that matches the fewest entries is used.
+	 */
+	private List<Postings> candidates(String term) {
+		ensureLoaded();
+		if (index == null) {
+			return null;
+		}
+		Map<String, List<Postings>> previous = searched;
+		searched = new HashMap<>();
+		List<Postings> best = null;
+		int bestCount = Integer.MAX_VALUE;
+		for (String fragment : tokenize(term)) {
+			List<Postings> postings = postingsContaining(fragment, previous);
+			searched.put(fragment, postings);
+			int count = postings.stream().mapToInt(p -> p.size).sum();
+			if (count < bestCount) {
+				best = postings;
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+
+	private List<Postings> postingsContaining(String fragment, Map<String, List<Postings>> previous) {
+		// As a search term is typed, its fragments grow: only look at tokens that matched last time, if possible
+		Collection<Postings> source = index.values();
+		for (Map.Entry<String, List<Postings>> entry : previous.entrySet()) {
+			if (fragment.equals(entry.getKey())) {
+				return entry.getValue();
+			}
+			else if (fragment.contains(entry.getKey())) {
+				source = entry.getValue();
+			}
+		}
+		List<Postings> result = new ArrayList<>();
+		for (Postings postings : source) {
+			if (postings.token.contains(fragment)) {
+				result.add(postings);
+			}
+		}
+		return result;
+	}
+
+	private Entry entry(int i) {
+		ensureLoaded();
+		int loadedCount = starts.length;
+		if (i < 0 || i >= loadedCount + added.size()) {
+			throw new IndexOutOfBoundsException("No history entry at index " + i);
+		}
+		if (i >= loadedCount) {
+			return added.get(i - loadedCount);
+		}
+		return parse(i, decode(i));
+	}
+
+	private String decode(int i) {
+		return decode(mapped, starts[i], ends[i]);
+	}
+
+	private static String decode(ByteBuffer buffer, int start, int end) {
+		ByteBuffer record = buffer.duplicate();
+		record.limit(end);
+		record.position(start);
+		return StandardCharsets.UTF_8.decode(record).toString();
+	}
+
+	private void ensureLoaded() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		reset(map());
+	}
+
+	private void reset(ByteBuffer buffer) {
+		mapped = buffer;
+		starts = new int[0];
+		ends = new int[0];
+		if (buffer != null) {
+			locateRecords(buffer);
+		}
+		added.clear();
+		searched = new HashMap<>();
+		current = -1;
+		generation++;
+		index = null;
+		if (starts.length == 0) {
+			index = new HashMap<>();
+		}
+		else {
+			startIndexing();
+		}
+	}
+
+	/**
+	 * Index the entries read from the file on a background thread, then make the index available.
+	 */
+	private void startIndexing() {
+		int generation = this.generation;
+		ByteBuffer mapped = this.mapped;
+		int[] starts = this.starts;
+		int[] ends = this.ends;
+		Thread thread = new Thread(() -> {
+			Map<String, Postings> built = new HashMap<>();
+			for (int i = 0; i < starts.length; i++) {
+				indexTokens(built, i, parse(i, decode(mapped, starts[i], ends[i])).line());
+			}
+			publish(generation, built);
+		}, "history-index");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private synchronized void publish(int generation, Map<String, Postings> built) {
+		if (generation != this.generation) {
+			return;
+		}
+		for (int i = 0; i < added.size(); i++) {
+			indexTokens(built, starts.length + i, added.get(i).line());
+		}
+		index = built;
+		searched = new HashMap<>();
+	}
+
+	/**
+	 * Map the file in memory, while holding a shared lock so that no entry is half written.
+	 */
+	private ByteBuffer map() {
+		if (file == null) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+				FileLock lock = channel.lock(0L, Long.MAX_VALUE, true)) {
+			long size = channel.size();
+			long offset = Math.max(0L, size - Integer.MAX_VALUE);
+			return channel.map(FileChannel.MapMode.READ_ONLY, offset, size - offset);
+		}
+		catch (NoSuchFileException e) {
+			// Nothing recorded yet
+			return null;
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Find where the most recent valid records are, scanning backwards from the end of the buffer so that older
+	 * entries past the maximum size are never touched.
+	 */
+	private void locateRecords(ByteBuffer buffer) {
+		IntList recordStarts = new IntList();
+		IntList recordEnds = new IntList();
+		int end = buffer.limit();
+		// Ignore a trailing incomplete record
+		while (end > 0 && buffer.get(end - 1) != '\n') {
+			end--;
+		}
+		int recordEnd = end - 1;
+		for (int i = end - 1; i >= 0 && recordStarts.size < maximumSize; i--) {
+			if (i == 0 || buffer.get(i - 1) == '\n') {
+				if (isValidRecord(buffer, i, recordEnd)) {
+					recordStarts.add(i);
+					recordEnds.add(recordEnd);
+				}
+				recordEnd = i - 1;
+			}
+		}
+		starts = recordStarts.toReversedArray();
+		ends = recordEnds.toReversedArray();
+	}
+
+	/**
+	 * A valid record is a timestamp in milliseconds, followed by a colon and the escaped line.
+	 */
+	private static boolean isValidRecord(ByteBuffer buffer, int start, int end) {
+		int i = start;
+		while (i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+			i++;
+		}
+		return i > start && i < end && buffer.get(i) == ':';
+	}
+
+	private void append(Instant time, String line) {
+		if (file == null) {
+			return;
+		}
+		ByteBuffer record = StandardCharsets.UTF_8.encode(time.toEpochMilli() + ":" + escape(line) + "\n");
+		synchronized (APPEND_MONITOR) {
+			try {
+				if (file.getParent() != null) {
+					Files.createDirectories(file.getParent());
+				}
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+						FileLock lock = channel.lock()) {
+					while (record.hasRemaining()) {
+						channel.write(record);
+					}
+				}
+			}
+			catch (IOException e) {
+				// History is a nicety, don't get in the way of the user
+			}
+		}
+	}
+
+	private static void indexTokens(Map<String, Postings> index, int entry, String line) {
+		for (String token : tokenize(line)) {
+			index.computeIfAbsent(token, Postings::new).add(entry);
+		}
+	}
+
+	private static Set<String> tokenize(String text) {
+		Set<String> result = new LinkedHashSet<>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean separator = i == text.length() || Character.isWhitespace(text.charAt(i));
+			if (separator && start >= 0) {
+				result.add(text.substring(start, i));
+				start = -1;
+			}
+			else if (!separator && start < 0) {
+				start = i;
+			}
+		}
+		return result;
+	}
+
+	private static EntryImpl parse(int index, String record) {
+		int colon = record.indexOf(':');
+		return new EntryImpl(index, Instant.ofEpochMilli(Long.parseLong(record.substring(0, colon))), unescape(record.substring(colon + 1)));
+	}
+
+	static String escape(String line) {
+		StringBuilder sb = new StringBuilder(line.length());
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			switch (c) {
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				case '\\':
+					sb.append("\\\\");
+					break;
+				default:
+					sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	static String unescape(String escaped) {
+		if (escaped.indexOf('\\') < 0) {
+			return escaped;
+		}
+		StringBuilder sb = new StringBuilder(escaped.length());
+		for (int i = 0; i < escaped.length(); i++) {
+			char c = escaped.charAt(i);
+			if (c == '\\' && i + 1 < escaped.length()) {
+				char next = escaped.charAt(++i);
+				sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			}
+			else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static class EntryImpl implements Entry {
+
+		private final int index;
+
+		private final Instant time;
+
+		private final String line;
+
+		private EntryImpl(int index, Instant time, String line) {
+			this.index = index;
+			this.time = time;
+			this.line = line;
+		}
+
+		@Override
+		public int index() {
+			return index;
+		}
+
+		@Override
+		public Instant time() {
+			return time;
+		}
+
+		@Override
+		public String line() {
+			return line;
+		}
+
+		@Override
+		public String toString() {
+			return index + ": " + line;
+		}
+	}
+
+	/**
+	 * A growable array of ints.
+	 */
+	private static class IntList {
+
+		int[] values = new int[16];
+
+		int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		int[] toReversedArray() {
+			int[] result = new int[size];
+			for (int i = 0; i < size; i++) {
+				result[i] = values[size - 1 - i];
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The indices of the entries that contain a token, in increasing order.
+	 */
+	private static class Postings extends IntList {
+
+		private final String token;
+
+		private Postings(String token) {
+			this.token = token;
+			this.values = new int[2];
+		}
+
+		@Override
+		void add(int entry) {
+			if (size == 0 || values[size - 1] != entry) {
+				super.add(entry);
+			}
+		}
+
+		/**
+		 * Return the greatest entry strictly lower than the given bound, or -1.
+		 */
+		int lower(int bound) {
+			int i = Arrays.binarySearch(values, 0, size, bound);
+			i = i >= 0 ? i - 1 : -i - 2;
+			return i >= 0 ? values[i] : -1;
+		}
+
+		/**
+		 * Return the smallest entry greater than or equal to the given bound, or {@link Integer#MAX_VALUE}.
+		 */
+		int higher(int bound) {
+			int i = Arrays.binarySearch(values, 0, size, bound);
+			i = i >= 0 ? i : -i - 1;
+			return i < size ? values[i] : Integer.MAX_VALUE;
+		}
+	}
+}
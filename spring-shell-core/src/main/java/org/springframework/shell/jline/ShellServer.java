@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import java.io.IOError;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.jline.reader.EndOfFileException;
+import org.jline.reader.LineReader;
+import org.jline.reader.impl.history.DefaultHistory;
+import org.jline.terminal.Size;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.TerminalBuilder;
+
+import org.springframework.shell.ExitRequest;
+import org.springframework.shell.Input;
+import org.springframework.shell.ResultHandler;
+import org.springframework.shell.ServerAdvertisement;
+import org.springframework.shell.Shell;
+import org.springframework.shell.ShellSession;
+
+/**
+ * Lets several users connect to the shell at the same time, over TCP on the loopback interface. This is meant for
+ * services that run without a terminal attached.
+ *
+ * <p>Each connection gets its own terminal, line reader and input loop, running on a thread of its own, while commands
+ * and their caches are shared. Each connection is served within a {@link ShellSession} of its own, so that while it
+ * runs a command, the {@link Terminal} bean stands for the terminal of that session. Exiting (or closing the
+ * connection) only ends the session.</p>
+ *
+ * <p>Only the user running the server may connect: the server advertises itself with a {@link ServerAdvertisement},
+ * and refuses connections that don't start with the token found in the advertisement file.</p>
+ *
+ * <p>Line editing happens on the server side, so clients should then send raw keystrokes, <em>e.g.</em> using
+ * {@literal stty raw -echo; { cut -d' ' -f2 ~/.spring-shell/server; cat; } | nc localhost 8022; stty sane}.</p>
+ *
+ * @author Eric Bottard
+ */
+public class ShellServer {
+
+	public static final int DEFAULT_PORT = 8022;
+
+	public static final int DEFAULT_MAX_SESSIONS = 256;
+
+	/**
+	 * The default location of the advertisement file, as a placeholder to be resolved against system properties.
+	 */
+	public static final String DEFAULT_FILE = "${user.home}/.spring-shell/server";
+
+	/**
+	 * Idle sessions only ever block reading input, so they don't need much of a stack.
+	 */
+	private static final long SESSION_STACK_SIZE = 256 * 1024;
+
+	private static final Size DEFAULT_SIZE = new Size(80, 24);
+
+	private final Shell shell;
+
+	private final ResultHandler<Object> resultHandler;
+
+	private final Function<ShellSession, LineReader> lineReaders;
+
+	private final int port;
+
+	private final int maxSessions;
+
+	private final Path file;
+
+	/**
+	 * All connections, whether they have presented their token yet or not.
+	 */
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger handshakes = new AtomicInteger();
+
+	private final AtomicInteger openSessions = new AtomicInteger();
+
+	private final AtomicInteger sessionCount = new AtomicInteger();
+
+	private volatile ServerSocket serverSocket;
+
+	private volatile ServerAdvertisement advertisement;
+
+	/**
+	 * @param shell the shell to run commands with
+	 * @param resultHandler the handler to pass results to, on the thread of the session that produced them
+	 * @param lineReaders how to create a line reader for a new session
+	 * @param port the port to listen on, 0 to pick any free port
+	 * @param maxSessions the maximum number of sessions open at the same time, and of connections yet to present their token
+	 * @param file where to advertise the port and token of this server
+	 */
+	public ShellServer(Shell shell, ResultHandler<Object> resultHandler, Function<ShellSession, LineReader> lineReaders,
+			int port, int maxSessions, Path file) {
+		this.shell = shell;
+		this.resultHandler = resultHandler;
+		this.lineReaders = lineReaders;
+		this.port = port;
+		this.maxSessions = maxSessions;
+		this.file = file;
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		ServerSocket socket = new ServerSocket();
+		socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		serverSocket = socket;
+		advertisement = ServerAdvertisement.publish(file, socket.getLocalPort());
+		// Not a daemon, so that the process keeps running when there is no local shell
+		Thread acceptor = new Thread(this::accept, "shell-server");
+		acceptor.start();
+	}
+
+	/**
+	 * Stop accepting connections, close all sessions and withdraw the advertisement of this server.
+	 */
+	@PreDestroy
+	public void stop() throws IOException {
+		ServerSocket socket = serverSocket;
+		if (socket != null) {
+			socket.close();
+		}
+		for (Socket connection : connections) {
+			connection.close();
+		}
+		ServerAdvertisement advertised = advertisement;
+		if (advertised != null) {
+			advertised.withdraw();
+		}
+	}
+
+	/**
+	 * Return the port actually listened on, or -1 if not started.
+	 */
+	public int getPort() {
+		ServerSocket socket = serverSocket;
+		return socket != null ? socket.getLocalPort() : -1;
+	}
+
+	/**
+	 * Return the number of sessions currently open, not counting connections that have not presented their token yet.
+	 */
+	public int getSessionCount() {
+		return openSessions.get();
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}
+			catch (IOException e) {
+				// Closed by stop(), or a connection that failed early
+				continue;
+			}
+			// Bounds the threads spent on connections that may never present a token
+			if (handshakes.get() >= maxSessions) {
+				close(socket);
+				continue;
+			}
+			handshakes.incrementAndGet();
+			connections.add(socket);
+			Thread thread = new Thread(null, () -> serve(socket), "shell-session-" + sessionCount.incrementAndGet(),
+				SESSION_STACK_SIZE);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void close(Socket socket) {
+		try {
+			socket.close();
+		}
+		catch (IOException e) {
+			// Nothing more to tell that client
+		}
+	}
+
+	private void serve(Socket socket) {
+		try (Socket s = socket) {
+			boolean authenticated;
+			try {
+				authenticated = advertisement.authenticate(s);
+			}
+			finally {
+				handshakes.decrementAndGet();
+			}
+			if (!authenticated) {
+				return;
+			}
+			if (openSessions.incrementAndGet() > maxSessions) {
+				openSessions.decrementAndGet();
+				s.getOutputStream().write("Too many sessions, try again later\r\n".getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			try {
+				runSession(s);
+			}
+			finally {
+				openSessions.decrementAndGet();
+			}
+		}
+		catch (ExitRequest | SocketException e) {
+			// Session is over
+		}
+		catch (IOException | IOError e) {
+			// Connection lost, or no token presented in time
+		}
+		finally {
+			connections.remove(socket);
+		}
+	}
+
+	private void runSession(Socket socket) throws IOException {
+		// Without native support, JLine emulates the terminal in process rather than allocating a pty
+		try (Terminal terminal = TerminalBuilder.builder()
+					.system(false)
+					.jna(false)
+					.jansi(false)
+					.name(Thread.currentThread().getName())
+					.type("xterm-256color")
+					.streams(socket.getInputStream(), socket.getOutputStream())
+					.build()) {
+			terminal.setSize(DEFAULT_SIZE);
+			ShellSession session = new ShellSession(Thread.currentThread().getName(), terminal, new DefaultHistory());
+			LineReader lineReader = lineReaders.apply(session);
+			session.call(() -> {
+				shell.run(new SessionInputProvider(lineReader), result -> {
+					if (result instanceof ExitRequest) {
+						// Ends the session rather than the process
+						throw (ExitRequest) result;
+					}
+					resultHandler.handleResult(result);
+					terminal.flush();
+				});
+				return null;
+			});
+		}
+	}
+
+	/**
+	 * Reads input of a session, turning the end of input into a request to end the session.
+	 */
+	private static class SessionInputProvider extends JLineShell.JLineInputProvider {
+
+		private SessionInputProvider(LineReader lineReader) {
+			super(lineReader);
+		}
+
+		@Override
+		public Input readInput() {
+			try {
+				return super.readInput();
+			}
+			catch (EndOfFileException | IOError e) {
+				throw new ExitRequest();
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.machine;
+
+import java.nio.file.Paths;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.shell.Shell;
+
+/**
+ * Creates the beans of the machine interface, when Jackson is available.
+ *
+ * @author Eric Bottard
+ */
+@Configuration
+@ConditionalOnClass(ObjectMapper.class)
+public class MachineConfiguration {
+
+	@Autowired(required = false)
+	private ObjectMapper objectMapper;
+
+	@Bean
+	public MachineProcessor machineProcessor(Shell shell,
+			@Value("${spring.shell.machine.concurrency:" + MachineProcessor.DEFAULT_CONCURRENCY + "}") int concurrency,
+			@Value("${spring.shell.machine.ordered:true}") boolean ordered) {
+		return new MachineProcessor(shell, objectMapper != null ? objectMapper : new ObjectMapper(), concurrency, ordered);
+	}
+
+	/**
+	 * Processes requests from standard input, writing responses to standard output, then exits. Runs before, and
+	 * thus replaces, the interactive shell. To keep standard output clean, the banner should be turned off with
+	 * {@literal spring.main.banner-mode=off}, and logs sent elsewhere.
+	 */
+	@Bean
+	@ConditionalOnProperty(prefix = "spring.shell.machine", name = "enabled")
+	public ApplicationRunner machineRunner(MachineProcessor machineProcessor,
+			ConfigurableApplicationContext applicationContext) {
+		return new MachineRunner(machineProcessor, applicationContext);
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "spring.shell.machine.server", name = "enabled")
+	public MachineServer machineServer(MachineProcessor machineProcessor,
+			@Value("${spring.shell.machine.server.port:" + MachineServer.DEFAULT_PORT + "}") int port,
+			@Value("${spring.shell.machine.server.max-connections:" + MachineServer.DEFAULT_MAX_CONNECTIONS + "}") int maxConnections,
+			@Value("${spring.shell.machine.server.file:" + MachineServer.DEFAULT_FILE + "}") String file) {
+		return new MachineServer(machineProcessor, port, maxConnections, Paths.get(file));
+	}
+
+	private static class MachineRunner implements ApplicationRunner, Ordered {
+
+		private final MachineProcessor machineProcessor;
+
+		private final ConfigurableApplicationContext applicationContext;
+
+		private MachineRunner(MachineProcessor machineProcessor, ConfigurableApplicationContext applicationContext) {
+			this.machineProcessor = machineProcessor;
+			this.applicationContext = applicationContext;
+		}
+
+		@Override
+		public void run(ApplicationArguments args) throws Exception {
+			int status = machineProcessor.process(System.in, System.out);
+			System.exit(SpringApplication.exit(applicationContext, () -> status));
+		}
+
+		@Override
+		public int getOrder() {
+			return Ordered.HIGHEST_PRECEDENCE;
+		}
+	}
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.machine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+
+import org.springframework.shell.ExecutionResult;
+import org.springframework.shell.ExitRequest;
+import org.springframework.shell.Shell;
+import org.springframework.shell.ShellSession;
+import org.springframework.shell.jline.ExtendedDefaultParser;
+
+/**
+ * Runs commands read as newline delimited JSON, and writes their results the same way, for use by other programs.
+ *
+ * <p>Each request is a JSON object on a line of its own, holding either the {@literal command} line to run or its
+ * {@literal words}, and optionally an {@literal id}:</p>
+ * <pre>
+ * {"id": 1, "command": "add 1 2"}
+ * {"id": 2, "words": ["echo", "hello world"]}
+ * </pre>
+ * <p>Each response is a JSON object on a line of its own, holding the {@literal id} of the request if any, the
+ * {@literal command} that matched, and either the {@literal value} it returned or the {@literal error} that prevented
+ * it from completing, as well as the {@literal duration} of the execution in milliseconds:</p>
+ * <pre>
+ * {"id":1,"command":"add","value":3,"duration":0.42}
+ * {"id":2,"command":null,"error":{"type":"org.springframework.shell.CommandNotFound","message":"..."},"duration":0.05}
+ * </pre>
+ *
+ * <p>Up to {@literal concurrency} requests are executed at the same time. Responses come in the order of requests,
+ * unless not {@literal ordered}, in which case they come as soon as they are ready and clients should rely on ids.
+ * Character sequences, such as styled text, are written as plain strings, and values Jackson has no serializer for
+ * get an {@literal error} instead. Values are serialized as they are written, so that iterables and streams are
+ * never held in memory as a whole. A value that fails to serialize midway leaves its response incomplete, and ends
+ * processing.</p>
+ *
+ * <p>Commands only communicate through their return value: whatever they write to the terminal is discarded. A
+ * command asking to exit ends processing, once responses to pending requests have been written. When running
+ * several requests at the same time, this only happens when the next request, or the end of input, is read.</p>
+ *
+ * @author Eric Bottard
+ */
+public class MachineProcessor {
+
+	public static final int DEFAULT_CONCURRENCY = 1;
+
+	private final Shell shell;
+
+	private final ObjectMapper objectMapper;
+
+	private final int concurrency;
+
+	private final boolean ordered;
+
+	private final AtomicInteger processCount = new AtomicInteger();
+
+	/**
+	 * @param shell the shell to run commands with
+	 * @param objectMapper how to read requests and write values
+	 * @param concurrency the maximum number of requests executed at the same time, for each input
+	 * @param ordered whether responses come in the order of requests, rather than as soon as they are ready
+	 */
+	public MachineProcessor(Shell shell, ObjectMapper objectMapper, int concurrency, boolean ordered) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be at least 1, not " + concurrency);
+		}
+		this.shell = shell;
+		this.objectMapper = objectMapper;
+		this.concurrency = concurrency;
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Respond to the requests read from the given input, until it ends or a command asks to exit.
+	 *
+	 * @return the status a command asked to exit with, or 0 if input ended
+	 * @throws IOException if input can't be read, or a response can't be written
+	 */
+	public int process(InputStream in, OutputStream out) throws IOException {
+		String name = "shell-machine-" + processCount.incrementAndGet();
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		generator.setRootValueSeparator(null);
+
+		ExecutorService pool = null;
+		if (concurrency > 1) {
+			AtomicInteger threadCount = new AtomicInteger();
+			pool = Executors.newFixedThreadPool(concurrency, r -> {
+				Thread thread = new Thread(r, name + "-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		// Without concurrency, requests are executed right away by the thread reading them
+		Executor executor = pool != null ? pool : Runnable::run;
+		// Bounds the number of requests executing or waiting for their response to be written
+		Semaphore permits = new Semaphore(concurrency);
+		AtomicReference<Integer> exitStatus = new AtomicReference<>();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		try (Terminal terminal = new DumbTerminal(name, "dumb", new EmptyInputStream(), new DiscardingOutputStream(),
+				StandardCharsets.UTF_8.name())) {
+			ShellSession session = new ShellSession(name, terminal, null);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+			String line;
+			while (exitStatus.get() == null && failure.get() == null && (line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				acquire(permits, 1);
+				Request request = parse(line);
+				CompletableFuture<Response> response = request.error != null
+					? CompletableFuture.completedFuture(new Response(request.id, null, request.error))
+					: CompletableFuture.supplyAsync(() -> execute(session, request, exitStatus), executor);
+				CompletableFuture<Response> writable = ordered ? previous.thenCombine(response, (v, r) -> r) : response;
+				previous = writable
+					.thenAccept(r -> write(generator, r, failure))
+					.whenComplete((v, t) -> {
+						if (t != null) {
+							failure.compareAndSet(null, t);
+						}
+						permits.release();
+					});
+			}
+			// Wait for all responses to be written
+			acquire(permits, concurrency);
+		}
+		finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+
+		Throwable t = failure.get();
+		if (t instanceof IOException) {
+			throw (IOException) t;
+		}
+		else if (t != null) {
+			throw new IOException("Could not write response", t);
+		}
+		return exitStatus.get() != null ? exitStatus.get() : 0;
+	}
+
+	private Response execute(ShellSession session, Request request, AtomicReference<Integer> exitStatus) {
+		ExecutionResult result = session.call(() -> shell.execute(request.words));
+		if (result.getException() instanceof ExitRequest) {
+			exitStatus.compareAndSet(null, ((ExitRequest) result.getException()).status());
+		}
+		return new Response(request.id, result, null);
+	}
+
+	private void acquire(Semaphore permits, int count) throws IOException {
+		try {
+			permits.acquire(count);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for responses to be written");
+		}
+	}
+
+	private Request parse(String line) {
+		JsonNode id = null;
+		try {
+			JsonNode node = objectMapper.readTree(line);
+			if (!node.isObject()) {
+				throw new IllegalArgumentException("Requests must be JSON objects");
+			}
+			id = node.get("id");
+			List<String> words = new ArrayList<>();
+			if (node.has("words")) {
+				for (JsonNode word : node.get("words")) {
+					words.add(word.asText());
+				}
+			}
+			else if (node.has("command")) {
+				words.addAll(ExtendedDefaultParser.splitWords(node.get("command").asText()));
+			}
+			else {
+				throw new IllegalArgumentException("Requests must hold either a command or words");
+			}
+			return new Request(id, words, null);
+		}
+		catch (IOException | RuntimeException e) {
+			return new Request(id, null, e);
+		}
+	}
+
+	private void write(JsonGenerator generator, Response response, AtomicReference<Throwable> failure) {
+		synchronized (generator) {
+			if (failure.get() != null) {
+				// Output is broken
+				return;
+			}
+			try {
+				ExecutionResult result = response.result;
+				Exception error = result != null ? result.getException() : response.error;
+				Object value = error == null ? result.getValue() : null;
+				if (value instanceof CharSequence) {
+					// e.g. help, whose AttributedString would otherwise be written as a bean
+					value = value.toString();
+				}
+				else if (value != null && !(value instanceof Stream) && !objectMapper.canSerialize(value.getClass())) {
+					// Tell before anything is written, rather than failing midway
+					error = new JsonMappingException("No serializer found for " + value.getClass().getName());
+				}
+				generator.writeStartObject();
+				if (response.id != null) {
+					generator.writeFieldName("id");
+					generator.writeTree(response.id);
+				}
+				if (result != null) {
+					generator.writeStringField("command", result.getCommand());
+				}
+				if (error != null) {
+					generator.writeObjectFieldStart("error");
+					generator.writeStringField("type", error.getClass().getName());
+					generator.writeStringField("message", error.getMessage());
+					generator.writeEndObject();
+				}
+				else {
+					generator.writeFieldName("value");
+					writeValue(generator, value);
+				}
+				if (result != null) {
+					generator.writeNumberField("duration", result.getDuration().toNanos() / 1_000_000d);
+				}
+				generator.writeEndObject();
+				generator.writeRaw('\n');
+				generator.flush();
+			}
+			catch (IOException | RuntimeException e) {
+				failure.set(e);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void writeValue(JsonGenerator generator, Object value) throws IOException {
+		if (value instanceof Stream) {
+			// Written element by element, like any other iterable
+			try (Stream<Object> stream = (Stream<Object>) value) {
+				Iterable<Object> iterable = stream::iterator;
+				objectMapper.writeValue(generator, iterable);
+			}
+		}
+		else {
+			objectMapper.writeValue(generator, value);
+		}
+	}
+
+	private static class Request {
+
+		private final JsonNode id;
+
+		private final List<String> words;
+
+		private final Exception error;
+
+		private Request(JsonNode id, List<String> words, Exception error) {
+			this.id = id;
+			this.words = words;
+			this.error = error;
+		}
+	}
+
+	private static class Response {
+
+		private final JsonNode id;
+
+		private final ExecutionResult result;
+
+		private final Exception error;
+
+		private Response(JsonNode id, ExecutionResult result, Exception error) {
+			this.id = id;
+			this.result = result;
+			this.error = error;
+		}
+	}
+
+	private static class EmptyInputStream extends InputStream {
+
+		@Override
+		public int read() {
+			return -1;
+		}
+	}
+
+	private static class DiscardingOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
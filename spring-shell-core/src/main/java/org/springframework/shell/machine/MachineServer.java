@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.machine;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.shell.ServerAdvertisement;
+
+/**
+ * Lets programs send requests to a {@link MachineProcessor} over TCP on the loopback interface, each connection
+ * being processed on a thread of its own. A command asking to exit only closes its connection.
+ *
+ * <p>Only the user running the server may connect: the server advertises itself with a {@link ServerAdvertisement},
+ * and closes connections that don't start with the token found in the advertisement file. Connections beyond the
+ * maximum are closed right away.</p>
+ *
+ * @author Eric Bottard
+ */
+public class MachineServer {
+
+	public static final int DEFAULT_PORT = 8023;
+
+	public static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+	/**
+	 * The default location of the advertisement file, as a placeholder to be resolved against system properties.
+	 */
+	public static final String DEFAULT_FILE = "${user.home}/.spring-shell/machine";
+
+	private final MachineProcessor processor;
+
+	private final int port;
+
+	private final int maxConnections;
+
+	private final Path file;
+
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger connectionCount = new AtomicInteger();
+
+	private volatile ServerSocket serverSocket;
+
+	private volatile ServerAdvertisement advertisement;
+
+	/**
+	 * @param processor what to process the requests of each connection with
+	 * @param port the port to listen on, 0 to pick any free port
+	 * @param maxConnections the maximum number of connections open at the same time, further ones being closed
+	 * @param file where to advertise the port and token of this server
+	 */
+	public MachineServer(MachineProcessor processor, int port, int maxConnections, Path file) {
+		this.processor = processor;
+		this.port = port;
+		this.maxConnections = maxConnections;
+		this.file = file;
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		ServerSocket socket = new ServerSocket();
+		socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		serverSocket = socket;
+		advertisement = ServerAdvertisement.publish(file, socket.getLocalPort());
+		// Not a daemon, so that the process keeps running when there is no local shell
+		Thread acceptor = new Thread(this::accept, "shell-machine-server");
+		acceptor.start();
+	}
+
+	/**
+	 * Stop accepting connections, close open ones and withdraw the advertisement of this server.
+	 */
+	@PreDestroy
+	public void stop() throws IOException {
+		ServerSocket socket = serverSocket;
+		if (socket != null) {
+			socket.close();
+		}
+		for (Socket connection : connections) {
+			connection.close();
+		}
+		ServerAdvertisement advertised = advertisement;
+		if (advertised != null) {
+			advertised.withdraw();
+		}
+	}
+
+	/**
+	 * Return the port actually listened on, or -1 if not started.
+	 */
+	public int getPort() {
+		ServerSocket socket = serverSocket;
+		return socket != null ? socket.getLocalPort() : -1;
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}
+			catch (IOException e) {
+				// Closed by stop(), or a connection that failed early
+				continue;
+			}
+			if (connections.size() >= maxConnections) {
+				close(socket);
+				continue;
+			}
+			connections.add(socket);
+			Thread thread = new Thread(() -> serve(socket), "shell-machine-connection-" + connectionCount.incrementAndGet());
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void close(Socket socket) {
+		try {
+			socket.close();
+		}
+		catch (IOException e) {
+			// Nothing more to tell that client
+		}
+	}
+
+	private void serve(Socket socket) {
+		try {
+			if (advertisement.authenticate(socket)) {
+				processor.process(socket.getInputStream(), socket.getOutputStream());
+			}
+		}
+		catch (IOException e) {
+			// Connection lost, or no token presented in time
+		}
+		finally {
+			// Make room before closing, so that the client can reconnect right away
+			connections.remove(socket);
+			close(socket);
+		}
+	}
+}
@@ -26,7 +26,8 @@ import org.springframework.stereotype.Component;
 /**
  * Used when no command can be matched for user input.
  *
- * Simply prints an error message, without printing the exception class.
+ * Simply prints an error message, without printing the exception class, followed by the names of close commands, if
+ * any.
  *
  * @author Eric Bottard
  */
@@ -37,6 +38,10 @@ public class CommandNotFoundResultHandler extends TerminalAwareResultHandler imp
 	public void handleResult(CommandNotFound result) {
 		terminal.writer().println(new AttributedString(result.getMessage(),
 			AttributedStyle.DEFAULT.foreground(AttributedStyle.RED)).toAnsi());
+		if (!result.getSuggestions().isEmpty()) {
+			terminal.writer().println(new AttributedString("Did you mean: " + String.join(", ", result.getSuggestions()) + "?",
+				AttributedStyle.DEFAULT.foreground(AttributedStyle.YELLOW)).toAnsi());
+		}
 
 	}
 }
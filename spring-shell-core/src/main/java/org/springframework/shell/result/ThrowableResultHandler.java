@@ -24,6 +24,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.shell.CommandRegistry;
 import org.springframework.shell.ResultHandler;
+import org.springframework.shell.ShellSession;
 import org.springframework.stereotype.Component;
 
 /**
@@ -39,14 +40,12 @@ public class ThrowableResultHandler extends TerminalAwareResultHandler implement
 	 */
 	public static final String DETAILS_COMMAND_NAME = "stacktrace";
 
-	private Throwable lastError;
-
 	@Autowired @Lazy
 	private CommandRegistry commandRegistry;
 
 	@Override
 	public void handleResult(Throwable result) {
-		lastError = result;
+		ShellSession.current().setLastError(result);
 		terminal.writer().println(new AttributedString(result.toString(),
 				AttributedStyle.DEFAULT.foreground(AttributedStyle.RED)).toAnsi());
 		if (commandRegistry.listCommands().containsKey(DETAILS_COMMAND_NAME)) {
@@ -61,9 +60,10 @@ public class ThrowableResultHandler extends TerminalAwareResultHandler implement
 	}
 
 	/**
-	 * Return the last error that was dealt with by this result handler.
+	 * Return the last error that was dealt with by this result handler, in the {@link ShellSession#current() current
+	 * session}.
 	 */
 	public Throwable getLastError() {
-		return lastError;
+		return ShellSession.current().getLastError();
 	}
 }
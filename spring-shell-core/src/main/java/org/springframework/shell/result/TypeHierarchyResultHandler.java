@@ -18,12 +18,13 @@ package org.springframework.shell.result;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.ResultHandler;
+import org.springframework.util.ConcurrentReferenceHashMap;
 
 /**
  * A delegating {@link ResultHandler} that dispatches handling based on the type of the result.
@@ -32,12 +33,20 @@ import org.springframework.shell.ResultHandler;
  * Auto-populates the handler map based on Generics type declaration of each discovered {@link ResultHandler} in the
  * ApplicationContext.
  * </p>
+ * <p>
+ * Results may be handled by several threads at the same time, <em>e.g.</em> one per {@link org.springframework.shell.ShellSession}.
+ * </p>
  *
  * @author Eric Bottard
  */
 public class TypeHierarchyResultHandler implements ResultHandler<Object> {
 
-	private Map<Class<?>, ResultHandler<?>> resultHandlers = new HashMap<>();
+	private final Map<Class<?>, ResultHandler<?>> resultHandlers = new ConcurrentHashMap<>();
+
+	/**
+	 * Handlers found by walking up the type hierarchy, per concrete result type.
+	 */
+	private final Map<Class<?>, ResultHandler<?>> resolvedHandlers = new ConcurrentReferenceHashMap<>();
 
 	@SuppressWarnings("unchecked")
 	public void handleResult(Object result) {
@@ -45,7 +54,13 @@ public class TypeHierarchyResultHandler implements ResultHandler<Object> {
 			return;
 		}
 		Class<?> clazz = result.getClass();
-		ResultHandler handler = getResultHandler(clazz);
+		ResultHandler handler = resolvedHandlers.get(clazz);
+		if (handler == null) {
+			handler = getResultHandler(clazz);
+			if (handler != null) {
+				resolvedHandlers.put(clazz, handler);
+			}
+		}
 		handler.handleResult(result);
 	}
 
@@ -78,6 +93,7 @@ public class TypeHierarchyResultHandler implements ResultHandler<Object> {
 		if (previous != null) {
 			throw new IllegalArgumentException(String.format("Multiple ResultHandlers configured for %s: both %s and %s", type, previous, resultHandler));
 		}
+		resolvedHandlers.clear();
 	}
 
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BKTree}.
+ *
+ * @author Eric Bottard
+ */
+public class BKTreeTest {
+
+	private final BKTree tree = new BKTree(Arrays.asList("stacktrace", "clear", "help", "quit", "exit", "script", "stop", "hello world", "help"));
+
+	@Test
+	public void testSearch() {
+		assertThat(tree.size()).isEqualTo(8);
+		assertThat(words("hlep", 2)).containsExactly("help");
+		assertThat(words("stpo", 2)).containsExactly("stop");
+		assertThat(words("exot", 1)).containsExactly("exit");
+		assertThat(words("hello wrld", 1)).containsExactly("hello world");
+		assertThat(words("zzzzzzz", 2)).isEmpty();
+		// Closest first, then alphabetically
+		assertThat(words("xit", 2)).containsExactly("exit", "quit");
+	}
+
+	@Test
+	public void testDistance() {
+		assertThat(BKTree.distance("kitten", "sitting", Integer.MAX_VALUE)).isEqualTo(3);
+		assertThat(BKTree.distance("", "abc", Integer.MAX_VALUE)).isEqualTo(3);
+		assertThat(BKTree.distance("kitten", "sitting", 1)).isGreaterThan(1);
+	}
+
+	private Iterable<String> words(String word, int maxDistance) {
+		return tree.search(word, maxDistance).stream().map(BKTree.Suggestion::getWord).collect(Collectors.toList());
+	}
+}
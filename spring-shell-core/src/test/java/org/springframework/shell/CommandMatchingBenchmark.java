@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the latency of the historical {@code startsWith} scan over all command names with the prefix and fuzzy
+ * lookups of {@link FuzzyMatcher}, for a growing number of commands.
+ *
+ * <p>Not a test, run manually with {@code main()}.</p>
+ *
+ * @author Eric Bottard
+ */
+public class CommandMatchingBenchmark {
+
+	private static final String[] WORDS = {"list", "create", "delete", "update", "show", "user", "group", "stream",
+			"app", "task", "job", "deploy", "undeploy", "scale", "log", "config", "server", "cluster", "node", "info"};
+
+	private static final String[] QUERIES = {"s", "st", "str", "stream-cr", "dpl", "lstusr", "zzz"};
+
+	private static final int ITERATIONS = 200;
+
+	public static void main(String[] args) {
+		System.out.printf("%10s %12s %16s %16s %16s%n", "commands", "query", "startsWith (us)", "prefix (us)", "fuzzy (us)");
+		for (int size = 1_000; size <= 100_000; size *= 10) {
+			List<String> commands = commands(size);
+			FuzzyMatcher matcher = new FuzzyMatcher(commands);
+			for (String query : QUERIES) {
+				// warm up
+				for (int i = 0; i < ITERATIONS; i++) {
+					scan(commands, query);
+					matcher.startingWith(query, 100);
+					matcher.match(query, 100);
+				}
+
+				long start = System.nanoTime();
+				for (int i = 0; i < ITERATIONS; i++) {
+					scan(commands, query);
+				}
+				double scan = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+				start = System.nanoTime();
+				for (int i = 0; i < ITERATIONS; i++) {
+					matcher.startingWith(query, 100);
+				}
+				double prefix = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+				start = System.nanoTime();
+				for (int i = 0; i < ITERATIONS; i++) {
+					matcher.match(query, 100);
+				}
+				double fuzzy = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+				System.out.printf("%10d %12s %16.1f %16.1f %16.1f%n", size, query, scan, prefix, fuzzy);
+			}
+		}
+	}
+
+	private static List<String> scan(List<String> commands, String prefix) {
+		return commands.stream().filter(c -> c.startsWith(prefix)).collect(Collectors.toList());
+	}
+
+	private static List<String> commands(int size) {
+		Random random = new Random(42);
+		List<String> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			result.add(WORDS[random.nextInt(WORDS.length)] + "-" + WORDS[random.nextInt(WORDS.length)] + "-" + i);
+		}
+		return result;
+	}
+}
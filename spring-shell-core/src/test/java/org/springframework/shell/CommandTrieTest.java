@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CommandTrie}.
+ *
+ * @author Eric Bottard
+ */
+public class CommandTrieTest {
+
+	private final CommandTrie trie = new CommandTrie(Arrays.asList("help", "hello", "hello world", "quit", "q"));
+
+	@Test
+	public void testLongestPrefix() {
+		assertThat(trie.longestPrefixOf("hello world foo")).isEqualTo("hello world");
+		assertThat(trie.longestPrefixOf("hello worl")).isEqualTo("hello");
+		assertThat(trie.longestPrefixOf("help me")).isEqualTo("help");
+		assertThat(trie.longestPrefixOf("hel")).isNull();
+		assertThat(trie.longestPrefixOf("quit")).isEqualTo("quit");
+		assertThat(trie.longestPrefixOf("qu")).isEqualTo("q");
+		assertThat(trie.longestPrefixOf("")).isNull();
+		assertThat(new CommandTrie(Collections.emptyList()).longestPrefixOf("help")).isNull();
+	}
+}
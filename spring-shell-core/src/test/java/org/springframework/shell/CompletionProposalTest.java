@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.shell;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompletionProposal}.
+ *
+ * @author Eric Bottard
+ */
+public class CompletionProposalTest {
+
+	@Test
+	public void testLazyMetadataIsComputedOnDemand() {
+		AtomicInteger calls = new AtomicInteger();
+		CompletionProposal proposal = new CompletionProposal("foo")
+			.lazyDisplayText(() -> "foo" + calls.incrementAndGet())
+			.lazyDescription(() -> "The foo command " + calls.incrementAndGet())
+			.lazyCategory(() -> "Foos " + calls.incrementAndGet());
+		assertThat(calls.get()).isEqualTo(0);
+
+		assertThat(proposal.description()).isEqualTo("The foo command 1");
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(proposal.description()).isEqualTo("The foo command 1");
+		assertThat(proposal.displayText()).isEqualTo("foo2");
+		assertThat(proposal.category()).isEqualTo("Foos 3");
+		assertThat(proposal.displayText()).isEqualTo("foo2");
+		assertThat(proposal.category()).isEqualTo("Foos 3");
+		assertThat(calls.get()).isEqualTo(3);
+	}
+
+	@Test
+	public void testPlainMetadata() {
+		CompletionProposal proposal = new CompletionProposal("foo").description(null).category("Foos");
+		assertThat(proposal.description()).isNull();
+		assertThat(proposal.category()).isEqualTo("Foos");
+		assertThat(proposal.displayText()).isEqualTo("foo");
+		assertThat(proposal.value("bar").displayText()).isEqualTo("foo");
+	}
+
+	@Test
+	public void testLazyMetadataIsComputedOnceAcrossThreads() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CompletionProposal proposal = new CompletionProposal("foo")
+			.lazyDescription(() -> "The foo command " + calls.incrementAndGet());
+
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<String>> descriptions = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				descriptions.add(threads.submit(() -> {
+					start.await();
+					return proposal.description();
+				}));
+			}
+			start.countDown();
+			for (Future<String> description : descriptions) {
+				assertThat(description.get(5, TimeUnit.SECONDS)).isEqualTo("The foo command 1");
+			}
+			assertThat(calls.get()).isEqualTo(1);
+		}
+		finally {
+			threads.shutdownNow();
+		}
+	}
+}
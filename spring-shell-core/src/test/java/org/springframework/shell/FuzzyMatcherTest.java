@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FuzzyMatcher}.
+ *
+ * @author Eric Bottard
+ */
+public class FuzzyMatcherTest {
+
+	private final FuzzyMatcher matcher = new FuzzyMatcher(Arrays.asList("stacktrace", "clear", "help", "quit", "exit", "script", "stop"));
+
+	@Test
+	public void testStartingWith() {
+		assertThat(matcher.startingWith("s", 10)).containsExactly("script", "stacktrace", "stop");
+		assertThat(matcher.startingWith("s", 2)).containsExactly("script", "stacktrace");
+		assertThat(matcher.startingWith("x", 10)).isEmpty();
+	}
+
+	@Test
+	public void testMatch() {
+		assertThat(matcher.match("stk", 10)).containsExactly("stacktrace");
+		// Start of candidate and consecutive characters are preferred
+		assertThat(matcher.match("st", 10)).containsExactly("stop", "stacktrace", "script");
+		assertThat(matcher.match("st", 1)).containsExactly("stop");
+		assertThat(matcher.match("QT", 10)).containsExactly("quit");
+		assertThat(matcher.match("zz", 10)).isEmpty();
+	}
+
+	@Test
+	public void testScore() {
+		assertThat(FuzzyMatcher.score("--nme", "--name")).isGreaterThan(FuzzyMatcher.score("--nme", "--no-more-errors"));
+		assertThat(FuzzyMatcher.score("--nme", "--force")).isEqualTo(-1);
+	}
+
+	@Test
+	public void testMatchIgnoresDefaultLocale() {
+		Locale locale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr"));
+		try {
+			assertThat(new FuzzyMatcher(Arrays.asList("QUIT", "exit")).match("qi", 10)).containsExactly("QUIT");
+			assertThat(FuzzyMatcher.score("I", "item")).isGreaterThan(-1);
+		}
+		finally {
+			Locale.setDefault(locale);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ShellSession}.
+ *
+ * @author Eric Bottard
+ */
+public class ShellSessionTest {
+
+	@Test
+	public void testDefaultSession() {
+		ShellSession session = ShellSession.current();
+		assertThat(session.getTerminal()).isNull();
+		assertThat(session.getHistory()).isNull();
+		assertThat(ShellSession.current()).isSameAs(session);
+	}
+
+	@Test
+	public void testNestedBindings() {
+		ShellSession outer = new ShellSession("outer", null, null);
+		ShellSession inner = new ShellSession("inner", null, null);
+		ShellSession initial = ShellSession.current();
+		try (ShellSession.Binding o = outer.bind()) {
+			assertThat(ShellSession.current()).isSameAs(outer);
+			try (ShellSession.Binding i = inner.bind()) {
+				assertThat(ShellSession.current()).isSameAs(inner);
+			}
+			assertThat(ShellSession.current()).isSameAs(outer);
+		}
+		assertThat(ShellSession.current()).isSameAs(initial);
+	}
+
+	@Test
+	public void testBindingIsPerThread() throws InterruptedException {
+		ShellSession session = new ShellSession("mine", null, null);
+		AtomicReference<ShellSession> seenByOtherThread = new AtomicReference<>();
+		try (ShellSession.Binding binding = session.bind()) {
+			session.setLastError(new IllegalStateException());
+			Thread other = new Thread(() -> seenByOtherThread.set(ShellSession.current()));
+			other.start();
+			other.join();
+		}
+		assertThat(seenByOtherThread.get()).isNotSameAs(session);
+		assertThat(seenByOtherThread.get().getLastError()).isNull();
+	}
+
+	@Test
+	public void testCall() {
+		ShellSession session = new ShellSession("mine", null, null);
+		ShellSession initial = ShellSession.current();
+		assertThat(session.call(ShellSession::current)).isSameAs(session);
+		assertThatThrownBy(() -> session.call(() -> {
+			throw new IOException("boom");
+		})).isInstanceOf(IOException.class);
+		assertThat(ShellSession.current()).isSameAs(initial);
+	}
+}
@@ -17,21 +17,39 @@
 package org.springframework.shell;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import org.springframework.core.MethodParameter;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -102,6 +120,29 @@ public class ShellTest {
 		}
 	}
 
+	@Test
+	public void commandNotFoundSuggestions() throws IOException {
+		when(inputProvider.readInput()).thenReturn(() -> "helo wrld how are you doing ?");
+		doThrow(new Exit()).when(resultHandler).handleResult(any(CommandNotFound.class));
+
+		Map<String, MethodTarget> methodTargets = new HashMap<>();
+		methodTargets.put("hello world", MethodTarget.of("helloWorld", this, "Say hello"));
+		methodTargets.put("help", MethodTarget.of("helloWorld", this, "Say hello"));
+		methodTargets.put("goodbye", MethodTarget.of("helloWorld", this, "Say hello"));
+		shell.methodTargets = methodTargets;
+
+		try {
+			shell.run();
+			fail("Exit expected");
+		}
+		catch (Exit expected) {
+
+		}
+		ArgumentCaptor<CommandNotFound> captor = ArgumentCaptor.forClass(CommandNotFound.class);
+		verify(resultHandler).handleResult(captor.capture());
+		assertThat(captor.getValue().getSuggestions()).containsExactly("help", "hello world");
+	}
+
 	@Test
 	public void noCommand() throws IOException {
 		when(parameterResolver.supports(any())).thenReturn(true);
@@ -123,6 +164,108 @@ public class ShellTest {
 		Assert.assertTrue(invoked);
 	}
 
+	@Test
+	public void diagnose() {
+		when(parameterResolver.supports(any())).thenReturn(true);
+		when(parameterResolver.isPure(any())).thenReturn(true);
+		IllegalArgumentException problem = new IllegalArgumentException("wrong");
+		when(parameterResolver.resolve(any(), any())).thenThrow(problem);
+
+		shell.methodTargets = Collections.singletonMap("hello world", MethodTarget.of("helloWorld", this, "Say hello"));
+
+		assertThat(shell.diagnose(Arrays.asList("hello", "world", "foo"))).containsExactly(problem);
+		assertThat(shell.diagnose(Arrays.asList("bonjour", "world"))).isEmpty();
+	}
+
+	@Test
+	public void speculativeResolution() throws IOException {
+		when(parameterResolver.supports(any())).thenReturn(true);
+		when(parameterResolver.isPure(any())).thenReturn(true);
+		when(inputProvider.readInput()).thenReturn(() -> "hello world foo");
+		valueResult = new ValueResult(null, "test");
+		when(parameterResolver.resolve(any(), any())).thenReturn(valueResult);
+		doThrow(new Exit()).when(resultHandler).handleResult(any());
+
+		shell.methodTargets = Collections.singletonMap("hello world", MethodTarget.of("helloWorld", this, "Say hello"));
+		shell.setSpeculativeResolution(true);
+
+		shell.speculate(Arrays.asList("hello", "world", "foo", ""));
+		verify(parameterResolver, timeout(5000)).resolve(any(), any());
+		try {
+			shell.run();
+			fail("Exit expected");
+		}
+		catch (Exit expected) {
+
+		}
+
+		Assert.assertTrue(invoked);
+		// Arguments were prepared ahead of time, and not resolved again
+		verify(parameterResolver, times(1)).resolve(any(), any());
+	}
+
+	@Test
+	public void speculativeResolutionIsLeftToTheThreadThatAskedForIt() throws Exception {
+		when(parameterResolver.supports(any())).thenReturn(true);
+		when(parameterResolver.isPure(any())).thenReturn(true);
+		when(inputProvider.readInput()).thenReturn(() -> "hello world foo");
+		valueResult = new ValueResult(null, "test");
+		when(parameterResolver.resolve(any(), any())).thenReturn(valueResult);
+		doThrow(new Exit()).when(resultHandler).handleResult(any());
+
+		shell.methodTargets = Collections.singletonMap("hello world", MethodTarget.of("helloWorld", this, "Say hello"));
+		shell.setSpeculativeResolution(true);
+
+		shell.speculate(Arrays.asList("hello", "world", "foo", ""));
+		verify(parameterResolver, timeout(5000)).resolve(any(), any());
+		// Another thread without a session of its own, sharing the default one
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			assertThat(executor.submit(() -> shell.execute(Arrays.asList("hello", "world", "foo"))).get().isSuccess()).isTrue();
+		}
+		finally {
+			executor.shutdown();
+		}
+		verify(parameterResolver, times(2)).resolve(any(), any());
+		try {
+			shell.run();
+			fail("Exit expected");
+		}
+		catch (Exit expected) {
+
+		}
+
+		// The speculation was still there for the interactive user
+		verify(parameterResolver, times(2)).resolve(any(), any());
+	}
+
+	@Test
+	public void speculativeResolutionAfterShutdown() throws IOException {
+		when(parameterResolver.supports(any())).thenReturn(true);
+		when(parameterResolver.isPure(any())).thenReturn(true);
+		when(inputProvider.readInput()).thenReturn(() -> "hello world foo");
+		valueResult = new ValueResult(null, "test");
+		when(parameterResolver.resolve(any(), any())).thenReturn(valueResult);
+		doThrow(new Exit()).when(resultHandler).handleResult(any());
+
+		shell.methodTargets = Collections.singletonMap("hello world", MethodTarget.of("helloWorld", this, "Say hello"));
+		shell.setSpeculativeResolution(true);
+
+		shell.shutdown();
+		shell.speculate(Arrays.asList("hello", "world", "foo", ""));
+		verify(parameterResolver, after(200).never()).resolve(any(), any());
+		try {
+			shell.run();
+			fail("Exit expected");
+		}
+		catch (Exit expected) {
+
+		}
+
+		Assert.assertTrue(invoked);
+		verify(parameterResolver, times(1)).resolve(any(), any());
+	}
+
 	@Test
 	public void commandThrowingAnException() throws IOException {
 		when(parameterResolver.supports(any())).thenReturn(true);
@@ -143,6 +286,95 @@ public class ShellTest {
 
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void execute() {
+		when(parameterResolver.supports(any())).thenReturn(true);
+		when(parameterResolver.resolve(any(), any())).thenAnswer(i -> new ValueResult(null, ((List<String>) i.getArguments()[1]).get(0)));
+		shell.methodTargets = Collections.singletonMap("echo", MethodTarget.of("echo", this, "Echo its argument"));
+
+		ExecutionResult result = shell.execute("echo  foo ");
+		assertThat(result.isSuccess()).isTrue();
+		assertThat(result.getCommand()).isEqualTo("echo");
+		assertThat(result.getWords()).containsExactly("echo", "foo");
+		assertThat(result.getValue()).isEqualTo("foo");
+		assertThat(result.getResult()).isEqualTo("foo");
+		assertThat(result.getDuration()).isGreaterThanOrEqualTo(result.getResolutionTime().plus(result.getInvocationTime()));
+
+		result = shell.execute("echo 'foo  bar'");
+		assertThat(result.getWords()).containsExactly("echo", "foo  bar");
+		assertThat(result.getValue()).isEqualTo("foo  bar");
+
+		assertThat(shell.execute(Collections.emptyList()).getResult()).isNull();
+		verify(resultHandler, never()).handleResult(any());
+	}
+
+	@Test
+	public void usageIsOnlyRecordedForRecordableParameters() {
+		UsageStatistics usageStatistics = new UsageStatistics((Path) null, UsageStatistics.DEFAULT_HALF_LIFE, 100);
+		shell.setUsageStatistics(usageStatistics);
+		when(parameterResolver.supports(any())).thenReturn(true);
+		when(parameterResolver.resolve(any(), any())).thenAnswer(i -> {
+			BitSet used = new BitSet();
+			used.set(0);
+			return new ValueResult((MethodParameter) i.getArguments()[0], "secret", used, used);
+		});
+		MethodTarget echo = MethodTarget.of("echo", this, "Echo its argument");
+		shell.methodTargets = Collections.singletonMap("echo", echo);
+		String category = UsageStatistics.categoryFor(Utils.createMethodParameter(echo.getMethod(), 0));
+
+		shell.execute(Arrays.asList("echo", "secret"));
+		assertThat(usageStatistics.mostUsed(Shell.COMMAND_USAGE, "", 10)).containsExactly("echo");
+		assertThat(usageStatistics.mostUsed(category, "", 10)).isEmpty();
+
+		when(parameterResolver.isRecordable(any())).thenReturn(true);
+		shell.execute(Arrays.asList("echo", "secret"));
+		assertThat(usageStatistics.mostUsed(category, "", 10)).containsExactly("secret");
+	}
+
+	@Test
+	public void executeFailures() {
+		when(parameterResolver.supports(any())).thenReturn(true);
+		shell.methodTargets = Collections.singletonMap("fail", MethodTarget.of("failing", this, "Will throw an exception"));
+
+		ExecutionResult result = shell.execute(Arrays.asList("fail"));
+		assertThat(result.isSuccess()).isFalse();
+		assertThat(result.getCommand()).isEqualTo("fail");
+		assertThat(result.getException()).isInstanceOf(SomeException.class);
+		assertThat(result.getResult()).isSameAs(result.getException());
+
+		result = shell.execute("bonjour");
+		assertThat(result.getCommand()).isNull();
+		assertThat(result.getException()).isInstanceOf(CommandNotFound.class);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void executeConcurrently() throws Exception {
+		when(parameterResolver.supports(any())).thenReturn(true);
+		when(parameterResolver.resolve(any(), any())).thenAnswer(i -> new ValueResult(null, ((List<String>) i.getArguments()[1]).get(0)));
+		shell.methodTargets = Collections.singletonMap("echo", MethodTarget.of("echo", this, "Echo its argument"));
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<ExecutionResult>> futures = new ArrayList<>();
+			for (int i = 0; i < 400; i++) {
+				String word = "w" + i;
+				futures.add(executor.submit(() -> shell.execute(Arrays.asList("echo", word))));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				assertThat(futures.get(i).get().getValue()).isEqualTo("w" + i);
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private String echo(String a) {
+		return a;
+	}
+
 	private void helloWorld(String a) {
 		invoked = true;
 	}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link UsageStatistics}.
+ *
+ * @author Eric Bottard
+ */
+public class UsageStatisticsTest {
+
+	private static final long HOUR = 60 * 60 * 1000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testDecay() {
+		UsageStatistics statistics = new UsageStatistics((Path) null, HOUR, 100);
+		statistics.record("command", "help", 0L);
+		statistics.record("command", "help", 0L);
+		assertThat(statistics.score("command", "help", 0L)).isEqualTo(2d);
+		assertThat(statistics.score("command", "help", HOUR)).isEqualTo(1d);
+		statistics.record("command", "help", 2 * HOUR);
+		assertThat(statistics.score("command", "help", 2 * HOUR)).isEqualTo(1.5d);
+		assertThat(statistics.score("command", "quit", 2 * HOUR)).isEqualTo(0d);
+		assertThat(statistics.score("other", "help", 2 * HOUR)).isEqualTo(0d);
+	}
+
+	@Test
+	public void testRanking() {
+		UsageStatistics statistics = new UsageStatistics((Path) null, HOUR, 100);
+		statistics.record("command", "stop");
+		statistics.record("command", "stop");
+		statistics.record("command", "script");
+		assertThat(statistics.mostUsed("command", "s", 10)).containsExactly("stop", "script");
+		assertThat(statistics.mostUsed("command", "sc", 10)).containsExactly("script");
+		assertThat(statistics.rank("command", Arrays.asList("clear", "script", "stacktrace", "stop"), s -> s))
+			.containsExactly("stop", "script", "clear", "stacktrace");
+	}
+
+	@Test
+	public void testLongItemsAreIgnored() {
+		UsageStatistics statistics = new UsageStatistics((Path) null, HOUR, 100);
+		char[] item = new char[UsageStatistics.MAXIMUM_ITEM_LENGTH + 1];
+		Arrays.fill(item, 'x');
+		statistics.record("value", new String(item));
+		assertThat(statistics.mostUsed("value", "", 10)).isEmpty();
+	}
+
+	@Test
+	public void testPersistence() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("sub/usage.bin");
+		UsageStatistics statistics = new UsageStatistics(file, HOUR, 2);
+		statistics.record("command", "help", 0L);
+		statistics.record("command", "help", 0L);
+		statistics.record("command", "quit", 0L);
+		statistics.record("values", "42", 0L);
+		statistics.close();
+
+		UsageStatistics reloaded = new UsageStatistics(file, HOUR, 2);
+		assertThat(reloaded.score("command", "help", 0L)).isCloseTo(2d, within(0.001d));
+		assertThat(reloaded.score("values", "42", 0L)).isCloseTo(1d, within(0.001d));
+		// Least used items are discarded
+		assertThat(reloaded.score("command", "quit", 0L) + reloaded.score("values", "42", 0L)).isCloseTo(1d, within(0.001d));
+	}
+
+	@Test
+	public void testConcurrentShellsMergeTheirUses() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("usage.bin");
+		UsageStatistics first = new UsageStatistics(file, HOUR, 100);
+		UsageStatistics second = new UsageStatistics(file, HOUR, 100);
+		assertThat(first.score("command", "help", 0L)).isEqualTo(0d);
+		assertThat(second.score("command", "help", 0L)).isEqualTo(0d);
+
+		first.record("command", "help", 0L);
+		second.record("command", "help", 0L);
+		second.record("command", "quit", 0L);
+		first.close();
+		second.close();
+
+		UsageStatistics reloaded = new UsageStatistics(file, HOUR, 100);
+		assertThat(reloaded.score("command", "help", 0L)).isCloseTo(2d, within(0.001d));
+		assertThat(reloaded.score("command", "quit", 0L)).isCloseTo(1d, within(0.001d));
+		// The last shell to write also picks up what the others wrote
+		assertThat(second.score("command", "help", 0L)).isCloseTo(2d, within(0.001d));
+	}
+}
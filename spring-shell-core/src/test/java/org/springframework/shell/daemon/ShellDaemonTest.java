@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.daemon;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.shell.ExitRequest;
+import org.springframework.shell.MethodTarget;
+import org.springframework.shell.ResultHandler;
+import org.springframework.shell.ServerAdvertisement;
+import org.springframework.shell.Shell;
+import org.springframework.shell.ShellSession;
+
+/**
+ * Tests for {@link ShellDaemon} and {@link DaemonClient}.
+ *
+ * @author Eric Bottard
+ */
+public class ShellDaemonTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Shell shell;
+
+	private Path file;
+
+	private ShellDaemon daemon;
+
+	private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+	private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+	@Before
+	public void setUp() throws IOException {
+		Map<String, MethodTarget> commands = new HashMap<>();
+		commands.put("cat", MethodTarget.of("cat", this, "Echo standard input"));
+		commands.put("fail", MethodTarget.of("fail", this, "Fail"));
+		commands.put("quit", MethodTarget.of("quit", this, "Exit with a given status"));
+		shell = new Shell(null, null) {
+			{
+				methodTargets = commands;
+			}
+		};
+		file = folder.getRoot().toPath().resolve("daemon");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (daemon != null) {
+			daemon.stop();
+		}
+	}
+
+	public String cat() throws IOException {
+		Reader reader = ShellSession.current().getTerminal().reader();
+		StringBuilder sb = new StringBuilder();
+		for (int c = reader.read(); c >= 0; c = reader.read()) {
+			sb.append((char) c);
+		}
+		return sb.toString();
+	}
+
+	public void fail() {
+		throw new IllegalStateException("boom");
+	}
+
+	public void quit() {
+		throw new ExitRequest(3);
+	}
+
+	private ShellDaemon startDaemon(long idleTimeout, Runnable eviction) throws IOException {
+		return startDaemon(idleTimeout, ShellDaemon.DEFAULT_MAX_CONNECTIONS, eviction);
+	}
+
+	private ShellDaemon startDaemon(long idleTimeout, int maxConnections, Runnable eviction) throws IOException {
+		// Results are written to the terminal of the invocation that produced them
+		ResultHandler<Object> resultHandler = result -> ShellSession.current().getTerminal().writer().print(
+			result instanceof Throwable ? "error: " + ((Throwable) result).getMessage() : "result: " + result);
+		daemon = new ShellDaemon(shell, resultHandler, file, idleTimeout, maxConnections, eviction);
+		daemon.start();
+		return daemon;
+	}
+
+	private int run(String stdin, String... args) throws IOException {
+		Socket socket = DaemonClient.connect(file);
+		assertThat(socket).isNotNull();
+		return DaemonClient.run(socket, args, new ByteArrayInputStream(stdin.getBytes(StandardCharsets.UTF_8)),
+			stdout, stderr);
+	}
+
+	@Test
+	public void testForwardsStreamsAndStatus() throws IOException {
+		startDaemon(0, () -> {});
+
+		assertThat(run("héllo\nworld", "cat")).isEqualTo(0);
+		assertThat(stdout.toString("UTF-8")).isEqualTo("result: héllo\nworld");
+		assertThat(stderr.size()).isEqualTo(0);
+
+		stdout.reset();
+		assertThat(run("", "fail")).isEqualTo(1);
+		assertThat(stdout.size()).isEqualTo(0);
+		assertThat(stderr.toString("UTF-8")).isEqualTo("error: boom");
+
+		assertThat(run("", "quit")).isEqualTo(3);
+	}
+
+	@Test
+	public void testNoDaemon() throws IOException {
+		assertThat(DaemonClient.connect(file)).isNull();
+		startDaemon(0, () -> {});
+		daemon.stop();
+		assertThat(Files.exists(file)).isFalse();
+		assertThat(DaemonClient.connect(file)).isNull();
+	}
+
+	@Test
+	public void testConcurrentClientsStartASingleDaemon() throws Exception {
+		AtomicInteger starts = new AtomicInteger();
+		DaemonClient.Starter starter = f -> {
+			starts.incrementAndGet();
+			Thread.sleep(100);
+			startDaemon(0, () -> {});
+			return DaemonClient.connect(f);
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Socket>> clients = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				clients.add(executor.submit(() -> DaemonClient.connectOrStart(file, starter)));
+			}
+			for (Future<Socket> client : clients) {
+				try (Socket socket = client.get(5, TimeUnit.SECONDS)) {
+					assertThat(socket).isNotNull();
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(starts.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void testMaxConnections() throws IOException {
+		startDaemon(0, 1, () -> {});
+		try (Socket pending = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+			assertThatThrownBy(() -> run("", "quit")).isInstanceOf(IOException.class);
+		}
+	}
+
+	@Test
+	public void testRejectsWrongToken() throws IOException {
+		startDaemon(0, () -> {});
+		String guess = String.join("", Collections.nCopies(ServerAdvertisement.TOKEN_LENGTH, "0"));
+		Files.write(file, (daemon.getPort() + " " + guess).getBytes(StandardCharsets.UTF_8));
+		try (Socket socket = DaemonClient.connect(file)) {
+			assertThat(socket.getInputStream().read()).isEqualTo(-1);
+		}
+	}
+
+	@Test
+	public void testEvictsItselfWhenIdle() throws Exception {
+		CountDownLatch evicted = new CountDownLatch(1);
+		startDaemon(200, evicted::countDown);
+		assertThat(run("", "quit")).isEqualTo(3);
+		assertThat(evicted.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(Files.exists(file)).isFalse();
+	}
+
+	@Test
+	public void testConnectionsWithoutTokenDontPreventEviction() throws Exception {
+		CountDownLatch evicted = new CountDownLatch(1);
+		startDaemon(200, evicted::countDown);
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+			assertThat(evicted.await(2, TimeUnit.SECONDS)).isTrue();
+		}
+	}
+}
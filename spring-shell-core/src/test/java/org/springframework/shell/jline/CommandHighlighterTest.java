@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.jline.reader.LineReader;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStyle;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.shell.CompletionContext;
+import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.MethodTarget;
+import org.springframework.shell.ParameterDescription;
+import org.springframework.shell.ParameterResolver;
+import org.springframework.shell.Shell;
+import org.springframework.shell.ValueResult;
+
+/**
+ * Tests for {@link CommandHighlighter}.
+ *
+ * @author Eric Bottard
+ */
+public class CommandHighlighterTest {
+
+	private static final AttributedStyle RED = AttributedStyle.DEFAULT.foreground(AttributedStyle.RED);
+
+	private static final AttributedStyle CYAN = AttributedStyle.DEFAULT.foreground(AttributedStyle.CYAN);
+
+	private final CommandHighlighter highlighter = new CommandHighlighter();
+
+	private final LineReader reader = mock(LineReader.class);
+
+	@Before
+	public void setUp() {
+		Map<String, MethodTarget> commands = new HashMap<>();
+		commands.put("connect", MethodTarget.of("connect", this, "Connect somewhere"));
+		Shell shell = new Shell(null, null) {
+			{
+				methodTargets = commands;
+			}
+		};
+		highlighter.setShell(shell);
+		highlighter.setParameterResolvers(Collections.singletonList(new KeyedParameterResolver()));
+		highlighter.setConversionService(new DefaultConversionService());
+		highlighter.setTimeBudget(Long.MAX_VALUE / 2);
+		when(reader.getParser()).thenReturn(new ExtendedDefaultParser());
+	}
+
+	@Test
+	public void testUnknownCommand() {
+		AttributedString result = highlighter.highlight(reader, "conect --port 12");
+		assertThat(result.toString()).isEqualTo("conect --port 12");
+		assertThat(result.styleAt(0)).isEqualTo(RED);
+		assertThat(result.styleAt(15)).isEqualTo(RED);
+	}
+
+	@Test
+	public void testArguments() {
+		String buffer = "connect --port 12 --force  --bogus x foo";
+		AttributedString result = highlighter.highlight(reader, buffer);
+		assertThat(result.toString()).isEqualTo(buffer);
+		assertThat(result.styleAt(0)).isEqualTo(AttributedStyle.BOLD);
+		assertThat(result.styleAt(buffer.indexOf("--port"))).isEqualTo(CYAN);
+		assertThat(result.styleAt(buffer.indexOf("12"))).isEqualTo(AttributedStyle.DEFAULT);
+		assertThat(result.styleAt(buffer.indexOf("--force"))).isEqualTo(CYAN);
+		assertThat(result.styleAt(buffer.indexOf("--bogus"))).isEqualTo(RED);
+		// Bound by position
+		assertThat(result.styleAt(buffer.indexOf("foo"))).isEqualTo(AttributedStyle.DEFAULT);
+	}
+
+	@Test
+	public void testInvalidValues() {
+		String buffer = "connect --host foo twelve";
+		AttributedString result = highlighter.highlight(reader, buffer);
+		assertThat(result.styleAt(buffer.indexOf("foo"))).isEqualTo(AttributedStyle.DEFAULT);
+		// Bound to port by position
+		assertThat(result.styleAt(buffer.indexOf("twelve"))).isEqualTo(RED.underline());
+	}
+
+	@Test
+	public void testKeyBeingTyped() {
+		assertThat(highlighter.highlight(reader, "connect --po").styleAt(9)).isEqualTo(AttributedStyle.DEFAULT);
+		assertThat(highlighter.highlight(reader, "connect --pa").styleAt(9)).isEqualTo(RED);
+		assertThat(highlighter.highlight(reader, "connect --po ").styleAt(9)).isEqualTo(RED);
+	}
+
+	@Test
+	public void testTimeBudget() {
+		highlighter.setTimeBudget(0L);
+		String buffer = "connect --bogus";
+		AttributedString result = highlighter.highlight(reader, buffer);
+		assertThat(result.toString()).isEqualTo(buffer);
+		assertThat(result.styleAt(0)).isEqualTo(AttributedStyle.BOLD);
+		assertThat(result.styleAt(buffer.indexOf("--bogus"))).isEqualTo(AttributedStyle.DEFAULT);
+	}
+
+	@Test
+	public void testArgumentsLeftAsIsWhenArityIsUnknown() {
+		highlighter.setParameterResolvers(Collections.singletonList(new KeyedParameterResolver() {
+
+			@Override
+			public Stream<ParameterDescription> describe(MethodParameter parameter) {
+				return super.describe(parameter).map(d -> ParameterDescription.outOf(parameter).keys(d.keys()).formal(d.formal()));
+			}
+		}));
+		String buffer = "connect --bogus twelve";
+		AttributedString result = highlighter.highlight(reader, buffer);
+		assertThat(result.toString()).isEqualTo(buffer);
+		assertThat(result.styleAt(0)).isEqualTo(AttributedStyle.BOLD);
+		assertThat(result.styleAt(buffer.indexOf("--bogus"))).isEqualTo(AttributedStyle.DEFAULT);
+		assertThat(result.styleAt(buffer.indexOf("twelve"))).isEqualTo(AttributedStyle.DEFAULT);
+	}
+
+	public void connect(int port, String host, boolean force) {
+
+	}
+
+	/**
+	 * Describes parameters with keys made of their names, the way most resolvers would.
+	 */
+	private static class KeyedParameterResolver implements ParameterResolver {
+
+		private static final String[] NAMES = {"port", "host", "force"};
+
+		@Override
+		public boolean supports(MethodParameter parameter) {
+			return true;
+		}
+
+		@Override
+		public ValueResult resolve(MethodParameter methodParameter, List<String> words) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Stream<ParameterDescription> describe(MethodParameter parameter) {
+			Class<?> type = parameter.getParameterType();
+			return Stream.of(ParameterDescription.outOf(parameter)
+				.keys(Collections.singletonList("--" + NAMES[parameter.getParameterIndex()]))
+				.formal(type == boolean.class ? "" : type.getSimpleName())
+				.arity(type == boolean.class ? 0 : 1));
+		}
+
+		@Override
+		public List<CompletionProposal> complete(MethodParameter parameter, CompletionContext context) {
+			return Collections.emptyList();
+		}
+	}
+}
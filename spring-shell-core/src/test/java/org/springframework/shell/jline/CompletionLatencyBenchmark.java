@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jline.reader.Candidate;
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser.ParseContext;
+
+import org.springframework.shell.CompletionContext;
+import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.Shell;
+
+/**
+ * Measures the time spent tokenizing and preparing the completion context of a line, simulating a user typing one
+ * more character and pressing TAB, as the line grows longer.
+ *
+ * <p>Not a test, run manually with {@code main()}. The shell itself is stubbed out so that only the overhead of the
+ * JLine integration is measured.</p>
+ *
+ * @author Eric Bottard
+ */
+public class CompletionLatencyBenchmark {
+
+	private static final int ITERATIONS = 2_000;
+
+	public static void main(String[] args) {
+		System.out.printf("%8s %16s %16s%n", "words", "fresh (us)", "incremental (us)");
+		for (int words = 10; words <= 5_000; words *= 2) {
+			String line = line(words);
+			// warm up
+			measure(line, false);
+			measure(line, true);
+			System.out.printf("%8d %16.2f %16.2f%n", words, measure(line, false), measure(line, true));
+		}
+	}
+
+	private static String line(int words) {
+		StringBuilder sb = new StringBuilder("command");
+		for (int i = 0; i < words; i++) {
+			sb.append(i % 3 == 0 ? " --option" : " 'quoted value'").append(i);
+		}
+		return sb.append(' ').toString();
+	}
+
+	/**
+	 * Return the average time in microseconds to complete the given line after one more character is typed.
+	 */
+	private static double measure(String line, boolean incremental) {
+		ExtendedDefaultParser parser = new ExtendedDefaultParser();
+		JLineShell.CompleterAdapter completer = new JLineShell.CompleterAdapter();
+		completer.setShell(new NoOpShell());
+		List<Candidate> candidates = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			String typed = line + (char) ('a' + i % 26);
+			ExtendedDefaultParser used = incremental ? parser : new ExtendedDefaultParser();
+			ParsedLine parsed = used.parse(typed, typed.length(), ParseContext.COMPLETE);
+			completer.complete(null, parsed, candidates);
+		}
+		return (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+	}
+
+	private static class NoOpShell extends Shell {
+
+		private NoOpShell() {
+			super(null, null);
+		}
+
+		@Override
+		public List<CompletionProposal> complete(CompletionContext context) {
+			context.upToCursor();
+			return Collections.emptyList();
+		}
+	}
+}
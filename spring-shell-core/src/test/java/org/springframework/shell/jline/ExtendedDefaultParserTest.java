@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser.ParseContext;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ExtendedDefaultParser}.
+ *
+ * @author Eric Bottard
+ */
+public class ExtendedDefaultParserTest {
+
+	private final ExtendedDefaultParser parser = new ExtendedDefaultParser();
+
+	@Test
+	public void testIncrementalParsingWhileTyping() {
+		String line = "add --foo 'hello world' bar\\ baz \"qu\\\"ux\"  --last x";
+		for (int i = 0; i <= line.length(); i++) {
+			assertSameAsFreshParse(line.substring(0, i), i);
+		}
+	}
+
+	@Test
+	public void testIncrementalParsingAfterEdits() {
+		assertSameAsFreshParse("foo bar baz", 11);
+		// cursor moved back, text unchanged
+		assertSameAsFreshParse("foo bar baz", 5);
+		// change in the middle of a word
+		assertSameAsFreshParse("foo bxr baz", 11);
+		// opening a quote swallows the following words
+		assertSameAsFreshParse("foo 'bxr baz", 12);
+		assertSameAsFreshParse("foo bar", 7);
+		// escaping the delimiter merges two words
+		assertSameAsFreshParse("foo bar\\ baz", 12);
+		assertSameAsFreshParse("foo bar baz qux", 3);
+		assertSameAsFreshParse("", 0);
+	}
+
+	private void assertSameAsFreshParse(String line, int cursor) {
+		ParsedLine incremental = parser.parse(line, cursor, ParseContext.COMPLETE);
+		ParsedLine fresh = new ExtendedDefaultParser().parse(line, cursor, ParseContext.COMPLETE);
+		assertThat(incremental.words()).as("words of [%s]", line).isEqualTo(fresh.words());
+		assertThat(incremental.wordIndex()).as("word index of [%s]", line).isEqualTo(fresh.wordIndex());
+		assertThat(incremental.wordCursor()).as("word cursor of [%s]", line).isEqualTo(fresh.wordCursor());
+		assertThat(incremental.word()).as("word of [%s]", line).isEqualTo(fresh.word());
+		assertThat(locations(incremental)).as("word locations of [%s]", line).isEqualTo(locations(fresh));
+	}
+
+	@Test
+	public void testSplitWords() {
+		assertThat(ExtendedDefaultParser.splitWords("")).isEmpty();
+		assertThat(ExtendedDefaultParser.splitWords("  ")).isEmpty();
+		assertThat(ExtendedDefaultParser.splitWords(" add  'hello world' bar\\ baz ")).containsExactly("add", "hello world", "bar baz");
+		assertThat(ExtendedDefaultParser.splitWords("add \"\"")).containsExactly("add", "");
+	}
+
+	@Test
+	public void testWordLocations() {
+		assertThat(locations(parser.parse("foo  'bar baz' qu\\ ux", 0, ParseContext.COMPLETE)))
+			.containsExactly(0, 3, 5, 14, 15, 21);
+		assertThat(locations(parser.parse("foo ", 4, ParseContext.COMPLETE))).containsExactly(0, 3);
+	}
+
+	private List<Integer> locations(ParsedLine line) {
+		ExtendedDefaultParser.ExtendedArgumentList list = (ExtendedDefaultParser.ExtendedArgumentList) line;
+		List<Integer> result = new ArrayList<>();
+		for (int i = 0; i < list.locatedWords(); i++) {
+			result.add(list.wordStart(i));
+			result.add(list.wordEnd(i));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.jline.reader.History;
+import org.jline.reader.LineReader;
+import org.jline.reader.impl.BufferImpl;
+import org.jline.terminal.Terminal;
+import org.jline.utils.AttributedString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.ConversionFailedException;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.shell.CompletionContext;
+import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.ParameterDescription;
+import org.springframework.shell.ParameterMissingResolutionException;
+import org.springframework.shell.Shell;
+
+/**
+ * Tests for {@link InlineSuggestions}.
+ *
+ * @author Eric Bottard
+ */
+public class InlineSuggestionsTest {
+
+	private final InlineSuggestions suggestions = new InlineSuggestions(0L);
+
+	private final LineReader reader = mock(LineReader.class);
+
+	@Before
+	public void setUp() {
+		suggestions.setShell(new StubShell());
+		when(reader.getParser()).thenReturn(new ExtendedDefaultParser());
+		History history = mock(History.class);
+		List<History.Entry> entries = Arrays.asList(entry("connect --port 1"), entry("connect --port 12 --host localhost"));
+		when(history.isEmpty()).thenReturn(false);
+		when(history.last()).thenReturn(1);
+		when(history.iterator(2)).thenAnswer(i -> entries.listIterator(2));
+		when(reader.getHistory()).thenReturn(history);
+	}
+
+	@After
+	public void tearDown() {
+		suggestions.shutdown();
+	}
+
+	@Test
+	public void testFromHistory() {
+		assertThat(suggestions.compute(reader, "connect --port 1").getCompletion()).isEqualTo("2 --host localhost");
+		assertThat(suggestions.compute(reader, "connect --port 12 --host localhost").getCompletion()).isNull();
+	}
+
+	@Test
+	public void testFromCompletion() {
+		when(reader.getHistory()).thenReturn(null);
+		assertThat(suggestions.compute(reader, "dis").getCompletion()).isEqualTo("connect now");
+		// Ambiguous
+		assertThat(suggestions.compute(reader, "connect --h").getCompletion()).isNull();
+		assertThat(suggestions.compute(reader, "connect --p").getCompletion()).isEqualTo("ort");
+	}
+
+	@Test
+	public void testHints() {
+		assertThat(suggestions.compute(reader, "connect").getHint()).isEqualTo("missing --port");
+		assertThat(suggestions.compute(reader, "connect --port x").getHint()).isEqualTo("not an int");
+		assertThat(suggestions.compute(reader, "connect --port 12").getHint()).isNull();
+	}
+
+	@Test
+	public void testDecorate() throws Exception {
+		when(reader.getBuffer()).thenReturn(new BufferImpl());
+		reader.getBuffer().write("connect --p");
+		AttributedString highlighted = new AttributedString("connect --p");
+		// Not computed yet
+		assertThat(suggestions.decorate(reader, "connect --p", highlighted)).isSameAs(highlighted);
+		AttributedString result = highlighted;
+		for (int i = 0; i < 100 && result == highlighted; i++) {
+			Thread.sleep(10L);
+			result = suggestions.decorate(reader, "connect --p", highlighted);
+		}
+		assertThat(result.toString()).isEqualTo("connect --port 12 --host localhost  missing --port");
+	}
+
+	@Test
+	public void testRedisplayOnlyWhileWaitingForInput() throws Exception {
+		LineReader tracking = mock(LineReader.class, withSettings().extraInterfaces(InlineSuggestions.InputTracking.class));
+		when(tracking.getParser()).thenReturn(new ExtendedDefaultParser());
+		when(tracking.getBuffer()).thenReturn(new BufferImpl());
+		when(tracking.getTerminal()).thenReturn(mock(Terminal.class));
+		tracking.getBuffer().write("dis");
+		AtomicBoolean waiting = new AtomicBoolean();
+		when(((InlineSuggestions.InputTracking) tracking).whileWaitingForInput(any())).thenAnswer(i -> {
+			if (waiting.get()) {
+				((Runnable) i.getArguments()[0]).run();
+			}
+			return waiting.get();
+		});
+
+		// Busy handling a keystroke: left to the next redraw
+		suggestions.decorate(tracking, "dis", new AttributedString("dis"));
+		verify((InlineSuggestions.InputTracking) tracking, timeout(5000)).whileWaitingForInput(any());
+		verify(tracking, never()).callWidget(LineReader.REDISPLAY);
+
+		waiting.set(true);
+		tracking.getBuffer().write("c");
+		suggestions.decorate(tracking, "disc", new AttributedString("disc"));
+		verify(tracking, timeout(5000)).callWidget(LineReader.REDISPLAY);
+	}
+
+	private History.Entry entry(String line) {
+		History.Entry entry = mock(History.Entry.class);
+		when(entry.line()).thenReturn(line);
+		return entry;
+	}
+
+	/**
+	 * Knows about "connect --port &lt;int&gt; --host &lt;host&gt;" and "disconnect now".
+	 */
+	private static class StubShell extends Shell {
+
+		private StubShell() {
+			super(null, null);
+		}
+
+		@Override
+		public List<CompletionProposal> complete(CompletionContext context) {
+			String typed = context.upToCursor();
+			return Arrays.asList("disconnect now", "connect --port", "connect --host", "connect --help").stream()
+				.filter(p -> p.startsWith(typed))
+				.map(p -> p.startsWith("connect ")
+					? new CompletionProposal(p.substring("connect ".length()))
+					: new CompletionProposal(p).dontQuote(true))
+				.collect(Collectors.toList());
+		}
+
+		@Override
+		public List<Exception> diagnose(List<String> words) {
+			if (!words.get(0).equals("connect")) {
+				return Collections.emptyList();
+			}
+			if (!words.contains("--port")) {
+				ParameterDescription description = new ParameterDescription((MethodParameter) null, "int")
+					.keys(Collections.singletonList("--port"));
+				return Collections.singletonList(new ParameterMissingResolutionException(description));
+			}
+			String port = words.get(words.indexOf("--port") + 1);
+			if (!port.matches("[0-9]+")) {
+				return Collections.singletonList(new ConversionFailedException(TypeDescriptor.valueOf(String.class),
+					TypeDescriptor.valueOf(int.class), port, new NumberFormatException()));
+			}
+			return Collections.emptyList();
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.reader.History;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * Tests for {@link PersistentHistory}.
+ *
+ * @author Eric Bottard
+ */
+public class PersistentHistoryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testPersistence() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("sub/history");
+		PersistentHistory history = new PersistentHistory(file, 100);
+		history.add(Instant.ofEpochMilli(42L), "help");
+		history.add(Instant.ofEpochMilli(43L), "echo \"multi\nline\" c:\\dir");
+		history.add(Instant.ofEpochMilli(44L), "echo \"multi\nline\" c:\\dir");
+		history.add(Instant.ofEpochMilli(45L), "   ");
+
+		PersistentHistory other = new PersistentHistory(file, 100);
+		assertThat(other.size()).isEqualTo(2);
+		assertThat(other.get(0)).isEqualTo("help");
+		assertThat(other.get(1)).isEqualTo("echo \"multi\nline\" c:\\dir");
+		ListIterator<History.Entry> it = other.iterator(0);
+		History.Entry entry = it.next();
+		assertThat(entry.index()).isEqualTo(0);
+		assertThat(entry.time()).isEqualTo(Instant.ofEpochMilli(42L));
+
+		// Entries added after loading are kept in memory as well as appended
+		other.add(Instant.ofEpochMilli(46L), "quit");
+		assertThat(other.size()).isEqualTo(3);
+		assertThat(new PersistentHistory(file, 100).get(2)).isEqualTo("quit");
+	}
+
+	@Test
+	public void testDefaultFileIsPerApplication() {
+		StandardEnvironment environment = new StandardEnvironment();
+		String home = System.getProperty("user.home");
+		assertThat(environment.resolvePlaceholders(PersistentHistory.DEFAULT_FILE))
+			.isEqualTo(home + "/.spring-shell/application/history");
+
+		environment.getPropertySources().addFirst(
+			new MapPropertySource("test", Collections.singletonMap("spring.application.name", "acme")));
+		assertThat(environment.resolvePlaceholders(PersistentHistory.DEFAULT_FILE))
+			.isEqualTo(home + "/.spring-shell/acme/history");
+	}
+
+	@Test
+	public void testMaximumSizeAndCorruptRecords() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("history");
+		Files.write(file, "1:one\ngarbage\n2:two\n3:three\n4:fo".getBytes(StandardCharsets.UTF_8));
+		PersistentHistory history = new PersistentHistory(file, 2);
+		assertThat(history.size()).isEqualTo(2);
+		assertThat(history.get(0)).isEqualTo("two");
+		assertThat(history.get(1)).isEqualTo("three");
+
+		history = new PersistentHistory(file, 10);
+		assertThat(history.size()).isEqualTo(3);
+		assertThat(history.get(0)).isEqualTo("one");
+	}
+
+	@Test
+	public void testNavigation() {
+		PersistentHistory history = new PersistentHistory((Path) null, 100);
+		history.add(Instant.now(), "one");
+		history.add(Instant.now(), "two");
+		assertThat(history.index()).isEqualTo(2);
+		assertThat(history.current()).isEqualTo("");
+		assertThat(history.previous()).isTrue();
+		assertThat(history.current()).isEqualTo("two");
+		assertThat(history.previous()).isTrue();
+		assertThat(history.previous()).isFalse();
+		assertThat(history.current()).isEqualTo("one");
+		assertThat(history.next()).isTrue();
+		assertThat(history.next()).isTrue();
+		assertThat(history.next()).isFalse();
+		assertThat(history.current()).isEqualTo("");
+		assertThat(history.moveToFirst()).isTrue();
+		assertThat(history.index()).isEqualTo(0);
+		history.moveToEnd();
+		assertThat(history.index()).isEqualTo(2);
+	}
+
+	@Test
+	public void testSearch() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("history");
+		PersistentHistory history = new PersistentHistory(file, 100);
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			lines.add("echo " + i);
+			lines.add("hello world --times " + i);
+			lines.add("connect --host example" + (i % 7) + ".com");
+		}
+		lines.forEach(l -> history.add(Instant.now(), l));
+		history.load();
+		history.add(Instant.now(), "hello  again");
+		// Whether the index is ready yet or not
+		assertSearchesMatchLinearSearches(history);
+
+		for (int i = 0; i < 500 && !history.isIndexed(); i++) {
+			Thread.sleep(10L);
+		}
+		assertThat(history.isIndexed()).isTrue();
+		assertSearchesMatchLinearSearches(history);
+		history.add(Instant.now(), "hello  again and again");
+		assertSearchesMatchLinearSearches(history);
+		assertThat(history.searchBackwards("again", history.size(), false)).isEqualTo(history.last());
+	}
+
+	private void assertSearchesMatchLinearSearches(PersistentHistory history) {
+		String[] terms = {"ello wor", "ello", "--host example3", "e", "xyz", " ", "echo 4", "again", "lo  ag"};
+		for (String term : terms) {
+			for (boolean prefix : new boolean[] {false, true}) {
+				for (int start = 0; start <= history.size(); start += 13) {
+					assertThat(history.searchBackwards(term, start, prefix))
+						.as("backwards search for '%s' from %d", term, start)
+						.isEqualTo(linearSearchBackwards(history, term, start, prefix));
+					assertThat(history.searchForwards(term, start, prefix))
+						.as("forwards search for '%s' from %d", term, start)
+						.isEqualTo(linearSearchForwards(history, term, start, prefix));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentAppends() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("history");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int t = 0; t < 4; t++) {
+			int shell = t;
+			executor.submit(() -> {
+				// One history per thread, as if several shells were sharing the file
+				PersistentHistory history = new PersistentHistory(file, 1000);
+				for (int i = 0; i < 50; i++) {
+					history.add(Instant.now(), "shell " + shell + " command " + i);
+				}
+			});
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		PersistentHistory history = new PersistentHistory(file, 1000);
+		assertThat(history.size()).isEqualTo(200);
+		for (int i = 0; i < history.size(); i++) {
+			assertThat(history.get(i)).matches("shell \\d command \\d+");
+		}
+	}
+
+	@Test
+	public void testPurge() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("history");
+		PersistentHistory history = new PersistentHistory(file, 100);
+		history.add(Instant.now(), "one");
+		assertThat(history.size()).isEqualTo(1);
+		history.purge();
+		assertThat(history.isEmpty()).isTrue();
+		assertThat(file).doesNotExist();
+	}
+
+	private int linearSearchBackwards(History history, String term, int start, boolean prefix) {
+		for (int i = Math.min(start, history.size()) - 1; i >= 0; i--) {
+			if (prefix ? history.get(i).startsWith(term) : history.get(i).contains(term)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int linearSearchForwards(History history, String term, int start, boolean prefix) {
+		for (int i = start; i < history.size(); i++) {
+			if (prefix ? history.get(i).startsWith(term) : history.get(i).contains(term)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
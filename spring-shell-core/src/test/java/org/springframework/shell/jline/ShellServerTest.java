@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.jline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jline.reader.LineReaderBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.shell.ExitRequest;
+import org.springframework.shell.MethodTarget;
+import org.springframework.shell.ServerAdvertisement;
+import org.springframework.shell.Shell;
+import org.springframework.shell.ShellSession;
+
+/**
+ * Tests for {@link ShellServer}.
+ *
+ * @author Eric Bottard
+ */
+public class ShellServerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ShellServer server;
+
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		Map<String, MethodTarget> commands = new HashMap<>();
+		commands.put("whoami", MethodTarget.of("whoami", this, "Tell which session this is"));
+		commands.put("quit", MethodTarget.of("quit", this, "End the session"));
+		Shell shell = new Shell(null, null) {
+			{
+				methodTargets = commands;
+			}
+		};
+		file = folder.getRoot().toPath().resolve("server");
+		// Results are written to the terminal of the session that produced them
+		server = new ShellServer(shell, result -> ShellSession.current().getTerminal().writer().println("result: " + result),
+			session -> LineReaderBuilder.builder().terminal(session.getTerminal()).build(), 0, 2, file);
+		server.start();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.stop();
+	}
+
+	public String whoami() {
+		return ShellSession.current().getId();
+	}
+
+	public void quit() {
+		throw new ExitRequest();
+	}
+
+	@Test
+	public void testConcurrentSessions() throws IOException {
+		try (Socket first = connect(); Socket second = connect()) {
+			second.getOutputStream().write("whoami\r".getBytes(StandardCharsets.UTF_8));
+			first.getOutputStream().write("whoami\r".getBytes(StandardCharsets.UTF_8));
+			String firstSession = readUntil(first, "result: ");
+			String secondSession = readUntil(second, "result: ");
+			assertThat(firstSession).startsWith("shell-session-");
+			assertThat(secondSession).startsWith("shell-session-").isNotEqualTo(firstSession);
+
+			// Maximum number of sessions reached
+			try (Socket third = connect()) {
+				assertThat(readToEnd(third)).startsWith("Too many sessions");
+			}
+
+			// Exiting ends the session only
+			first.getOutputStream().write("quit\r".getBytes(StandardCharsets.UTF_8));
+			assertThat(readToEnd(first)).doesNotContain("result: ");
+			second.getOutputStream().write("whoami\r".getBytes(StandardCharsets.UTF_8));
+			assertThat(readUntil(second, "result: ")).isEqualTo(secondSession);
+		}
+	}
+
+	@Test
+	public void testConnectionsWithoutTokenAreRefused() throws IOException {
+		assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).startsWith(server.getPort() + " ");
+		String wrongToken = String.join("", Collections.nCopies(ServerAdvertisement.TOKEN_LENGTH, "0"));
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			socket.setSoTimeout(10_000);
+			socket.getOutputStream().write((wrongToken + "\n").getBytes(StandardCharsets.UTF_8));
+			assertThat(readToEnd(socket)).isEmpty();
+		}
+
+		server.stop();
+		assertThat(Files.exists(file)).isFalse();
+	}
+
+	private Socket connect() throws IOException {
+		Socket socket = ServerAdvertisement.connect(file);
+		socket.setSoTimeout(10_000);
+		return socket;
+	}
+
+	/**
+	 * Read up to the end of the line that follows the given marker, and return the rest of that line.
+	 */
+	private String readUntil(Socket socket, String marker) throws IOException {
+		InputStream in = socket.getInputStream();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		while (true) {
+			int b = in.read();
+			if (b == -1) {
+				throw new IOException("Connection closed, read " + out.toString("UTF-8"));
+			}
+			out.write(b);
+			String read = out.toString("UTF-8");
+			int start = read.lastIndexOf(marker);
+			if (start >= 0 && read.endsWith("\n") && read.indexOf('\n', start) == read.length() - 1) {
+				return read.substring(start + marker.length()).trim();
+			}
+		}
+	}
+
+	private String readToEnd(Socket socket) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream in = socket.getInputStream();
+		for (int b = in.read(); b != -1; b = in.read()) {
+			out.write(b);
+		}
+		return out.toString("UTF-8");
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.machine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStyle;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.shell.CompletionContext;
+import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.ExitRequest;
+import org.springframework.shell.MethodTarget;
+import org.springframework.shell.ParameterDescription;
+import org.springframework.shell.ParameterResolver;
+import org.springframework.shell.Shell;
+import org.springframework.shell.ValueResult;
+
+/**
+ * Tests for {@link MachineProcessor}.
+ *
+ * @author Eric Bottard
+ */
+public class MachineProcessorTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private Shell shell;
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	@Before
+	public void setUp() {
+		Map<String, MethodTarget> commands = new HashMap<>();
+		commands.put("echo", MethodTarget.of("echo", this, "Echo its argument"));
+		commands.put("sleep", MethodTarget.of("sleep", this, "Sleep for some milliseconds"));
+		commands.put("range", MethodTarget.of("range", this, "Stream numbers"));
+		commands.put("chunks", MethodTarget.of("chunks", this, "Iterate over large strings"));
+		commands.put("quit", MethodTarget.of("quit", this, "Exit"));
+		commands.put("fail", MethodTarget.of("fail", this, "Fail"));
+		commands.put("styled", MethodTarget.of("styled", this, "Return styled text"));
+		commands.put("opaque", MethodTarget.of("opaque", this, "Return something without properties"));
+		shell = new Shell(null, null) {
+			{
+				methodTargets = commands;
+				parameterResolvers = Collections.singletonList(new PositionalResolver());
+			}
+		};
+	}
+
+	public String echo(String word) {
+		return word;
+	}
+
+	public String sleep(String millis) throws InterruptedException {
+		Thread.sleep(Long.parseLong(millis));
+		return millis;
+	}
+
+	public Stream<Integer> range(String size) {
+		return Stream.iterate(0, i -> i + 1).limit(Integer.parseInt(size));
+	}
+
+	public Iterable<String> chunks() {
+		char[] chunk = new char[10_000];
+		Arrays.fill(chunk, 'x');
+		return () -> new Iterator<String>() {
+
+			private int count;
+
+			@Override
+			public boolean hasNext() {
+				return count < 5;
+			}
+
+			@Override
+			public String next() {
+				if (count++ == 4) {
+					// Earlier elements have already been written
+					assertThat(out.size()).isGreaterThan(20_000);
+				}
+				return new String(chunk);
+			}
+		};
+	}
+
+	public AttributedString styled() {
+		return new AttributedString("hello", AttributedStyle.BOLD);
+	}
+
+	public Object opaque() {
+		return new Object();
+	}
+
+	public void quit() {
+		throw new ExitRequest(3);
+	}
+
+	public void fail() {
+		throw new IllegalStateException("boom");
+	}
+
+	private List<JsonNode> process(MachineProcessor processor, String... requests) throws IOException {
+		String input = String.join("\n", requests) + "\n";
+		int status = processor.process(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+		assertThat(status).isEqualTo(0);
+		return responses();
+	}
+
+	private List<JsonNode> responses() throws IOException {
+		String[] lines = out.toString("UTF-8").split("\n");
+		JsonNode[] result = new JsonNode[lines.length];
+		for (int i = 0; i < lines.length; i++) {
+			result[i] = objectMapper.readTree(lines[i]);
+		}
+		return Arrays.asList(result);
+	}
+
+	@Test
+	public void testRequestsAndResponses() throws IOException {
+		List<JsonNode> responses = process(new MachineProcessor(shell, objectMapper, 1, true),
+			"{\"id\": 1, \"command\": \"echo hello\"}",
+			"",
+			"{\"id\": \"two\", \"words\": [\"echo\", \"hello world\"]}",
+			"{\"command\": \"fail\"}",
+			"{\"id\": 4, \"command\": \"bonjour\"}",
+			"{\"id\": 5}",
+			"not json");
+
+		assertThat(responses).hasSize(6);
+		assertThat(responses.get(0).get("id").asInt()).isEqualTo(1);
+		assertThat(responses.get(0).get("command").asText()).isEqualTo("echo");
+		assertThat(responses.get(0).get("value").asText()).isEqualTo("hello");
+		assertThat(responses.get(0).get("duration").isNumber()).isTrue();
+		assertThat(responses.get(1).get("id").asText()).isEqualTo("two");
+		assertThat(responses.get(1).get("value").asText()).isEqualTo("hello world");
+		assertThat(responses.get(2).has("id")).isFalse();
+		assertThat(responses.get(2).get("error").get("type").asText()).isEqualTo(IllegalStateException.class.getName());
+		assertThat(responses.get(2).get("error").get("message").asText()).isEqualTo("boom");
+		assertThat(responses.get(3).get("command").isNull()).isTrue();
+		assertThat(responses.get(3).get("error").get("type").asText()).endsWith("CommandNotFound");
+		assertThat(responses.get(4).get("id").asInt()).isEqualTo(5);
+		assertThat(responses.get(4).get("error").get("message").asText()).contains("either a command or words");
+		assertThat(responses.get(5).has("id")).isFalse();
+		assertThat(responses.get(5).has("error")).isTrue();
+	}
+
+	@Test
+	public void testStreamsIterableValues() throws IOException {
+		List<JsonNode> responses = process(new MachineProcessor(shell, objectMapper, 1, true),
+			"{\"command\": \"range 4\"}",
+			"{\"command\": \"chunks\"}");
+
+		assertThat(responses.get(0).get("value").toString()).isEqualTo("[0,1,2,3]");
+		assertThat(responses.get(1).get("value").size()).isEqualTo(5);
+	}
+
+	@Test
+	public void testQuotedWords() throws IOException {
+		List<JsonNode> responses = process(new MachineProcessor(shell, objectMapper, 1, true),
+			"{\"command\": \" echo 'hello  world' \"}");
+
+		assertThat(responses.get(0).get("value").asText()).isEqualTo("hello  world");
+	}
+
+	@Test
+	public void testValuesThatAreNotBeans() throws IOException {
+		List<JsonNode> responses = process(new MachineProcessor(shell, objectMapper, 1, true),
+			"{\"id\": 1, \"command\": \"styled\"}",
+			"{\"id\": 2, \"command\": \"opaque\"}",
+			"{\"id\": 3, \"command\": \"echo hello\"}");
+
+		assertThat(responses).hasSize(3);
+		assertThat(responses.get(0).get("value").asText()).isEqualTo("hello");
+		assertThat(responses.get(1).get("command").asText()).isEqualTo("opaque");
+		assertThat(responses.get(1).has("value")).isFalse();
+		assertThat(responses.get(1).get("error").get("message").asText()).contains(Object.class.getName());
+		// Processing goes on
+		assertThat(responses.get(2).get("value").asText()).isEqualTo("hello");
+	}
+
+	@Test
+	public void testConcurrentOrderedResponses() throws IOException {
+		List<JsonNode> responses = process(new MachineProcessor(shell, objectMapper, 4, true),
+			"{\"id\": 1, \"command\": \"sleep 300\"}",
+			"{\"id\": 2, \"command\": \"sleep 0\"}",
+			"{\"id\": 3, \"command\": \"echo three\"}");
+
+		assertThat(responses).extracting(r -> r.get("id").asInt()).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	public void testConcurrentUnorderedResponses() throws IOException {
+		List<JsonNode> responses = process(new MachineProcessor(shell, objectMapper, 4, false),
+			"{\"id\": 1, \"command\": \"sleep 300\"}",
+			"{\"id\": 2, \"command\": \"sleep 0\"}");
+
+		assertThat(responses).extracting(r -> r.get("id").asInt()).containsExactly(2, 1);
+	}
+
+	@Test
+	public void testExit() throws IOException {
+		String input = "{\"id\": 1, \"command\": \"quit\"}\n{\"id\": 2, \"command\": \"echo ignored\"}\n";
+		int status = new MachineProcessor(shell, objectMapper, 1, true)
+			.process(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+
+		assertThat(status).isEqualTo(3);
+		assertThat(responses()).extracting(r -> r.get("id").asInt()).containsExactly(1);
+	}
+
+	/**
+	 * Resolves parameters from words, by position.
+	 */
+	private static class PositionalResolver implements ParameterResolver {
+
+		@Override
+		public boolean supports(MethodParameter parameter) {
+			return true;
+		}
+
+		@Override
+		public ValueResult resolve(MethodParameter methodParameter, List<String> words) {
+			return new ValueResult(methodParameter, words.get(methodParameter.getParameterIndex()));
+		}
+
+		@Override
+		public Stream<ParameterDescription> describe(MethodParameter parameter) {
+			return Stream.empty();
+		}
+
+		@Override
+		public List<CompletionProposal> complete(MethodParameter parameter, CompletionContext context) {
+			return Collections.emptyList();
+		}
+	}
+}
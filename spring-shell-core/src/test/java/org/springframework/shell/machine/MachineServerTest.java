@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.machine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.shell.ServerAdvertisement;
+
+/**
+ * Tests for {@link MachineServer}.
+ *
+ * @author Eric Bottard
+ */
+public class MachineServerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path file;
+
+	private MachineServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		// Greets each connection, then waits for it to end
+		MachineProcessor processor = mock(MachineProcessor.class);
+		when(processor.process(any(InputStream.class), any(OutputStream.class))).thenAnswer(invocation -> {
+			OutputStream out = (OutputStream) invocation.getArguments()[1];
+			out.write("ready\n".getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			InputStream in = (InputStream) invocation.getArguments()[0];
+			while (in.read() >= 0) {
+			}
+			return 0;
+		});
+		file = folder.getRoot().toPath().resolve("machine");
+		server = new MachineServer(processor, 0, 1, file);
+		server.start();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.stop();
+	}
+
+	@Test
+	public void testConnectionsWithoutTokenAreRefused() throws IOException {
+		String wrongToken = String.join("", Collections.nCopies(ServerAdvertisement.TOKEN_LENGTH, "0"));
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			socket.setSoTimeout(10_000);
+			socket.getOutputStream().write((wrongToken + "\n").getBytes(StandardCharsets.UTF_8));
+			assertThat(socket.getInputStream().read()).isEqualTo(-1);
+		}
+
+		try (Socket socket = connect()) {
+			assertThat(readLine(socket)).isEqualTo("ready");
+		}
+
+		server.stop();
+		assertThat(Files.exists(file)).isFalse();
+	}
+
+	@Test
+	public void testMaxConnections() throws IOException {
+		try (Socket first = connect()) {
+			assertThat(readLine(first)).isEqualTo("ready");
+			// Closed without even waiting for a token
+			try (Socket second = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+				second.setSoTimeout(10_000);
+				assertThat(second.getInputStream().read()).isEqualTo(-1);
+			}
+		}
+	}
+
+	private Socket connect() throws IOException {
+		Socket socket = ServerAdvertisement.connect(file);
+		socket.setSoTimeout(10_000);
+		return socket;
+	}
+
+	private String readLine(Socket socket) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int c = socket.getInputStream().read(); c >= 0 && c != '\n'; c = socket.getInputStream().read()) {
+			sb.append((char) c);
+		}
+		return sb.toString();
+	}
+}
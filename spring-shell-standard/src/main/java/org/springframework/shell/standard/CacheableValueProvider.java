@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.standard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.shell.CompletionContext;
+
+/**
+ * Marker interface for {@link ValueProvider}s whose results can be cached by a {@link ValueCompletionCache}, typically
+ * because computing them is expensive (<em>e.g.</em> involves a remote call).
+ *
+ * <p>Cached results for a given prefix are reused, after filtering, for any longer prefix. Hence implementations must
+ * return proposals that are independent of the prefix being completed, or that are all the proposals starting with
+ * that prefix.</p>
+ *
+ * @author Eric Bottard
+ */
+public interface CacheableValueProvider extends ValueProvider {
+
+	/**
+	 * Return the words of the completion context that the proposals depend on, which become part of the cache key.
+	 * Defaults to all the words but the one being completed. Implementations that don't depend on other words may
+	 * return an empty list, so that results are shared across invocations.
+	 */
+	default List<String> contextWords(MethodParameter parameter, CompletionContext completionContext) {
+		List<String> result = new ArrayList<>(completionContext.getWords());
+		if (completionContext.getWordIndex() >= 0 && completionContext.getWordIndex() < result.size()) {
+			result.remove(completionContext.getWordIndex());
+		}
+		return result;
+	}
+}
@@ -17,7 +17,12 @@
 package org.springframework.shell.standard;
 
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -25,6 +30,7 @@ import org.springframework.core.MethodParameter;
 import org.springframework.shell.CompletionContext;
 import org.springframework.shell.CompletionProposal;
 import org.springframework.shell.CommandRegistry;
+import org.springframework.shell.MethodTarget;
 import org.springframework.stereotype.Component;
 
 /**
@@ -37,6 +43,8 @@ public class CommandValueProvider extends ValueProviderSupport {
 
 	private final CommandRegistry commandRegistry;
 
+	private volatile NavigableSet<String> sortedCommands;
+
 	@Lazy
 	@Autowired
 	public CommandValueProvider(CommandRegistry commandRegistry) {
@@ -49,4 +57,29 @@ public class CommandValueProvider extends ValueProviderSupport {
 			.map(CompletionProposal::new)
 			.collect(Collectors.toList());
 	}
+
+	@Override
+	public Stream<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String prefix, int limit) {
+		// Only the names starting with the prefix, so that the scan stops at the end of that range
+		return sortedCommands().subSet(prefix, true, prefix + Character.MAX_VALUE, false).stream()
+			.map(CompletionProposal::new);
+	}
+
+	/**
+	 * Return the command names in order. Registries that already hand out a naturally ordered map (such as
+	 * {@link org.springframework.shell.ConfigurableCommandRegistry}) are used as is, otherwise names are only sorted
+	 * again if they changed since last time.
+	 */
+	private NavigableSet<String> sortedCommands() {
+		Map<String, MethodTarget> commands = commandRegistry.listCommands();
+		if (commands instanceof NavigableMap && ((NavigableMap<String, MethodTarget>) commands).comparator() == null) {
+			return ((NavigableMap<String, MethodTarget>) commands).navigableKeySet();
+		}
+		NavigableSet<String> cached = sortedCommands;
+		if (cached == null || !cached.equals(commands.keySet())) {
+			cached = new TreeSet<>(commands.keySet());
+			sortedCommands = cached;
+		}
+		return cached;
+	}
 }
@@ -16,39 +16,120 @@
 
 package org.springframework.shell.standard;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.springframework.core.MethodParameter;
 import org.springframework.shell.CompletionContext;
 import org.springframework.shell.CompletionProposal;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ConcurrentReferenceHashMap;
 
 /**
  * A {@link ValueProvider} that knows how to complete values for {@link Enum} typed parameters.
+ *
+ * <p>The names of the constants of each enum are sorted once, and looked up by binary search on the prefix being
+ * completed. Optionally, matching can ignore case, and fall back to a fuzzy match (the typed characters appearing in
+ * order in the name) when no name starts with the prefix. Note that the user interface may apply its own filtering to
+ * proposals that don't start with what the user typed.</p>
+ *
  * @author Eric Bottard
  */
 @Component
-public class EnumValueProvider implements ValueProvider {
+public class EnumValueProvider implements TypedValueProvider {
+
+	private final boolean caseInsensitive;
+
+	private final boolean fuzzy;
+
+	private final Map<Class<?>, EnumIndex> indexes = new ConcurrentReferenceHashMap<>();
+
+	public EnumValueProvider() {
+		this(false, false);
+	}
+
+	public EnumValueProvider(boolean caseInsensitive, boolean fuzzy) {
+		this.caseInsensitive = caseInsensitive;
+		this.fuzzy = fuzzy;
+	}
 
 	@Override
-	public boolean supports(MethodParameter parameter, CompletionContext completionContext) {
-		return Enum.class.isAssignableFrom(parameter.getParameterType());
+	public Set<Class<?>> getSupportedTypes() {
+		return Collections.singleton(Enum.class);
 	}
 
 	@Override
 	public List<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String[] hints) {
-		List<CompletionProposal> result = new ArrayList<>();
-		for (Object v : parameter.getParameterType().getEnumConstants()) {
-			Enum e = (Enum) v;
-			String prefix = completionContext.currentWordUpToCursor();
-			if (prefix == null) {
-				prefix = "";
+		String prefix = completionContext.currentWordUpToCursor();
+		return complete(parameter, completionContext, prefix != null ? prefix : "", Integer.MAX_VALUE)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Stream<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String prefix, int limit) {
+		EnumIndex index = indexes.computeIfAbsent(parameter.getParameterType(), EnumIndex::new);
+		String[] names = caseInsensitive ? index.lowerCaseNames : index.names;
+		String key = caseInsensitive ? prefix.toLowerCase(Locale.ROOT) : prefix;
+
+		int from = Arrays.binarySearch(names, key);
+		from = from >= 0 ? from : -from - 1;
+		int to = from;
+		while (to < names.length && names[to].startsWith(key)) {
+			to++;
+		}
+		IntStream matches = IntStream.range(from, to);
+		if (from == to && fuzzy && !key.isEmpty()) {
+			matches = IntStream.range(0, names.length).filter(i -> isSubsequence(key, names[i]));
+		}
+		return matches.mapToObj(i -> new CompletionProposal(caseInsensitive ? index.names[index.lowerCaseToName[i]] : names[i]));
+	}
+
+	/**
+	 * Return whether all characters of {@literal typed} appear, in order, in {@literal name}.
+	 */
+	private static boolean isSubsequence(String typed, String name) {
+		int j = 0;
+		for (int i = 0; i < name.length() && j < typed.length(); i++) {
+			if (name.charAt(i) == typed.charAt(j)) {
+				j++;
 			}
-			if (e.name().startsWith(prefix)) {
-				result.add(new CompletionProposal(e.name()));
+		}
+		return j == typed.length();
+	}
+
+	/**
+	 * The names of the constants of an enum, sorted. Also holds the lower case variants, sorted, along with the index of
+	 * the name each variant stands for.
+	 */
+	private static class EnumIndex {
+
+		private final String[] names;
+
+		private final String[] lowerCaseNames;
+
+		private final int[] lowerCaseToName;
+
+		private EnumIndex(Class<?> enumType) {
+			names = Arrays.stream(enumType.getEnumConstants())
+					.map(e -> ((Enum<?>) e).name())
+					.sorted()
+					.toArray(String[]::new);
+			Integer[] order = IntStream.range(0, names.length).boxed()
+					.sorted((a, b) -> names[a].toLowerCase(Locale.ROOT).compareTo(names[b].toLowerCase(Locale.ROOT)))
+					.toArray(Integer[]::new);
+			lowerCaseNames = new String[names.length];
+			lowerCaseToName = new int[names.length];
+			for (int i = 0; i < order.length; i++) {
+				lowerCaseNames[i] = names[order[i]].toLowerCase(Locale.ROOT);
+				lowerCaseToName[i] = order[i];
 			}
 		}
-		return result;
 	}
 }
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.standard;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.ConversionFailedException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+
+/**
+ * Turns the raw words bound to a parameter into an actual parameter value.
+ *
+ * <p>A converter is selected once per parameter by {@link #forParameter(MethodParameter, int, ConversionService)}.
+ * Primitive types are parsed straight from the words, while every other type is handed over to the {@link
+ * ConversionService}. Fast paths only deal with the canonical textual representation and defer to the {@link
+ * ConversionService} for anything else, so that the observable behavior (accepted formats and error messages)
+ * stays the same.</p>
+ *
+ * <p>For parameters that consume several words, each word is an element of the resulting array or collection, which
+ * is allocated up front with the right size and filled by converting each word in turn. Default values, which are a
+ * single piece of text, are still handed over to the {@link ConversionService} as a comma separated value.</p>
+ *
+ * @author Eric Bottard
+ */
+abstract class ParameterValueConverter {
+
+	private static final TypeDescriptor STRING = TypeDescriptor.valueOf(String.class);
+
+	protected final ConversionService conversionService;
+
+	protected final TypeDescriptor targetType;
+
+	private ParameterValueConverter(ConversionService conversionService, TypeDescriptor targetType) {
+		this.conversionService = conversionService;
+		this.targetType = targetType;
+	}
+
+	/**
+	 * Convert the words the user bound to a parameter (one per consumed input word) to a value suitable for the
+	 * parameter this converter was created for.
+	 */
+	public abstract Object convert(List<String> words);
+
+	/**
+	 * Convert a default value, as specified <em>via</em> {@link ShellOption#defaultValue()}.
+	 */
+	public Object convertDefault(String value) {
+		return convert(Collections.singletonList(value));
+	}
+
+	/**
+	 * Return the most specific converter for the given parameter.
+	 */
+	public static ParameterValueConverter forParameter(MethodParameter parameter, int arity, ConversionService conversionService) {
+		TypeDescriptor targetType = new TypeDescriptor(parameter);
+		Class<?> type = parameter.getParameterType();
+		if (arity <= 1) {
+			if (type == int.class || type == Integer.class) {
+				return new IntConverter(conversionService, targetType);
+			}
+			else if (type == long.class || type == Long.class) {
+				return new LongConverter(conversionService, targetType);
+			}
+			else if (type == double.class || type == Double.class) {
+				return new DoubleConverter(conversionService, targetType);
+			}
+			else if (type == boolean.class || type == Boolean.class) {
+				return new BooleanConverter(conversionService, targetType);
+			}
+			return new GenericConverter(conversionService, targetType);
+		}
+		else if (type == int[].class) {
+			return new IntArrayConverter(conversionService, targetType);
+		}
+		else if (type == long[].class) {
+			return new LongArrayConverter(conversionService, targetType);
+		}
+		else if (type == double[].class) {
+			return new DoubleArrayConverter(conversionService, targetType);
+		}
+		else if (type == boolean[].class) {
+			return new BooleanArrayConverter(conversionService, targetType);
+		}
+		else if (type.isArray()) {
+			return new ObjectArrayConverter(conversionService, targetType);
+		}
+		else if (Collection.class.isAssignableFrom(type)) {
+			return new CollectionConverter(conversionService, targetType);
+		}
+		return new GenericConverter(conversionService, targetType);
+	}
+
+	/**
+	 * Convert using the {@link ConversionService}, joining several words as a comma separated value.
+	 */
+	protected Object convertGeneric(List<String> words) {
+		String raw = words.size() == 1 ? words.get(0) : String.join(",", words);
+		return conversionService.convert(raw, STRING, targetType);
+	}
+
+	/**
+	 * Convert a single element of a primitive array using the {@link ConversionService}, used when a fast path gave
+	 * up. Elements that convert to {@literal null} (<em>e.g.</em> empty words) are rejected, as they can't be
+	 * unboxed.
+	 */
+	protected <T> T convertElement(String word, Class<T> elementType) {
+		T result = conversionService.convert(word, elementType);
+		if (result == null) {
+			throw new ConversionFailedException(STRING, targetType, word,
+					new IllegalArgumentException("A null value cannot be assigned to a primitive type"));
+		}
+		return result;
+	}
+
+	/**
+	 * Convert a single element to the given type, skipping conversion altogether for Strings.
+	 */
+	protected Object convertElement(String word, TypeDescriptor elementType) {
+		if (elementType == null || elementType.getType() == String.class || elementType.getType() == Object.class) {
+			return word;
+		}
+		return conversionService.convert(word, STRING, elementType);
+	}
+
+	private static class GenericConverter extends ParameterValueConverter {
+
+		private GenericConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			return convertGeneric(words);
+		}
+	}
+
+	private static class IntConverter extends ParameterValueConverter {
+
+		private IntConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			if (words.size() != 1) {
+				return convertGeneric(words);
+			}
+			try {
+				return Integer.parseInt(words.get(0));
+			}
+			catch (NumberFormatException e) {
+				return convertGeneric(words);
+			}
+		}
+	}
+
+	private static class LongConverter extends ParameterValueConverter {
+
+		private LongConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			if (words.size() != 1) {
+				return convertGeneric(words);
+			}
+			try {
+				return Long.parseLong(words.get(0));
+			}
+			catch (NumberFormatException e) {
+				return convertGeneric(words);
+			}
+		}
+	}
+
+	private static class DoubleConverter extends ParameterValueConverter {
+
+		private DoubleConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			if (words.size() != 1) {
+				return convertGeneric(words);
+			}
+			try {
+				return Double.parseDouble(words.get(0));
+			}
+			catch (NumberFormatException e) {
+				return convertGeneric(words);
+			}
+		}
+	}
+
+	private static class BooleanConverter extends ParameterValueConverter {
+
+		private BooleanConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			if (words.size() == 1) {
+				String word = words.get(0);
+				if ("true".equals(word)) {
+					return Boolean.TRUE;
+				}
+				else if ("false".equals(word)) {
+					return Boolean.FALSE;
+				}
+			}
+			return convertGeneric(words);
+		}
+	}
+
+	/**
+	 * Base class for converters that bind each word to an element of an array or collection.
+	 */
+	private static abstract class ElementsConverter extends ParameterValueConverter {
+
+		private ElementsConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convertDefault(String value) {
+			return conversionService.convert(value, STRING, targetType);
+		}
+	}
+
+	private static class IntArrayConverter extends ElementsConverter {
+
+		private IntArrayConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			int[] result = new int[words.size()];
+			for (int i = 0; i < result.length; i++) {
+				String word = words.get(i);
+				try {
+					result[i] = Integer.parseInt(word);
+				}
+				catch (NumberFormatException e) {
+					result[i] = convertElement(word, Integer.class);
+				}
+			}
+			return result;
+		}
+	}
+
+	private static class LongArrayConverter extends ElementsConverter {
+
+		private LongArrayConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			long[] result = new long[words.size()];
+			for (int i = 0; i < result.length; i++) {
+				String word = words.get(i);
+				try {
+					result[i] = Long.parseLong(word);
+				}
+				catch (NumberFormatException e) {
+					result[i] = convertElement(word, Long.class);
+				}
+			}
+			return result;
+		}
+	}
+
+	private static class DoubleArrayConverter extends ElementsConverter {
+
+		private DoubleArrayConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			double[] result = new double[words.size()];
+			for (int i = 0; i < result.length; i++) {
+				String word = words.get(i);
+				try {
+					result[i] = Double.parseDouble(word);
+				}
+				catch (NumberFormatException e) {
+					result[i] = convertElement(word, Double.class);
+				}
+			}
+			return result;
+		}
+	}
+
+	private static class BooleanArrayConverter extends ElementsConverter {
+
+		private BooleanArrayConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			boolean[] result = new boolean[words.size()];
+			for (int i = 0; i < result.length; i++) {
+				String word = words.get(i);
+				if ("true".equals(word)) {
+					result[i] = true;
+				}
+				else if (!"false".equals(word)) {
+					result[i] = convertElement(word, Boolean.class);
+				}
+			}
+			return result;
+		}
+	}
+
+	private static class ObjectArrayConverter extends ElementsConverter {
+
+		private final TypeDescriptor elementType;
+
+		private ObjectArrayConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+			this.elementType = targetType.getElementTypeDescriptor();
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			Object[] result = (Object[]) Array.newInstance(elementType.getType(), words.size());
+			for (int i = 0; i < result.length; i++) {
+				result[i] = convertElement(words.get(i), elementType);
+			}
+			return result;
+		}
+	}
+
+	private static class CollectionConverter extends ElementsConverter {
+
+		private final TypeDescriptor elementType;
+
+		private CollectionConverter(ConversionService conversionService, TypeDescriptor targetType) {
+			super(conversionService, targetType);
+			this.elementType = targetType.getElementTypeDescriptor();
+		}
+
+		@Override
+		public Object convert(List<String> words) {
+			Collection<Object> result = CollectionFactory.createCollection(targetType.getType(),
+					elementType != null ? elementType.getType() : null, words.size());
+			for (String word : words) {
+				result.add(convertElement(word, elementType));
+			}
+			return result;
+		}
+	}
+}
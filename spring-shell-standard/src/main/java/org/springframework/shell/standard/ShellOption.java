@@ -42,6 +42,12 @@ public @interface ShellOption {
 	 */
 	int ARITY_USE_HEURISTICS = -1;
 
+	/**
+	 * Marker value to indicate that a parameter consumes all the words that follow it, up to the next parameter key
+	 * (or the end of input). Can only be used for array and collection parameters.
+	 */
+	int ARITY_UNBOUNDED = Integer.MAX_VALUE;
+
 	/**
 	 * The key(s) (without the {@link ShellMethod#prefix()}) by which this parameter can be referenced
 	 * when using named parameters. If none is specified, the actual method parameter name will be used.
@@ -50,7 +56,7 @@ public @interface ShellOption {
 
 	/**
 	 * Return the number of input "words" this parameter consumes. Default is 1, except when parameter type is boolean,
-	 * in which case it is 0.
+	 * in which case it is 0. Use {@link #ARITY_UNBOUNDED} to consume all remaining words.
 	 */
 	int arity() default ARITY_USE_HEURISTICS;
 
@@ -74,6 +80,13 @@ public @interface ShellOption {
 	 */
 	boolean optOut() default false;
 
+	/**
+	 * Used to indicate that converting text to the type of the given parameter has no side effect (<em>e.g.</em>
+	 * does not create anything remotely), so that it may be done ahead of time, while the user is still typing.
+	 * Primitives, their wrappers, Strings and enums (and arrays or collections thereof) are always considered pure.
+	 */
+	boolean pure() default false;
+
 	interface NoValueProvider extends ValueProvider {
 
 	}
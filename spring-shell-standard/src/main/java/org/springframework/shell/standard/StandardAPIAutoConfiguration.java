@@ -16,6 +16,8 @@
 
 package org.springframework.shell.standard;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.ConversionService;
@@ -37,8 +39,10 @@ public class StandardAPIAutoConfiguration {
 	}
 
 	@Bean
-	public ValueProvider enumValueProvider() {
-		return new EnumValueProvider();
+	public ValueProvider enumValueProvider(
+			@Value("${spring.shell.completion.enum.case-insensitive:false}") boolean caseInsensitive,
+			@Value("${spring.shell.completion.enum.fuzzy:false}") boolean fuzzy) {
+		return new EnumValueProvider(caseInsensitive, fuzzy);
 	}
 
 	@Bean
@@ -46,6 +50,21 @@ public class StandardAPIAutoConfiguration {
 		return new StandardMethodTargetRegistrar();
 	}
 
+	@Bean
+	@ConditionalOnMissingBean(ValueCompletionCache.class)
+	public ValueCompletionCache valueCompletionCache(
+			@Value("${spring.shell.completion.cache.time-to-live:" + ValueCompletionCache.DEFAULT_TIME_TO_LIVE + "}") long timeToLive,
+			@Value("${spring.shell.completion.cache.maximum-size:" + ValueCompletionCache.DEFAULT_MAXIMUM_SIZE + "}") int maximumSize) {
+		return new ValueCompletionCache(timeToLive, maximumSize);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(ValueCompletionExecutor.class)
+	public ValueCompletionExecutor valueCompletionExecutor(
+			@Value("${spring.shell.completion.time-budget:" + ValueCompletionExecutor.DEFAULT_TIME_BUDGET + "}") long timeBudget) {
+		return new ValueCompletionExecutor(timeBudget);
+	}
+
 	@Bean
 	public ParameterResolver standardParameterResolver(ConversionService conversionService) {
 		return new StandardParameterResolver(conversionService);
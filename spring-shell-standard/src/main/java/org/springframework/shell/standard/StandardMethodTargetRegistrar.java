@@ -18,8 +18,11 @@ package org.springframework.shell.standard;
 
 import static org.springframework.util.StringUtils.collectionToDelimitedString;
 
-import java.util.HashMap;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
@@ -41,7 +44,7 @@ public class StandardMethodTargetRegistrar implements MethodTargetRegistrar {
 	@Autowired
 	private ApplicationContext applicationContext;
 
-	private Map<String, MethodTarget> commands = new HashMap<>();
+	private final Map<String, MethodTarget> commands = new ConcurrentHashMap<>();
 	
 	@Override
 	public void register(ConfigurableCommandRegistry registry) {
@@ -50,6 +53,7 @@ public class StandardMethodTargetRegistrar implements MethodTargetRegistrar {
 			Class<?> clazz = bean.getClass();
 			ReflectionUtils.doWithMethods(clazz, method -> {
 				ShellMethod shellMapping = method.getAnnotation(ShellMethod.class);
+				validateParameters(method);
 				String[] keys = shellMapping.value();
 				if (keys.length == 0) {
 					keys = new String[] {method.getName()};
@@ -63,6 +67,22 @@ public class StandardMethodTargetRegistrar implements MethodTargetRegistrar {
 		}
 	}
 
+	/**
+	 * Reject parameters that can't consume all remaining words, yet are declared as such.
+	 */
+	private void validateParameters(Method method) {
+		for (Parameter parameter : method.getParameters()) {
+			ShellOption option = parameter.getAnnotation(ShellOption.class);
+			Class<?> type = parameter.getType();
+			if (option != null && option.arity() == ShellOption.ARITY_UNBOUNDED
+					&& !type.isArray() && !Collection.class.isAssignableFrom(type)) {
+				throw new IllegalArgumentException(String.format(
+					"Parameter '%s' of %s has an unbounded arity, but is neither an array nor a collection",
+					parameter.getName(), method));
+			}
+		}
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + " contributing "
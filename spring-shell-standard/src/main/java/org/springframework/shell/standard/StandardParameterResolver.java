@@ -18,7 +18,6 @@ package org.springframework.shell.standard;
 
 import static org.springframework.shell.Utils.unCamelify;
 
-import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
@@ -26,6 +25,7 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -42,16 +43,17 @@ import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.shell.CompletionContext;
 import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.FuzzyMatcher;
 import org.springframework.shell.ParameterDescription;
 import org.springframework.shell.ParameterMissingResolutionException;
 import org.springframework.shell.ParameterResolver;
 import org.springframework.shell.UnfinishedParameterResolutionException;
+import org.springframework.shell.UsageStatistics;
 import org.springframework.shell.Utils;
 import org.springframework.shell.ValueResult;
 import org.springframework.stereotype.Component;
-import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ConcurrentReferenceHashMap;
-import org.springframework.util.ObjectUtils;
 
 /**
  * Default ParameterResolver implementation that supports the following features:<ul>
@@ -63,9 +65,9 @@ import org.springframework.util.ObjectUtils;
  * </ul>
  *
  * <p>Method arguments can consume several words of input at once (driven by {@link ShellOption#arity()}, default 1).
- * If several words are consumed, they will be joined together as a comma separated value and passed to the {@link
- * ConversionService}
- * (which will typically return a List or array).</p>
+ * If several words are consumed, each one is converted in turn and becomes an element of the resulting array or
+ * collection. An arity of {@link ShellOption#ARITY_UNBOUNDED} consumes all the words that follow a key, up to the
+ * next key, or all the remaining words when resolving by position.</p>
  *
  * <p>Boolean parameters are by default expected to have an arity of 0, allowing invocations in the form {@code rm
  * --force --dir /foo}:
@@ -82,14 +84,25 @@ public class StandardParameterResolver implements ParameterResolver {
 
 	private final ConversionService conversionService;
 
-	private Collection<ValueProvider> valueProviders = new HashSet<>();
+	private ValueProviderDispatch valueProviders = new ValueProviderDispatch(Collections.emptySet());
+
+	private ValueCompletionCache valueCompletionCache;
+
+	private ValueCompletionExecutor valueCompletionExecutor;
+
+	private UsageStatistics usageStatistics;
 
 	/**
 	 * A cache from method+input to String representation of actual parameter values.
 	 * Note that the converted result is not cached, to allow dynamic computation to happen at every invocation
 	 * if needed (e.g. if a remote service is involved).
 	 */
-	private final Map<CacheKey, Map<Parameter, ParameterRawValue>> parameterCache = new ConcurrentReferenceHashMap<>();
+	private final Map<CacheKey, PartialResolution> parameterCache = new ConcurrentReferenceHashMap<>();
+
+	/**
+	 * The converter selected for each parameter, computed the first time the parameter is resolved.
+	 */
+	private final Map<Parameter, ParameterValueConverter> converters = new ConcurrentReferenceHashMap<>();
 
 	@Autowired
 	public StandardParameterResolver(ConversionService conversionService) {
@@ -98,7 +111,34 @@ public class StandardParameterResolver implements ParameterResolver {
 
 	@Autowired(required = false)
 	public void setValueProviders(Collection<ValueProvider> valueProviders) {
-		this.valueProviders = valueProviders;
+		this.valueProviders = new ValueProviderDispatch(valueProviders);
+	}
+
+	/**
+	 * Set the cache used to store the results of {@link CacheableValueProvider}s. If not set, all value providers are
+	 * invoked on every completion request.
+	 */
+	@Autowired(required = false)
+	public void setValueCompletionCache(ValueCompletionCache valueCompletionCache) {
+		this.valueCompletionCache = valueCompletionCache;
+	}
+
+	/**
+	 * Set the executor used to run value providers within a time budget. If not set, value providers are invoked
+	 * synchronously.
+	 */
+	@Autowired(required = false)
+	public void setValueCompletionExecutor(ValueCompletionExecutor valueCompletionExecutor) {
+		this.valueCompletionExecutor = valueCompletionExecutor;
+	}
+
+	/**
+	 * Set the statistics used to propose the values users most often pass to a parameter first. If not set, values
+	 * are proposed in the order of their value provider.
+	 */
+	@Autowired(required = false)
+	public void setUsageStatistics(UsageStatistics usageStatistics) {
+		this.usageStatistics = usageStatistics;
 	}
 
 	@Override
@@ -107,20 +147,70 @@ public class StandardParameterResolver implements ParameterResolver {
 		return !optOut && parameter.getMethodAnnotation(ShellMethod.class) != null;
 	}
 
+	/**
+	 * Binding words to parameters has no side effect, so purity only depends on conversion.
+	 * @see ShellOption#pure()
+	 */
+	@Override
+	public boolean isPure(MethodParameter parameter) {
+		ShellOption option = parameter.getParameterAnnotation(ShellOption.class);
+		if (option != null && option.pure()) {
+			return true;
+		}
+		TypeDescriptor type = new TypeDescriptor(parameter);
+		if (type.isArray() || type.isCollection()) {
+			type = type.getElementTypeDescriptor();
+		}
+		return type != null
+				&& (ClassUtils.isPrimitiveOrWrapper(type.getType()) || type.getType() == String.class || type.getType().isEnum());
+	}
+	/**
+	 * Only values the user picks among proposals are worth ranking, so only enum parameters and parameters backed by an
+	 * explicit or typed {@link ValueProvider} are recorded. Free form values, which may be sensitive, are not.
+	 */
+	@Override
+	public boolean isRecordable(MethodParameter parameter) {
+		TypeDescriptor type = new TypeDescriptor(parameter);
+		if (type.isArray() || type.isCollection()) {
+			type = type.getElementTypeDescriptor();
+		}
+		return (type != null && type.getType().isEnum()) || valueProviders.hasStatic(parameter);
+	}
+
+
 	@Override
 	public ValueResult resolve(MethodParameter methodParameter, List<String> words) {
-		String prefix = prefixForMethod(methodParameter.getMethod());
+		PartialResolution resolved = partiallyResolve(methodParameter.getMethod(), words);
+		if (resolved.problem != null) {
+			throw resolved.problem.get();
+		}
 
-		CacheKey cacheKey = new CacheKey(methodParameter.getMethod(), words);
-		Map<Parameter, ParameterRawValue> resolved = parameterCache.computeIfAbsent(cacheKey, (k) -> {
+		Parameter param = methodParameter.getMethod().getParameters()[methodParameter.getParameterIndex()];
+		if (!resolved.values.containsKey(param)) {
+			throw new ParameterMissingResolutionException(describe(methodParameter).findFirst().get());
+		}
+		ParameterRawValue parameterRawValue = resolved.values.get(param);
+		Object value = convertRawValue(parameterRawValue, methodParameter);
+		BitSet wordsUsed = getWordsUsed(parameterRawValue);
+		BitSet wordsUsedForValue = getWordsUsedForValue(parameterRawValue);
+		return new ValueResult(methodParameter, value, wordsUsed, wordsUsedForValue);
+	}
+
+	/**
+	 * Bind words to all parameters of the given method, without ever throwing an exception. Problems that would
+	 * prevent actual resolution are recorded in the result, to be thrown only when a value is really needed.
+	 */
+	private PartialResolution partiallyResolve(Method method, List<String> words) {
+		return parameterCache.computeIfAbsent(new CacheKey(method, words), (k) -> {
+			String prefix = prefixForMethod(method);
 
-			Map<Parameter, ParameterRawValue> result = new HashMap<>();
-			Map<String, String> namedParameters = new HashMap<>();
+			PartialResolution result = new PartialResolution();
+			Set<String> namedParameters = new HashSet<>();
 			
 			// index of words that haven't yet been used to resolve parameter values
 			List<Integer> unusedWords = new ArrayList<>();
 
-			Set<String> possibleKeys = gatherAllPossibleKeys(methodParameter.getMethod());
+			Set<String> possibleKeys = gatherAllPossibleKeys(method);
 
 			// First, resolve all parameters passed by-name
 			for (int i = 0; i < words.size(); i++) {
@@ -128,24 +218,30 @@ public class StandardParameterResolver implements ParameterResolver {
 				String word = words.get(i);
 				if (possibleKeys.contains(word)) {
 					String key = word;
-					Parameter parameter = lookupParameterForKey(methodParameter.getMethod(), key, prefix);
-					int arity = getArity(parameter);
+					Parameter parameter = lookupParameterForKey(method, key, prefix);
+					boolean unbounded = getArity(parameter) == ShellOption.ARITY_UNBOUNDED;
+					int arity = unbounded ? countWordsUpToNextKey(words, i + 1, possibleKeys) : getArity(parameter);
 
 					if (i + 1 + arity > words.size()) {
+						// All remaining words belong to this parameter, but are not enough
+						result.unfinished = ParameterRawValue.explicit(words.subList(i + 1, words.size()), key, from, words.size() - 1);
+						result.unfinishedParameter = parameter;
 						String input = words.subList(i, words.size()).stream().collect(Collectors.joining(" "));
-						throw new UnfinishedParameterResolutionException(describe(Utils.createMethodParameter(parameter)).findFirst().get(), input);
+						result.problem(() -> new UnfinishedParameterResolutionException(describe(Utils.createMethodParameter(parameter)).findFirst().get(), input));
+						break;
+					}
+					if (!namedParameters.add(key)) {
+						result.problem(() -> new IllegalArgumentException(String.format("Parameter for '%s' has already been specified", word)));
+						i += arity;
 					}
-					Assert.isTrue(i + 1 + arity <= words.size(), String.format("Not enough input for parameter '%s'", word));
-					String raw = words.subList(i + 1, i + 1 + arity).stream().collect(Collectors.joining(","));
-					Assert.isTrue(!namedParameters.containsKey(key), String.format("Parameter for '%s' has already been specified", word));
-					namedParameters.put(key, raw);
-					if (arity == 0) {
+					else if (arity == 0 && !unbounded) {
 						boolean defaultValue = booleanDefaultValue(parameter);
 						// Boolean parameter has been specified. Use the opposite of the default value
-						result.put(parameter, ParameterRawValue.explicit(String.valueOf(!defaultValue), key, from, from));
+						result.values.put(parameter, ParameterRawValue.explicit(Collections.singletonList(String.valueOf(!defaultValue)), key, from, from));
 					} else {
+						List<String> raw = words.subList(i + 1, i + 1 + arity);
 						i += arity;
-						result.put(parameter, ParameterRawValue.explicit(raw, key, from, i));
+						result.values.put(parameter, ParameterRawValue.explicit(raw, key, from, i));
 					}
 				} // store for later processing of positional params
 				else {
@@ -155,50 +251,45 @@ public class StandardParameterResolver implements ParameterResolver {
 
 			// Now have a second pass over params and treat them as positional
 			int offset = 0;
-			Parameter[] parameters = methodParameter.getMethod().getParameters();
+			Parameter[] parameters = method.getParameters();
 			for (int i = 0, parametersLength = parameters.length; i < parametersLength; i++) {
 				Parameter parameter = parameters[i];
 				// Compute the intersection between possible keys for the param and what we've already seen for named params
-				Collection<String> keys = getKeysForParameter(methodParameter.getMethod(), i).collect(Collectors.toSet());
+				Collection<String> keys = getKeysForParameter(method, i).collect(Collectors.toSet());
 				Collection<String> copy = new HashSet<>(keys);
-				copy.retainAll(namedParameters.keySet());
-				if (copy.isEmpty()) { // Was not set via a key (including aliases), must be positional
+				copy.retainAll(namedParameters);
+				if (copy.isEmpty() && parameter != result.unfinishedParameter) { // Was not set via a key (including aliases), must be positional
 					int arity = getArity(parameter);
+					if (arity == ShellOption.ARITY_UNBOUNDED) {
+						arity = unusedWords.size() - offset;
+					}
 					if (arity > 0 && (offset + arity) <= unusedWords.size()) {
-						String raw = unusedWords.subList(offset, offset + arity).stream()
-								.map(index -> words.get(index))
-								.collect(Collectors.joining(","));
+						List<String> raw = new ArrayList<>(arity);
+						for (int index : unusedWords.subList(offset, offset + arity)) {
+							raw.add(words.get(index));
+						}
 						int from = unusedWords.get(offset);
-						int to = from + arity - 1;
-						result.put(parameter, ParameterRawValue.explicit(raw, null, from, to));
+						int to = unusedWords.get(offset + arity - 1);
+						result.values.put(parameter, ParameterRawValue.explicit(raw, null, from, to));
 						offset += arity;
 					} // No more input. Try defaultValues
 					else {
 						Optional<String> defaultValue = defaultValueFor(parameter);
-						defaultValue.ifPresent(value -> result.put(parameter, ParameterRawValue.implicit(value, null, null, null)));
+						defaultValue.ifPresent(value -> result.values.put(parameter, ParameterRawValue.implicit(Collections.singletonList(value), null, null, null)));
 					}
 				}
 				else if (copy.size() > 1) {
-					throw new IllegalArgumentException("Named parameter has been specified multiple times via " + quote(copy));
+					result.problem(() -> new IllegalArgumentException("Named parameter has been specified multiple times via " + quote(copy)));
 				}
 			}
 
-			Assert.isTrue(offset == unusedWords.size(),
-					"Too many arguments: the following could not be mapped to parameters: "
-							+ unusedWords.subList(offset, unusedWords.size()).stream()
-									.map(index -> words.get(index)).collect(Collectors.joining(" ", "'", "'")));
+			if (offset != unusedWords.size()) {
+				List<Integer> leftOver = unusedWords.subList(offset, unusedWords.size());
+				result.problem(() -> new IllegalArgumentException("Too many arguments: the following could not be mapped to parameters: "
+						+ leftOver.stream().map(index -> words.get(index)).collect(Collectors.joining(" ", "'", "'"))));
+			}
 			return result;
 		});
-
-		Parameter param = methodParameter.getMethod().getParameters()[methodParameter.getParameterIndex()];
-		if (!resolved.containsKey(param)) {
-			throw new ParameterMissingResolutionException(describe(methodParameter).findFirst().get());
-		}
-		ParameterRawValue parameterRawValue = resolved.get(param);
-		Object value = convertRawValue(parameterRawValue, methodParameter);
-		BitSet wordsUsed = getWordsUsed(parameterRawValue);
-		BitSet wordsUsedForValue = getWordsUsedForValue(parameterRawValue);
-		return new ValueResult(methodParameter, value, wordsUsed, wordsUsedForValue);
 	}
 
 	private BitSet getWordsUsed(ParameterRawValue parameterRawValue) {
@@ -223,13 +314,25 @@ public class StandardParameterResolver implements ParameterResolver {
 	}
 
 	private Object convertRawValue(ParameterRawValue parameterRawValue, MethodParameter methodParameter) {
-		String s = parameterRawValue.value;
-		if (ShellOption.NULL.equals(s)) {
+		List<String> values = parameterRawValue.values;
+		if (values.size() == 1 && ShellOption.NULL.equals(values.get(0))) {
 			return null;
 		}
-		else {
-			return conversionService.convert(s, TypeDescriptor.valueOf(String.class), new TypeDescriptor(methodParameter));
+		Parameter parameter = methodParameter.getMethod().getParameters()[methodParameter.getParameterIndex()];
+		ParameterValueConverter converter = converters.computeIfAbsent(parameter,
+				p -> ParameterValueConverter.forParameter(methodParameter, getArity(p), conversionService));
+		return parameterRawValue.explicit ? converter.convert(values) : converter.convertDefault(values.get(0));
+	}
+
+	/**
+	 * Return the number of words, starting at {@literal from}, that are not parameter keys.
+	 */
+	private int countWordsUpToNextKey(List<String> words, int from, Set<String> possibleKeys) {
+		int to = from;
+		while (to < words.size() && !possibleKeys.contains(words.get(to))) {
+			to++;
 		}
+		return to - from;
 	}
 
 	private Set<String> gatherAllPossibleKeys(Method method) {
@@ -277,14 +380,18 @@ public class StandardParameterResolver implements ParameterResolver {
 		Class<?> type = parameter.getParameterType();
 		ShellOption option = jlrParameter.getAnnotation(ShellOption.class);
 		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < arity; i++) {
+		if (arity == ShellOption.ARITY_UNBOUNDED) {
+			sb.append(unCamelify(removeMultiplicityFromType(parameter).getSimpleName())).append("...");
+		}
+		for (int i = 0; arity != ShellOption.ARITY_UNBOUNDED && i < arity; i++) {
 			if (i > 0) {
 				sb.append(" ");
 			}
 			sb.append(arity > 1 ? unCamelify(removeMultiplicityFromType(parameter).getSimpleName()) : unCamelify(type.getSimpleName()));
 		}
 		ParameterDescription result = ParameterDescription.outOf(parameter);
-		result.formal(sb.toString());
+		result.formal(sb.toString())
+				.arity(arity == ShellOption.ARITY_UNBOUNDED ? ParameterDescription.ARITY_UNBOUNDED : arity);
 		if (option != null) {
 			result.help(option.help());
 			Optional<String> defaultValue = defaultValueFor(jlrParameter);
@@ -302,75 +409,153 @@ public class StandardParameterResolver implements ParameterResolver {
 
 	@Override
 	public List<CompletionProposal> complete(MethodParameter methodParameter, CompletionContext context) {
-		boolean set;
-		Exception unfinished = null;
-		// First try to see if this parameter has been set, even to some unfinished value
-		ParameterRawValue parameterRawValue = null;
-		int arity = 1;
-		try {
-			resolve(methodParameter, context.getWords());
-			CacheKey cacheKey = new CacheKey(methodParameter.getMethod(), context.getWords());
-			Parameter parameter = methodParameter.getMethod().getParameters()[methodParameter.getParameterIndex()];
-			arity = getArity(parameter);
-			parameterRawValue = parameterCache.get(cacheKey).get(parameter);
-			set = parameterRawValue.explicit;
-		}
-		catch (ParameterMissingResolutionException e) {
-			set = false;
-		}
-		catch (Exception e) {
-			unfinished = e;
-			set = false;
-			// Most likely what is already typed would fail resolution (eg type conversion failure)
-			// Exit early and let other parameters have a chance at being proposed
-			//return Collections.emptyList();
-		}
-
-		// There are 4 possible cases:
-		// 1) parameter not set at all
+		return completeAll(Collections.singletonList(methodParameter), context);
+	}
+
+	/**
+	 * Analyzes the input once, and then only asks for value completions for the parameter the cursor is on, if any.
+	 */
+	@Override
+	public List<CompletionProposal> completeAll(List<MethodParameter> methodParameters, CompletionContext context) {
+		if (methodParameters.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Method method = methodParameters.get(0).getMethod();
+		Parameter[] parameters = method.getParameters();
+		PartialResolution resolved = partiallyResolve(method, context.getWords());
+		int cursor = context.getWordIndex();
+		String prefix = context.currentWordUpToCursor() != null ? context.currentWordUpToCursor() : "";
+		// Another parameter is waiting for its value(s): not the right time for keys
+		boolean valueExpected = resolved.unfinished != null && cursor > resolved.unfinished.from;
+
+		// There are 4 possible cases for each parameter:
+		// 1) parameter not set at all (or set to its default value)
 		// 2) parameter set via its key, not enough input to consume a value
-		// 3) parameter set with multiple values, enough to cover arity. We're done
-		// 4) parameter set, and some value bound. But maybe that value is just a prefix to what the user actually wants
-		// 4.1) or maybe that value was resolved by position, but is a prefix of an actual valid key
-
-		if (!set) {
-			if (unfinished == null) { // case 1 above
-				return argumentKeysThatStartWithContextPrefix(methodParameter, context);
-			} // case 2
+		// 3) parameter set with enough values to cover arity. We're done, unless the cursor is in one of those values
+		// 4) parameter set to a variable number of values, that may grow
+		// In all cases, if the cursor is on the key itself, it may just be a prefix of the actual key the user wants
+		List<CompletionProposal> result = new ArrayList<>();
+		// Parameters whose keys may be what the user is typing, and how many of those keys actually start with it
+		List<Integer> keyCandidates = new ArrayList<>();
+		int keysFound = 0;
+		for (MethodParameter methodParameter : methodParameters) {
+			Parameter parameter = parameters[methodParameter.getParameterIndex()];
+			BindingState state = resolved.state(parameter);
+			if (state == BindingState.UNSET) {
+				if (!valueExpected) {
+					keyCandidates.add(methodParameter.getParameterIndex());
+					keysFound += addAll(result, argumentKeysThatStartWith(prefix, method, methodParameter.getParameterIndex()));
+				}
+			}
+			else if (state == BindingState.UNFINISHED_KEY) {
+				if (cursor == resolved.unfinished.from) {
+					keyCandidates.add(methodParameter.getParameterIndex());
+					keysFound += addAll(result, argumentKeysThatStartWith(prefix, method, methodParameter.getParameterIndex()));
+				}
+				else {
+					result.addAll(valueCompletions(methodParameter, context));
+				}
+			}
 			else {
-				return valueCompletions(methodParameter, context);
+				ParameterRawValue parameterRawValue = resolved.values.get(parameter);
+				if (parameterRawValue.key != null && cursor == parameterRawValue.from) {
+					keyCandidates.add(methodParameter.getParameterIndex());
+					keysFound += addAll(result, argumentKeysThatStartWith(prefix, method, methodParameter.getParameterIndex()));
+					continue;
+				}
+				boolean inValue = cursor >= parameterRawValue.from && cursor <= parameterRawValue.to;
+				boolean extending = state == BindingState.PARTIALLY_BOUND
+						&& cursor == parameterRawValue.to + 1 && cursor >= context.getWords().size();
+				if (inValue || extending) {
+					result.addAll(valueCompletions(methodParameter, context));
+					if (parameterRawValue.positional()) {
+						// There exists "--command foo" and user has typed "--comm" which (wrongly) got resolved as a positional param
+						keyCandidates.add(methodParameter.getParameterIndex());
+						keysFound += addAll(result, argumentKeysThatStartWith(prefix, method, methodParameter.getParameterIndex()));
+					}
+				}
 			}
 		}
+		String methodPrefix = prefixForMethod(method);
+		if (keysFound == 0 && !keyCandidates.isEmpty() && prefix.startsWith(methodPrefix) && prefix.length() > methodPrefix.length()) {
+			// No key starts with what the user typed, maybe a typo
+			result.addAll(argumentKeysMatching(prefix, method, keyCandidates));
+		}
+		return result;
+	}
+
+	private List<CompletionProposal> valueCompletions(MethodParameter methodParameter, CompletionContext completionContext) {
+		Optional<ValueProvider> valueProvider = valueProviders.find(methodParameter, completionContext);
+		if (!valueProvider.isPresent()) {
+			return Collections.emptyList();
+		}
+		List<CompletionProposal> result;
+		boolean complete = true;
+		if (valueCompletionExecutor == null) {
+			result = invokeValueProvider(valueProvider.get(), methodParameter, completionContext)
+					.collect(Collectors.toList());
+		}
 		else {
-			List<CompletionProposal> result = new ArrayList<>();
+			ValueCompletionExecutor.Proposals proposals = valueCompletionExecutor.complete(valueProvider.get(),
+					methodParameter, completionContext,
+					() -> invokeValueProvider(valueProvider.get(), methodParameter, completionContext));
+			result = proposals.getProposals();
+			complete = proposals.isComplete();
+		}
+		if (usageStatistics != null) {
+			result = usageStatistics.rank(UsageStatistics.categoryFor(methodParameter), result, CompletionProposal::value);
+		}
+		if (!complete) {
+			result = new ArrayList<>(result);
+			result.add(morePending(completionContext));
+		}
+		return result;
+	}
 
-			Object value = convertRawValue(parameterRawValue, methodParameter);
-			if (value instanceof Collection && ((Collection) value).size() == arity
-					|| (ObjectUtils.isArray(value) && Array.getLength(value) == arity)) {
-				// We're done already
-				return result;
-			}
-			// Case 4
-			result.addAll(valueCompletions(methodParameter, context));
+	/**
+	 * A proposal standing for proposals that are still being computed, in addition to the ones already known. As it
+	 * merely repeats what the user typed, it also prevents the user interface from inserting a common prefix that may
+	 * not hold once all proposals are known.
+	 */
+	private CompletionProposal morePending(CompletionContext completionContext) {
+		String typed = completionContext.currentWordUpToCursor();
+		return new CompletionProposal(typed != null ? typed : "")
+				.displayText("...")
+				.description("More proposals are being computed, press TAB again")
+				.complete(false);
+	}
 
-			if (parameterRawValue.positional()) {
-				// Case 4.1: There exists "--command foo" and user has typed "--comm" which (wrongly) got resolved as a positional param
-				result.addAll(argumentKeysThatStartWithContextPrefix(methodParameter, context));
-			}
-			return result;
+	/**
+	 * Return the proposals of the given provider as a stream, so that they can be pulled as they come.
+	 */
+	private Stream<CompletionProposal> invokeValueProvider(ValueProvider valueProvider, MethodParameter methodParameter, CompletionContext completionContext) {
+		if (valueCompletionCache != null && valueProvider instanceof CacheableValueProvider) {
+			return valueCompletionCache.complete((CacheableValueProvider) valueProvider, methodParameter, completionContext).stream();
 		}
+		String prefix = completionContext.currentWordUpToCursor();
+		return valueProvider.complete(methodParameter, completionContext, prefix != null ? prefix : "", completionContext.getLimit())
+				.limit(completionContext.getLimit());
 	}
 
-	private List<CompletionProposal> valueCompletions(MethodParameter methodParameter, CompletionContext completionContext) {
-		return valueProviders.stream()
-				.filter(vp -> vp.supports(methodParameter, completionContext))
-				.map(vp -> vp.complete(methodParameter, completionContext, null))
-				.findFirst().orElseGet(() -> Collections.emptyList());
+	private int addAll(List<CompletionProposal> result, List<CompletionProposal> proposals) {
+		result.addAll(proposals);
+		return proposals.size();
 	}
 
-	private List<CompletionProposal> argumentKeysThatStartWithContextPrefix(MethodParameter methodParameter, CompletionContext context) {
-		String prefix = context.currentWordUpToCursor() != null ? context.currentWordUpToCursor() : "";
-		return describe(methodParameter).flatMap(pd -> pd.keys().stream())
+	/**
+	 * Return the keys of the given parameters that fuzzily match what the user typed, best match first.
+	 */
+	private List<CompletionProposal> argumentKeysMatching(String typed, Method method, List<Integer> indices) {
+		return indices.stream()
+				.flatMap(i -> getKeysForParameter(method, i))
+				.filter(k -> FuzzyMatcher.score(typed, k) >= 0)
+				.sorted(Comparator.comparingInt((String k) -> FuzzyMatcher.score(typed, k)).reversed())
+				.map(CompletionProposal::new)
+				.collect(Collectors.toList());
+	}
+
+	private List<CompletionProposal> argumentKeysThatStartWith(String prefix, Method method, int index) {
+		return getKeysForParameter(method, index)
 				.filter(k -> k.startsWith(prefix))
 				.map(CompletionProposal::new)
 				.collect(Collectors.toList());
@@ -482,9 +667,9 @@ public class StandardParameterResolver implements ParameterResolver {
 		private Integer keyIndex;
 
 		/**
-		 * The raw String value that got bound to a parameter.
+		 * The raw String values that got bound to a parameter, one per consumed word.
 		 */
-		private final String value;
+		private final List<String> values;
 
 		/**
 		 * If false, the value resolved is the result of applying defaults.
@@ -496,20 +681,20 @@ public class StandardParameterResolver implements ParameterResolver {
 		 */
 		private final String key;
 
-		private ParameterRawValue(String value, boolean explicit, String key, Integer from, Integer to) {
-			this.value = value;
+		private ParameterRawValue(List<String> values, boolean explicit, String key, Integer from, Integer to) {
+			this.values = values;
 			this.explicit = explicit;
 			this.key = key;
 			this.from = from;
 			this.to = to;
 		}
 
-		public static ParameterRawValue explicit(String value, String key, Integer from, Integer to) {
-			return new ParameterRawValue(value, true, key, from, to);
+		public static ParameterRawValue explicit(List<String> values, String key, Integer from, Integer to) {
+			return new ParameterRawValue(values, true, key, from, to);
 		}
 
-		public static ParameterRawValue implicit(String value, String key, Integer from, Integer to) {
-			return new ParameterRawValue(value, false, key, from, to);
+		public static ParameterRawValue implicit(List<String> values, String key, Integer from, Integer to) {
+			return new ParameterRawValue(values, false, key, from, to);
 		}
 
 		public boolean positional() {
@@ -519,7 +704,7 @@ public class StandardParameterResolver implements ParameterResolver {
 		@Override
 		public String toString() {
 			return "ParameterRawValue{" +
-					"value='" + value + '\'' +
+					"values=" + values +
 					", explicit=" + explicit +
 					", key='" + key + '\'' +
 					", from=" + from +
@@ -528,4 +713,70 @@ public class StandardParameterResolver implements ParameterResolver {
 		}
 	}
 
+	/**
+	 * The state of a parameter after words have been bound to parameters.
+	 */
+	private enum BindingState {
+
+		/**
+		 * The parameter was not mentioned, and may have been assigned its default value.
+		 */
+		UNSET,
+
+		/**
+		 * The key for the parameter was typed, but not followed by enough words.
+		 */
+		UNFINISHED_KEY,
+
+		/**
+		 * Words were bound to the parameter, but more could follow (parameter of unbounded arity).
+		 */
+		PARTIALLY_BOUND,
+
+		/**
+		 * The parameter got all the words it could consume.
+		 */
+		FULLY_BOUND
+	}
+
+	/**
+	 * The result of binding words to all parameters of a method, which never fails. Problems that would prevent
+	 * resolution are only materialized as exceptions if resolution is actually requested.
+	 */
+	private class PartialResolution {
+
+		private final Map<Parameter, ParameterRawValue> values = new HashMap<>();
+
+		/**
+		 * The parameter whose key was not followed by enough words, if any.
+		 */
+		private Parameter unfinishedParameter;
+
+		/**
+		 * The (incomplete) value of the parameter whose key was not followed by enough words, if any.
+		 */
+		private ParameterRawValue unfinished;
+
+		/**
+		 * The first problem that was encountered, if any.
+		 */
+		private Supplier<RuntimeException> problem;
+
+		private void problem(Supplier<RuntimeException> problem) {
+			if (this.problem == null) {
+				this.problem = problem;
+			}
+		}
+
+		private BindingState state(Parameter parameter) {
+			if (parameter == unfinishedParameter) {
+				return BindingState.UNFINISHED_KEY;
+			}
+			ParameterRawValue rawValue = values.get(parameter);
+			if (rawValue == null || !rawValue.explicit) {
+				return BindingState.UNSET;
+			}
+			return getArity(parameter) == ShellOption.ARITY_UNBOUNDED ? BindingState.PARTIALLY_BOUND : BindingState.FULLY_BOUND;
+		}
+	}
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.standard;
+
+import java.util.Set;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.shell.CompletionContext;
+
+/**
+ * A {@link ValueProvider} that applies to all parameters of some types, declared up front so that it can be found
+ * without asking every provider whether it {@linkplain #supports(MethodParameter, CompletionContext) supports} a
+ * parameter.
+ *
+ * @author Eric Bottard
+ */
+public interface TypedValueProvider extends ValueProvider {
+
+	/**
+	 * Return the parameter types this provider completes values for. Subtypes of those types are supported too.
+	 */
+	Set<Class<?>> getSupportedTypes();
+
+	@Override
+	default boolean supports(MethodParameter parameter, CompletionContext completionContext) {
+		return getSupportedTypes().stream().anyMatch(t -> t.isAssignableFrom(parameter.getParameterType()));
+	}
+}
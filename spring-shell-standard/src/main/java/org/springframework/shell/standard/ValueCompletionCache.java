@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.standard;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.shell.CompletionContext;
+import org.springframework.shell.CompletionProposal;
+
+/**
+ * Caches the results of {@link CacheableValueProvider}s, keyed by provider, parameter, prefix being completed and the
+ * {@linkplain CacheableValueProvider#contextWords(MethodParameter, CompletionContext) context words} the provider
+ * depends on.
+ *
+ * <p>Entries expire after a configurable time to live, and the least recently used entries are evicted once the cache
+ * holds more than a configurable number of entries. A request for a prefix that was not computed yet is served by
+ * filtering the results cached for the longest shorter prefix, if any, provided those results were not truncated to
+ * the {@linkplain CompletionContext#getLimit() limit} of the request that computed them.</p>
+ *
+ * @author Eric Bottard
+ */
+public class ValueCompletionCache {
+
+	public static final long DEFAULT_TIME_TO_LIVE = 30_000L;
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+	private final long timeToLiveNanos;
+
+	private final Map<Key, Entry> entries;
+
+	/**
+	 * Create a cache with the default time to live and maximum size.
+	 */
+	public ValueCompletionCache() {
+		this(DEFAULT_TIME_TO_LIVE, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Create a cache whose entries expire after the given number of milliseconds, holding at most
+	 * {@literal maximumSize} entries.
+	 */
+	public ValueCompletionCache(long timeToLive, int maximumSize) {
+		this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > maximumSize;
+			}
+		};
+	}
+
+	/**
+	 * Return the proposals of the given provider, computing them only if no fresh cached result can be used.
+	 */
+	public List<CompletionProposal> complete(CacheableValueProvider provider, MethodParameter parameter, CompletionContext completionContext) {
+		String prefix = completionContext.currentWordUpToCursor();
+		if (prefix == null) {
+			prefix = "";
+		}
+		int limit = completionContext.getLimit();
+		List<String> contextWords = provider.contextWords(parameter, completionContext);
+		long now = System.nanoTime();
+		for (int length = prefix.length(); length >= 0; length--) {
+			Entry cached = lookup(new Key(provider, parameter, contextWords, prefix.substring(0, length)), now);
+			if (cached == null) {
+				continue;
+			}
+			if (length == prefix.length() && (!cached.truncated || cached.limit >= limit)) {
+				return cached.proposals.size() > limit ? cached.proposals.subList(0, limit) : cached.proposals;
+			}
+			else if (!cached.truncated) {
+				return filter(cached.proposals, prefix, limit);
+			}
+		}
+
+		List<CompletionProposal> result = Collections.unmodifiableList(provider.complete(parameter, completionContext, prefix, limit)
+				.limit(limit)
+				.collect(Collectors.toList()));
+		synchronized (entries) {
+			entries.put(new Key(provider, parameter, contextWords, prefix), new Entry(result, limit, now + timeToLiveNanos));
+		}
+		return result;
+	}
+
+	/**
+	 * Discard all cached results.
+	 */
+	public void invalidate() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Discard all cached results of the given provider, <em>e.g.</em> when the backing data is known to have changed.
+	 */
+	public void invalidate(ValueProvider provider) {
+		synchronized (entries) {
+			entries.keySet().removeIf(k -> k.provider == provider);
+		}
+	}
+
+	/**
+	 * Discard all cached results for the given parameter.
+	 */
+	public void invalidate(MethodParameter parameter) {
+		synchronized (entries) {
+			entries.keySet().removeIf(k -> k.parameter.equals(parameter));
+		}
+	}
+
+	private Entry lookup(Key key, long now) {
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			else if (now - entry.expiresAt > 0) {
+				entries.remove(key);
+				return null;
+			}
+			return entry;
+		}
+	}
+
+	private List<CompletionProposal> filter(List<CompletionProposal> proposals, String prefix, int limit) {
+		return proposals.stream()
+				.filter(p -> p.value().startsWith(prefix))
+				.limit(limit)
+				.collect(Collectors.toList());
+	}
+
+	private static class Key {
+
+		private final ValueProvider provider;
+
+		private final MethodParameter parameter;
+
+		private final List<String> contextWords;
+
+		private final String prefix;
+
+		private Key(ValueProvider provider, MethodParameter parameter, List<String> contextWords, String prefix) {
+			this.provider = provider;
+			this.parameter = parameter;
+			this.contextWords = contextWords;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key key = (Key) o;
+			return provider == key.provider &&
+					Objects.equals(parameter, key.parameter) &&
+					Objects.equals(contextWords, key.contextWords) &&
+					Objects.equals(prefix, key.prefix);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(provider), parameter, contextWords, prefix);
+		}
+	}
+
+	private static class Entry {
+
+		private final List<CompletionProposal> proposals;
+
+		private final int limit;
+
+		private final boolean truncated;
+
+		private final long expiresAt;
+
+		private Entry(List<CompletionProposal> proposals, int limit, long expiresAt) {
+			this.proposals = proposals;
+			this.limit = limit;
+			this.truncated = proposals.size() >= limit;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
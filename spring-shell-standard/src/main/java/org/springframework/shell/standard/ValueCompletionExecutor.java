@@ -0,0 +1,345 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.standard;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.shell.CompletionContext;
+import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.ShellSession;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Runs {@link ValueProvider}s in the background, so that a slow provider can't block the user interface for longer
+ * than a given time budget.
+ *
+ * <p>If a provider does not answer within the budget, {@link #complete(ValueProvider, MethodParameter,
+ * CompletionContext, Supplier)} returns the proposals pulled from it so far, marked as incomplete, and the computation
+ * carries on: an identical request issued
+ * later (typically the user pressing TAB again) picks up its result. Results are kept until every session interested
+ * in them has asked for a different input, and for {@value #RESULT_TIME_TO_LIVE}ms at most. Results outliving that
+ * are the business of the {@link ValueCompletionCache}. Computations started for an older state of the input are
+ * cancelled as soon as a request for a different input comes in from the same {@link ShellSession}, unless other
+ * sessions are still interested in them.</p>
+ *
+ * <p>Identical requests issued concurrently (<em>e.g.</em> by several sessions) share a single computation. The number
+ * of provider invocations saved that way is tracked for each provider, see {@link #getSavedCalls()}.</p>
+ *
+ * <p>A time budget of 0 makes all computations happen synchronously, in the calling thread.</p>
+ *
+ * @author Eric Bottard
+ */
+public class ValueCompletionExecutor {
+
+	public static final long DEFAULT_TIME_BUDGET = 250L;
+
+	/**
+	 * How long (in milliseconds) the result of a computation can be picked up once it is over.
+	 */
+	public static final long RESULT_TIME_TO_LIVE = 10_000L;
+
+	private final long timeBudget;
+
+	private final ExecutorService executor;
+
+	private final Map<Key, Flight> inFlight = new ConcurrentHashMap<>();
+
+	private final Map<String, LongAdder> savedCalls = new ConcurrentHashMap<>();
+
+	/**
+	 * Create an executor that waits at most the given number of milliseconds for providers to answer.
+	 */
+	public ValueCompletionExecutor(long timeBudget) {
+		this.timeBudget = timeBudget;
+		this.executor = timeBudget > 0 ? Executors.newCachedThreadPool(r -> {
+			Thread thread = new Thread(r, "shell-completion");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
+	}
+
+	/**
+	 * Return the proposals computed by {@literal computation} on behalf of the given provider, or as many of them as
+	 * could be pulled within the time budget.
+	 */
+	public Proposals complete(ValueProvider provider, MethodParameter parameter,
+			CompletionContext completionContext, Supplier<Stream<CompletionProposal>> computation) {
+		Key key = new Key(provider, parameter, completionContext);
+		ShellSession requester = ShellSession.current();
+		if (executor != null) {
+			abandonStale(key, requester);
+		}
+
+		boolean[] started = new boolean[1];
+		Flight flight;
+		do {
+			started[0] = false;
+			flight = inFlight.computeIfAbsent(key, k -> {
+				started[0] = true;
+				return new Flight(k, computation);
+			});
+			if (!flight.join(requester)) {
+				// Cancelled or expired, but not forgotten yet
+				inFlight.remove(key, flight);
+				flight = null;
+			}
+		}
+		while (flight == null);
+
+		if (!started[0]) {
+			savedCalls.computeIfAbsent(provider.getClass().getName(), p -> new LongAdder()).increment();
+		}
+		else if (executor != null) {
+			executor.execute(flight);
+		}
+		else {
+			flight.run();
+		}
+
+		try {
+			return new Proposals(executor != null ? flight.get(timeBudget, TimeUnit.MILLISECONDS) : flight.get(), true);
+		}
+		catch (TimeoutException | CancellationException e) {
+			return new Proposals(flight.getCollected(), false);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new Proposals(flight.getCollected(), false);
+		}
+		catch (ExecutionException e) {
+			ReflectionUtils.rethrowRuntimeException(e.getCause());
+			return null;
+		}
+	}
+
+	/**
+	 * Pull proposals from the given stream into {@literal collected} as they come, stopping early if cancelled.
+	 */
+	private static List<CompletionProposal> collect(Stream<CompletionProposal> proposals,
+			List<CompletionProposal> collected) {
+		Iterator<CompletionProposal> iterator = proposals.iterator();
+		while (iterator.hasNext() && !Thread.currentThread().isInterrupted()) {
+			CompletionProposal proposal = iterator.next();
+			synchronized (collected) {
+				collected.add(proposal);
+			}
+		}
+		synchronized (collected) {
+			return new ArrayList<>(collected);
+		}
+	}
+
+	/**
+	 * Return, for each provider class, the number of invocations that were avoided by sharing the result of a
+	 * computation that was already in flight.
+	 */
+	public Map<String, Long> getSavedCalls() {
+		Map<String, Long> result = new TreeMap<>();
+		savedCalls.forEach((provider, count) -> result.put(provider, count.sum()));
+		return result;
+	}
+
+	/**
+	 * Lose interest in computations that were started for another state of the input than the one of the given
+	 * request, cancelling (or forgetting the results of) the ones no session is interested in anymore. Also forgets
+	 * results that have expired.
+	 */
+	private void abandonStale(Key key, ShellSession requester) {
+		long now = System.currentTimeMillis();
+		for (Flight flight : inFlight.values()) {
+			if (flight.isExpired(now)) {
+				inFlight.remove(flight.key, flight);
+			}
+			else if (!flight.key.sameInput(key)) {
+				flight.leave(requester);
+			}
+		}
+	}
+
+	/**
+	 * Cancel all pending computations and release the threads used to run them.
+	 */
+	public void shutdown() {
+		inFlight.values().forEach(f -> f.cancel(true));
+		inFlight.clear();
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * A computation, together with the sessions interested in its result. Stays in {@link #inFlight} once completed,
+	 * until no session is interested in its result anymore or that result expires. Removes itself right away if it
+	 * failed or was cancelled, or if it ran synchronously.
+	 */
+	private class Flight extends FutureTask<List<CompletionProposal>> {
+
+		private final Key key;
+
+		private final Set<ShellSession> requesters = new HashSet<>();
+
+		private final List<CompletionProposal> collected;
+
+		private volatile long completedAt;
+
+		private Flight(Key key, Supplier<Stream<CompletionProposal>> computation) {
+			this(key, computation, new ArrayList<>());
+		}
+
+		private Flight(Key key, Supplier<Stream<CompletionProposal>> computation, List<CompletionProposal> collected) {
+			super(() -> collect(computation.get(), collected));
+			this.key = key;
+			this.collected = collected;
+		}
+
+		/**
+		 * Return the proposals pulled so far.
+		 */
+		private List<CompletionProposal> getCollected() {
+			synchronized (collected) {
+				return new ArrayList<>(collected);
+			}
+		}
+
+		/**
+		 * Register interest of the given session, unless this computation was cancelled or its result has expired.
+		 */
+		private synchronized boolean join(ShellSession requester) {
+			if (isCancelled() || isExpired(System.currentTimeMillis())) {
+				return false;
+			}
+			requesters.add(requester);
+			return true;
+		}
+
+		/**
+		 * Withdraw interest of the given session. If it was the last one interested, cancel this computation, or
+		 * forget its result if it is already over.
+		 */
+		private synchronized void leave(ShellSession requester) {
+			if (requesters.remove(requester) && requesters.isEmpty()) {
+				cancel(true);
+				inFlight.remove(key, this);
+			}
+		}
+
+		private boolean isExpired(long now) {
+			long completed = completedAt;
+			return completed != 0 && now - completed > RESULT_TIME_TO_LIVE;
+		}
+
+		@Override
+		protected void set(List<CompletionProposal> proposals) {
+			completedAt = System.currentTimeMillis();
+			super.set(proposals);
+		}
+
+		@Override
+		protected void done() {
+			if (completedAt == 0 || executor == null) {
+				// Failed or cancelled, or already picked up by all requesters as they waited for it
+				inFlight.remove(key, this);
+			}
+		}
+	}
+
+	/**
+	 * Proposals returned by {@link #complete(ValueProvider, MethodParameter, CompletionContext, Supplier)}, which may
+	 * only be the first ones if the provider did not finish within the time budget.
+	 */
+	public static final class Proposals {
+
+		private final List<CompletionProposal> proposals;
+
+		private final boolean complete;
+
+		private Proposals(List<CompletionProposal> proposals, boolean complete) {
+			this.proposals = proposals;
+			this.complete = complete;
+		}
+
+		public List<CompletionProposal> getProposals() {
+			return proposals;
+		}
+
+		/**
+		 * Return whether the provider is done, or whether more proposals are still being computed.
+		 */
+		public boolean isComplete() {
+			return complete;
+		}
+	}
+
+	private static class Key {
+
+		private final ValueProvider provider;
+
+		private final MethodParameter parameter;
+
+		private final List<String> words;
+
+		private final int wordIndex;
+
+		private final int position;
+
+		private Key(ValueProvider provider, MethodParameter parameter, CompletionContext completionContext) {
+			this.provider = provider;
+			this.parameter = parameter;
+			this.words = completionContext.getWords();
+			this.wordIndex = completionContext.getWordIndex();
+			this.position = completionContext.getPosition();
+		}
+
+		private boolean sameInput(Key other) {
+			return wordIndex == other.wordIndex && position == other.position && words.equals(other.words);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key key = (Key) o;
+			return provider == key.provider &&
+					Objects.equals(parameter, key.parameter) &&
+					sameInput(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(provider), parameter, words, wordIndex, position);
+		}
+	}
+}
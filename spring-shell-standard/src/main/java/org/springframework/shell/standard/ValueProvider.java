@@ -17,6 +17,7 @@
 package org.springframework.shell.standard;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.core.MethodParameter;
 import org.springframework.shell.CompletionContext;
@@ -29,4 +30,17 @@ public interface ValueProvider {
 	boolean supports(MethodParameter parameter, CompletionContext completionContext);
 
 	List<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String[] hints);
+
+	/**
+	 * Return the proposals for a value starting with the given prefix. The returned stream is only pulled as far as
+	 * needed, which is at most {@literal limit} elements, allowing implementations backed by large catalogs to only
+	 * fetch a page of results, for example the first matches of the prefix in order.
+	 *
+	 * <p>The default implementation returns the result of {@link #complete(MethodParameter, CompletionContext,
+	 * String[])} as is, truncated to {@literal limit}.</p>
+	 */
+	default Stream<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String prefix, int limit) {
+		return complete(parameter, completionContext, null).stream()
+				.limit(limit);
+	}
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.standard;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.shell.CompletionContext;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Finds the {@link ValueProvider} to use for a parameter.
+ *
+ * <p>Providers are sorted once into three groups:<ul>
+ * <li>{@link ValueProviderSupport} subclasses that don't override {@code supports()}, which apply to parameters that
+ * explicitly ask for them <em>via</em> {@link ShellOption#valueProvider()},</li>
+ * <li>{@link TypedValueProvider}s, which apply to parameters of the types they declare,</li>
+ * <li>all other providers, which may decide dynamically whether they apply.</li>
+ * </ul>
+ * The provider found for a parameter in the first two groups is remembered. Registration order is kept across groups:
+ * the provider used is the first registered one that applies, so the remaining providers are only asked, in turn, if
+ * they were registered before the remembered one (or if there is none).</p>
+ *
+ * @author Eric Bottard
+ */
+class ValueProviderDispatch {
+
+	private final Map<Class<?>, ValueProvider> byProviderType = new HashMap<>();
+
+	private final Map<Class<?>, ValueProvider> byParameterType = new HashMap<>();
+
+	private final List<ValueProvider> dynamic = new ArrayList<>();
+
+	private final Map<ValueProvider, Integer> order = new IdentityHashMap<>();
+
+	private final Map<MethodParameter, Optional<ValueProvider>> staticMatches = new ConcurrentReferenceHashMap<>();
+
+	ValueProviderDispatch(Collection<ValueProvider> valueProviders) {
+		for (ValueProvider valueProvider : valueProviders) {
+			order.putIfAbsent(valueProvider, order.size());
+			if (valueProvider instanceof TypedValueProvider) {
+				for (Class<?> type : ((TypedValueProvider) valueProvider).getSupportedTypes()) {
+					byParameterType.putIfAbsent(type, valueProvider);
+				}
+			}
+			else if (valueProvider instanceof ValueProviderSupport && !overridesSupports(valueProvider)) {
+				for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(valueProvider.getClass())) {
+					byProviderType.putIfAbsent(type, valueProvider);
+				}
+				for (Class<?> type = valueProvider.getClass(); type != ValueProviderSupport.class; type = type.getSuperclass()) {
+					byProviderType.putIfAbsent(type, valueProvider);
+				}
+			}
+			else {
+				dynamic.add(valueProvider);
+			}
+		}
+	}
+
+	/**
+	 * Return the provider to use for the given parameter, if any.
+	 */
+	public Optional<ValueProvider> find(MethodParameter parameter, CompletionContext completionContext) {
+		Optional<ValueProvider> result = staticMatches.computeIfAbsent(parameter, this::findStatic);
+		int registered = result.map(order::get).orElse(Integer.MAX_VALUE);
+		for (ValueProvider valueProvider : dynamic) {
+			if (order.get(valueProvider) > registered) {
+				break;
+			}
+			if (valueProvider.supports(parameter, completionContext)) {
+				return Optional.of(valueProvider);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return whether an explicit or typed provider applies to the given parameter.
+	 */
+	public boolean hasStatic(MethodParameter parameter) {
+		return staticMatches.computeIfAbsent(parameter, this::findStatic).isPresent();
+	}
+
+	/**
+	 * Return the first registered of the explicit and typed providers that apply to the given parameter.
+	 */
+	private Optional<ValueProvider> findStatic(MethodParameter parameter) {
+		List<ValueProvider> candidates = new ArrayList<>();
+		ShellOption option = parameter.getParameterAnnotation(ShellOption.class);
+		if (option != null && byProviderType.containsKey(option.valueProvider())) {
+			candidates.add(byProviderType.get(option.valueProvider()));
+		}
+		for (Class<?> type : typeHierarchy(parameter.getParameterType())) {
+			if (byParameterType.containsKey(type)) {
+				candidates.add(byParameterType.get(type));
+			}
+		}
+		return candidates.stream().min(Comparator.comparing(order::get));
+	}
+
+	/**
+	 * Return the given type, its super classes and then all its interfaces, most specific first.
+	 */
+	private Set<Class<?>> typeHierarchy(Class<?> type) {
+		Set<Class<?>> result = new LinkedHashSet<>();
+		for (Class<?> c = ClassUtils.resolvePrimitiveIfNecessary(type); c != null; c = c.getSuperclass()) {
+			result.add(c);
+		}
+		result.addAll(ClassUtils.getAllInterfacesForClassAsSet(type));
+		return result;
+	}
+
+	private boolean overridesSupports(ValueProvider valueProvider) {
+		Method supports = ReflectionUtils.findMethod(valueProvider.getClass(), "supports", MethodParameter.class, CompletionContext.class);
+		return supports.getDeclaringClass() != ValueProviderSupport.class;
+	}
+}
@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -34,6 +35,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.core.MethodParameter;
 import org.springframework.shell.CompletionContext;
 import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.ConfigurableCommandRegistry;
 import org.springframework.shell.MethodTarget;
 import org.springframework.shell.CommandRegistry;
 import org.springframework.shell.Utils;
@@ -76,6 +78,49 @@ public class CommandValueProviderTest {
 			.contains("me", "meow", "yourself");
 	}
 
+	@Test
+	public void testSortedPage() {
+		CommandValueProvider valueProvider = new CommandValueProvider(shell);
+
+		Method help = ReflectionUtils.findMethod(Command.class, "help", String.class);
+		MethodParameter methodParameter = Utils.createMethodParameter(help, 0);
+		CompletionContext completionContext = new CompletionContext(Arrays.asList("help", "m"), 0, 0, 2);
+
+		Map<String, MethodTarget> commands = new HashMap<>();
+		commands.put("meow", null);
+		commands.put("me", null);
+		commands.put("mew", null);
+		commands.put("yourself", null);
+		when(shell.listCommands()).thenReturn(commands);
+		List<CompletionProposal> proposals = valueProvider.complete(methodParameter, completionContext, "m", 2)
+			.limit(2)
+			.collect(Collectors.toList());
+
+		assertThat(proposals).extracting("value", String.class)
+			.containsExactly("me", "meow");
+
+		// Fewer matches than the limit
+		assertThat(valueProvider.complete(methodParameter, completionContext, "mew", 2)).extracting("value", String.class)
+			.containsExactly("mew");
+	}
+
+	@Test
+	public void testSortedPageOfCopyingRegistry() {
+		ConfigurableCommandRegistry registry = new ConfigurableCommandRegistry();
+		registry.register("meow", null);
+		registry.register("me", null);
+		CommandValueProvider valueProvider = new CommandValueProvider(registry);
+
+		Method help = ReflectionUtils.findMethod(Command.class, "help", String.class);
+		MethodParameter methodParameter = Utils.createMethodParameter(help, 0);
+		CompletionContext completionContext = new CompletionContext(Arrays.asList("help", "m"), 0, 0, 2);
+		assertThat(valueProvider.complete(methodParameter, completionContext, "m", 2)).extracting("value", String.class)
+			.containsExactly("me", "meow");
+
+		registry.register("mew", null);
+		assertThat(valueProvider.complete(methodParameter, completionContext, "m", 2)).extracting("value", String.class)
+			.containsExactly("me", "meow", "mew");
+	}
 
 	public static class Command {
 
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.standard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.shell.CompletionContext;
+import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.Utils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Unit tests for {@link EnumValueProvider}.
+ *
+ * @author Eric Bottard
+ */
+public class EnumValueProviderTest {
+
+	private final Method shutdown = ReflectionUtils.findMethod(Remote.class, "shutdown", Remote.Delay.class);
+
+	private final MethodParameter methodParameter = Utils.createMethodParameter(shutdown, 0);
+
+	@Test
+	public void testPrefix() {
+		EnumValueProvider valueProvider = new EnumValueProvider();
+
+		assertThat(valueProvider.supports(methodParameter, contextFor(""))).isTrue();
+		assertThat(complete(valueProvider, "")).extracting("value", String.class).containsExactly("big", "medium", "small");
+		assertThat(complete(valueProvider, "m")).extracting("value", String.class).containsExactly("medium");
+		assertThat(complete(valueProvider, "M")).isEmpty();
+		assertThat(complete(valueProvider, "x")).isEmpty();
+	}
+
+	@Test
+	public void testCaseInsensitive() {
+		EnumValueProvider valueProvider = new EnumValueProvider(true, false);
+
+		assertThat(complete(valueProvider, "SM")).extracting("value", String.class).containsExactly("small");
+	}
+
+	@Test
+	public void testFuzzy() {
+		EnumValueProvider valueProvider = new EnumValueProvider(false, true);
+
+		assertThat(complete(valueProvider, "mdm")).extracting("value", String.class).containsExactly("medium");
+		assertThat(complete(valueProvider, "b")).extracting("value", String.class).containsExactly("big");
+	}
+
+	private List<CompletionProposal> complete(EnumValueProvider valueProvider, String prefix) {
+		return valueProvider.complete(methodParameter, contextFor(prefix), null);
+	}
+
+	private CompletionContext contextFor(String prefix) {
+		return new CompletionContext(Arrays.asList("--delay", prefix), 1, prefix.length());
+	}
+}
@@ -16,7 +16,12 @@
 
 package org.springframework.shell.standard;
 
+import java.io.File;
+import java.net.URI;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -66,6 +71,33 @@ public class Remote {
 
 	}
 
+	@ShellMethod(help = "resize some buffers")
+	public void resize(int count, long size, double ratio, @ShellOption(arity = 1) boolean shrink) {
+
+	}
+
+	@ShellMethod(help = "sum 3 numbers together (primitive arrays)")
+	public void sum(@ShellOption(arity = 3) long[] longs,
+	                @ShellOption(arity = 2, defaultValue = "0.5,1.5") double[] doubles) {
+
+	}
+
+	@ShellMethod(help = "tag resources")
+	public void tag(@ShellOption(arity = ShellOption.ARITY_UNBOUNDED, valueProvider = NumberValueProvider.class) List<String> ids,
+	                String label) {
+
+	}
+
+	@ShellMethod(help = "close ports")
+	public void close(@ShellOption(arity = ShellOption.ARITY_UNBOUNDED) Set<Integer> ports) {
+
+	}
+
+	@ShellMethod(help = "upload a file")
+	public void upload(@ShellOption(pure = true) URI target, File file) {
+
+	}
+
 	public enum Delay {
 		small, medium, big;
 	}
@@ -88,4 +120,147 @@ public class Remote {
 					.collect(Collectors.toList());
 		}
 	}
+
+	/**
+	 * Decides dynamically that it applies to {@link Delay} parameters.
+	 */
+	public static class DelayValueProvider implements ValueProvider {
+
+		private final String[] values;
+
+		public DelayValueProvider(String... values) {
+			this.values = values;
+		}
+
+		@Override
+		public boolean supports(MethodParameter parameter, CompletionContext completionContext) {
+			return parameter.getParameterType() == Delay.class;
+		}
+
+		@Override
+		public List<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String[] hints) {
+			return Stream.of(values).map(CompletionProposal::new).collect(Collectors.toList());
+		}
+	}
+
+	public static class CachedNumberValueProvider extends NumberValueProvider implements CacheableValueProvider {
+
+		private int invocations;
+
+		public CachedNumberValueProvider(String... values) {
+			super(values);
+		}
+
+		@Override
+		public List<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String[] hints) {
+			invocations++;
+			return super.complete(parameter, completionContext, hints);
+		}
+
+		public int getInvocations() {
+			return invocations;
+		}
+	}
+
+	public static class DelayedNumberValueProvider extends NumberValueProvider {
+
+		private final long delay;
+
+		private final AtomicInteger invocations = new AtomicInteger();
+
+		public DelayedNumberValueProvider(long delay, String... values) {
+			super(values);
+			this.delay = delay;
+		}
+
+		@Override
+		public List<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String[] hints) {
+			invocations.incrementAndGet();
+			try {
+				Thread.sleep(delay);
+			}
+			catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return super.complete(parameter, completionContext, hints);
+		}
+
+		public int getInvocations() {
+			return invocations.get();
+		}
+	}
+
+	/**
+	 * Streams its first value right away, and the other ones once released.
+	 */
+	public static class StreamingNumberValueProvider extends NumberValueProvider {
+
+		private final String[] values;
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		public StreamingNumberValueProvider(String... values) {
+			super(values);
+			this.values = values;
+		}
+
+		@Override
+		public Stream<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String prefix, int limit) {
+			return Stream.of(values)
+					.filter(n -> n.startsWith(prefix))
+					.map(n -> {
+						if (!n.equals(values[0])) {
+							try {
+								latch.await();
+							}
+							catch (InterruptedException e) {
+								throw new IllegalStateException(e);
+							}
+						}
+						return new CompletionProposal(n);
+					});
+		}
+
+		public void release() {
+			latch.countDown();
+		}
+	}
+
+	public static class SlowNumberValueProvider extends NumberValueProvider {
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		private volatile boolean interrupted;
+
+		private final AtomicInteger invocations = new AtomicInteger();
+
+		public SlowNumberValueProvider(String... values) {
+			super(values);
+		}
+
+		@Override
+		public List<CompletionProposal> complete(MethodParameter parameter, CompletionContext completionContext, String[] hints) {
+			invocations.incrementAndGet();
+			try {
+				latch.await();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+				throw new IllegalStateException(e);
+			}
+			return super.complete(parameter, completionContext, hints);
+		}
+
+		public void release() {
+			latch.countDown();
+		}
+
+		public boolean wasInterrupted() {
+			return interrupted;
+		}
+
+		public int getInvocations() {
+			return invocations.get();
+		}
+	}
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.shell.standard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.shell.ConfigurableCommandRegistry;
+
+/**
+ * Tests for {@link StandardMethodTargetRegistrar}.
+ *
+ * @author Eric Bottard
+ */
+public class StandardMethodTargetRegistrarTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private ConfigurableCommandRegistry register(Class<?> commands) {
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+				StandardMethodTargetRegistrar.class, commands)) {
+			ConfigurableCommandRegistry registry = new ConfigurableCommandRegistry();
+			context.getBean(StandardMethodTargetRegistrar.class).register(registry);
+			return registry;
+		}
+	}
+
+	@Test
+	public void testUnboundedArityOnCollection() {
+		assertThat(register(CollectionCommands.class).listCommands()).containsOnlyKeys("tag");
+	}
+
+	@Test
+	public void testUnboundedArityOnScalarIsRejected() {
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("has an unbounded arity, but is neither an array nor a collection");
+		register(ScalarCommands.class);
+	}
+
+	@ShellComponent
+	public static class CollectionCommands {
+
+		@ShellMethod(help = "tag things")
+		public void tag(@ShellOption(arity = ShellOption.ARITY_UNBOUNDED) List<String> ids) {
+		}
+	}
+
+	@ShellComponent
+	public static class ScalarCommands {
+
+		@ShellMethod(help = "say something")
+		public void say(@ShellOption(arity = ShellOption.ARITY_UNBOUNDED) String message) {
+		}
+	}
+}
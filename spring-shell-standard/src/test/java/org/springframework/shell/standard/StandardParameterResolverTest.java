@@ -17,13 +17,21 @@
 package org.springframework.shell.standard;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.shell.ValueResultAsserts.assertThat;
 import static org.springframework.util.ReflectionUtils.findMethod;
 
+import java.io.File;
 import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.jline.reader.ParsedLine;
@@ -31,11 +39,14 @@ import org.jline.reader.impl.DefaultParser;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.shell.CompletionContext;
 import org.springframework.shell.CompletionProposal;
 import org.springframework.shell.ParameterMissingResolutionException;
 import org.springframework.shell.UnfinishedParameterResolutionException;
+import org.springframework.shell.UsageStatistics;
 import org.springframework.shell.Utils;
 import org.springframework.shell.ValueResult;
 
@@ -162,6 +173,64 @@ public class StandardParameterResolverTest {
 		);
 	}
 
+	@Test
+	public void testPrimitiveFastPaths() throws Exception {
+		Method method = findMethod(Remote.class, "resize", int.class, long.class, double.class, boolean.class);
+
+		List<String> words = asList("--count 0x10 --size 12345678901 --ratio 2.5 --shrink false".split(" "));
+		assertThat(resolver.resolve(Utils.createMethodParameter(method, 0), words)).hasValue(16);
+		assertThat(resolver.resolve(Utils.createMethodParameter(method, 1), words)).hasValue(12345678901L);
+		assertThat(resolver.resolve(Utils.createMethodParameter(method, 2), words)).hasValue(2.5d);
+		assertThat(resolver.resolve(Utils.createMethodParameter(method, 3), words)).hasValue(false).usesWordsForValue(7);
+	}
+
+	@Test
+	public void testPrimitiveArraysBoundFromWords() throws Exception {
+		Method method = findMethod(Remote.class, "sum", long[].class, double[].class);
+
+		List<String> words = asList("--longs 1 -2 0x3".split(" "));
+		ValueResult result = resolver.resolve(Utils.createMethodParameter(method, 0), words);
+		assertThat((long[]) result.resolvedValue()).containsExactly(1L, -2L, 3L);
+		assertThat(result).usesWordsForValue(1, 2, 3);
+
+		// Default value is still a comma separated value
+		result = resolver.resolve(Utils.createMethodParameter(method, 1), words);
+		assertThat((double[]) result.resolvedValue()).containsExactly(0.5d, 1.5d);
+	}
+
+	@Test
+	public void testEmptyWordInPrimitiveArray() throws Exception {
+		Method method = findMethod(Remote.class, "sum", long[].class, double[].class);
+
+		thrown.expect(ConversionFailedException.class);
+		resolver.resolve(Utils.createMethodParameter(method, 0), asList("--longs", "1", "", "3"));
+	}
+
+	@Test
+	public void testUnboundedArityByName() throws Exception {
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		List<String> words = asList("--ids a,b c d --label x".split(" "));
+		ValueResult result = resolver.resolve(Utils.createMethodParameter(method, 0), words);
+		assertThat(result).hasValue(asList("a,b", "c", "d")).usesWords(0, 1, 2, 3).usesWordsForValue(1, 2, 3);
+		assertThat(resolver.resolve(Utils.createMethodParameter(method, 1), words)).hasValue("x");
+
+		words = asList("--label x --ids".split(" "));
+		assertThat(resolver.resolve(Utils.createMethodParameter(method, 0), words)).hasValue(emptyList());
+	}
+
+	@Test
+	public void testUnboundedArityByPosition() throws Exception {
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		List<String> words = asList("--label x a b c".split(" "));
+		assertThat(resolver.resolve(Utils.createMethodParameter(method, 0), words)).hasValue(asList("a", "b", "c"));
+
+		method = findMethod(Remote.class, "close", Set.class);
+		ValueResult result = resolver.resolve(Utils.createMethodParameter(method, 0), asList("8080 8443 8080".split(" ")));
+		assertThat((Set<Integer>) result.resolvedValue()).containsExactly(8080, 8443);
+	}
+
 	// Tests for completion
 
 	@Test
@@ -243,6 +312,266 @@ public class StandardParameterResolverTest {
 		}
 	}
 
+	@Test
+	public void testKeyUnderCursorIsCompleted() {
+		Method method = findMethod(Remote.class, "zap", boolean.class, String.class, String.class, String.class);
+		assertThat(completionsFor(method, 1, "--force --name")).containsExactly("--name");
+		assertThat(completionsFor(method, 2, "--force --name")).isEmpty();
+	}
+
+	@Test
+	public void testFullyBoundParameterIsDone() {
+		resolver.setValueProviders(singletonList(new EnumValueProvider()));
+		Method method = findMethod(Remote.class, "shutdown", Remote.Delay.class);
+		assertThat(completionsFor(method, 0, "--delay sm")).containsExactly("small");
+		assertThat(completionsFor(method, 0, "--delay small ")).isEmpty();
+	}
+
+	@Test
+	public void testValueCompletionWithUnboundedArity() {
+		resolver.setValueProviders(singletonList(new Remote.NumberValueProvider("12", "42")));
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		assertThat(completionsFor(method, 0, "--ids ")).contains("12", "42");
+		assertThat(completionsFor(method, 0, "--ids 42 ")).contains("12", "42");
+		assertThat(completionsFor(method, 0, "--ids 42 --label x ")).isEmpty();
+		assertThat(completionsFor(method, 1, "--ids 42 ")).containsExactly("--label");
+	}
+
+	@Test
+	public void testCommandLevelCompletion() {
+		resolver.setValueProviders(singletonList(new Remote.NumberValueProvider("12", "42")));
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+		List<MethodParameter> parameters = Utils.createMethodParameters(method).collect(Collectors.toList());
+
+		assertThat(resolver.completeAll(parameters, contextFor("")))
+				.extracting("value", String.class).containsExactly("--ids", "--label");
+		assertThat(resolver.completeAll(parameters, contextFor("--label ")))
+				.extracting("value", String.class).isEmpty();
+		assertThat(resolver.completeAll(parameters, contextFor("--ids 4")))
+				.extracting("value", String.class).containsExactly("42");
+		assertThat(resolver.completeAll(parameters, contextFor("--ids 42 ")))
+				.extracting("value", String.class).containsExactly("12", "42", "--label");
+	}
+
+	@Test
+	public void testCachedValueCompletion() {
+		Remote.CachedNumberValueProvider provider = new Remote.CachedNumberValueProvider("12", "42", "420");
+		ValueCompletionCache cache = new ValueCompletionCache();
+		resolver.setValueProviders(singletonList(provider));
+		resolver.setValueCompletionCache(cache);
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		assertThat(completionsFor(method, 0, "--ids 4")).containsExactly("42", "420");
+		assertThat(completionsFor(method, 0, "--ids 4")).containsExactly("42", "420");
+		// Narrower prefix is served by filtering the cached result
+		assertThat(completionsFor(method, 0, "--ids 42")).containsExactly("42", "420");
+		assertThat(completionsFor(method, 0, "--ids 420")).containsExactly("420");
+		assertThat(provider.getInvocations()).isEqualTo(1);
+
+		// Broader prefix is not
+		assertThat(completionsFor(method, 0, "--ids ")).containsExactly("12", "42", "420");
+		assertThat(provider.getInvocations()).isEqualTo(2);
+
+		cache.invalidate(provider);
+		assertThat(completionsFor(method, 0, "--ids 4")).containsExactly("42", "420");
+		assertThat(provider.getInvocations()).isEqualTo(3);
+	}
+
+	@Test
+	public void testTimeBudgetedValueCompletion() throws Exception {
+		Remote.SlowNumberValueProvider provider = new Remote.SlowNumberValueProvider("12", "42");
+		ValueCompletionExecutor executor = new ValueCompletionExecutor(50);
+		resolver.setValueProviders(singletonList(provider));
+		resolver.setValueCompletionExecutor(executor);
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		try {
+			List<CompletionProposal> pending = resolver.complete(Utils.createMethodParameter(method, 0), contextFor("--ids 4"));
+			assertThat(pending).extracting("value", String.class).containsExactly("4");
+			assertThat(pending.get(0).complete()).isFalse();
+
+			provider.release();
+			assertThat(completionsFor(method, 0, "--ids 4")).containsExactly("42");
+			assertThat(completionsFor(method, 0, "--ids 4")).containsExactly("42");
+			assertThat(provider.getInvocations()).isEqualTo(1);
+
+			// The result is forgotten once the input changes
+			assertThat(completionsFor(method, 0, "--ids 1")).containsExactly("12");
+			assertThat(completionsFor(method, 0, "--ids 4")).containsExactly("42");
+			assertThat(provider.getInvocations()).isEqualTo(3);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSlowValueCompletionIsPickedUpOnceOver() throws Exception {
+		Remote.DelayedNumberValueProvider provider = new Remote.DelayedNumberValueProvider(100, "12", "42");
+		ValueCompletionExecutor executor = new ValueCompletionExecutor(50);
+		resolver.setValueProviders(singletonList(provider));
+		resolver.setValueCompletionExecutor(executor);
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		try {
+			assertThat(completionsFor(method, 0, "--ids 4")).containsExactly("4");
+			Thread.sleep(300);
+			assertThat(completionsFor(method, 0, "--ids 4")).containsExactly("42");
+			assertThat(provider.getInvocations()).isEqualTo(1);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPartialValueCompletion() throws Exception {
+		Remote.StreamingNumberValueProvider provider = new Remote.StreamingNumberValueProvider("12", "42");
+		ValueCompletionExecutor executor = new ValueCompletionExecutor(50);
+		resolver.setValueProviders(singletonList(provider));
+		resolver.setValueCompletionExecutor(executor);
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		try {
+			List<CompletionProposal> partial = resolver.complete(Utils.createMethodParameter(method, 0), contextFor("--ids "));
+			assertThat(partial).extracting("value", String.class).containsExactly("12", "");
+			assertThat(partial.get(1).complete()).isFalse();
+
+			provider.release();
+			assertThat(completionsFor(method, 0, "--ids ")).containsExactly("12", "42");
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testStaleValueCompletionIsCancelled() throws Exception {
+		Remote.SlowNumberValueProvider provider = new Remote.SlowNumberValueProvider("12", "42");
+		ValueCompletionExecutor executor = new ValueCompletionExecutor(50);
+		resolver.setValueProviders(singletonList(provider));
+		resolver.setValueCompletionExecutor(executor);
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		try {
+			assertThat(completionsFor(method, 0, "--ids 4")).containsExactly("4");
+			assertThat(completionsFor(method, 0, "--ids 1")).containsExactly("1");
+			assertThat(provider.wasInterrupted()).isTrue();
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(timeout = 10_000L)
+	public void testConcurrentIdenticalRequestsAreCoalesced() throws Exception {
+		Remote.SlowNumberValueProvider provider = new Remote.SlowNumberValueProvider("12", "42");
+		ValueCompletionExecutor executor = new ValueCompletionExecutor(0);
+		resolver.setValueProviders(singletonList(provider));
+		resolver.setValueCompletionExecutor(executor);
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		ExecutorService sessions = Executors.newFixedThreadPool(2);
+		try {
+			Future<List<String>> first = sessions.submit(() -> completionsFor(method, 0, "--ids 4"));
+			Future<List<String>> second = sessions.submit(() -> completionsFor(method, 0, "--ids 4"));
+			while (executor.getSavedCalls().isEmpty()) {
+				Thread.sleep(5);
+			}
+			provider.release();
+
+			assertThat(first.get()).containsExactly("42");
+			assertThat(second.get()).containsExactly("42");
+			assertThat(provider.getInvocations()).isEqualTo(1);
+			assertThat(executor.getSavedCalls()).containsEntry(Remote.SlowNumberValueProvider.class.getName(), 1L);
+		}
+		finally {
+			sessions.shutdownNow();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testValueProviderDispatch() {
+		Remote.CachedNumberValueProvider numbers = new Remote.CachedNumberValueProvider("12", "42");
+		resolver.setValueProviders(asList(new EnumValueProvider(), numbers));
+
+		assertThat(completionsFor(findMethod(Remote.class, "shutdown", Remote.Delay.class), 0, "--delay ")).containsExactly("big", "medium", "small");
+		// Explicitly requested through a super class of the actual provider
+		assertThat(completionsFor(findMethod(Remote.class, "tag", List.class, String.class), 0, "--ids ")).containsExactly("12", "42");
+		assertThat(completionsFor(findMethod(Remote.class, "tag", List.class, String.class), 1, "--label ")).isEmpty();
+	}
+
+	@Test
+	public void testValueProviderDispatchKeepsRegistrationOrder() {
+		Method shutdown = findMethod(Remote.class, "shutdown", Remote.Delay.class);
+		ValueProvider dynamic = new Remote.DelayValueProvider("soon");
+
+		// A dynamic provider registered first wins over a typed one
+		resolver.setValueProviders(asList(dynamic, new EnumValueProvider()));
+		assertThat(completionsFor(shutdown, 0, "--delay ")).containsExactly("soon");
+
+		resolver.setValueProviders(asList(new EnumValueProvider(), dynamic));
+		assertThat(completionsFor(shutdown, 0, "--delay ")).containsExactly("big", "medium", "small");
+	}
+
+	@Test
+	public void testOnlyValuesPickedFromProposalsAreRecordable() {
+		resolver.setValueProviders(singletonList(new Remote.NumberValueProvider("12", "42")));
+		Method tag = findMethod(Remote.class, "tag", List.class, String.class);
+
+		assertThat(resolver.isRecordable(Utils.createMethodParameter(tag, 0))).isTrue();
+		assertThat(resolver.isRecordable(Utils.createMethodParameter(tag, 1))).isFalse();
+		assertThat(resolver.isRecordable(Utils.createMethodParameter(findMethod(Remote.class, "shutdown", Remote.Delay.class), 0))).isTrue();
+	}
+
+	@Test
+	public void testFuzzyKeyCompletion() {
+		Method method = findMethod(Remote.class, "zap", boolean.class, String.class, String.class, String.class);
+		List<MethodParameter> parameters = Utils.createMethodParameters(method).collect(Collectors.toList());
+
+		assertThat(resolver.completeAll(parameters, contextFor("--nme")))
+				.extracting("value", String.class).containsExactly("--name");
+		assertThat(resolver.completeAll(parameters, contextFor("--bz")))
+				.extracting("value", String.class).containsExactly("--baz");
+	}
+
+	@Test
+	public void testPurity() {
+		Method zap = findMethod(Remote.class, "zap", boolean.class, String.class, String.class, String.class);
+		assertThat(resolver.isPure(Utils.createMethodParameter(zap, 0))).isTrue();
+		assertThat(resolver.isPure(Utils.createMethodParameter(zap, 1))).isTrue();
+		Method close = findMethod(Remote.class, "close", Set.class);
+		assertThat(resolver.isPure(Utils.createMethodParameter(close, 0))).isTrue();
+		Method shutdown = findMethod(Remote.class, "shutdown", Remote.Delay.class);
+		assertThat(resolver.isPure(Utils.createMethodParameter(shutdown, 0))).isTrue();
+		Method upload = findMethod(Remote.class, "upload", URI.class, File.class);
+		assertThat(resolver.isPure(Utils.createMethodParameter(upload, 0))).isTrue();
+		assertThat(resolver.isPure(Utils.createMethodParameter(upload, 1))).isFalse();
+	}
+
+	@Test
+	public void testValueCompletionRankedByUsage() {
+		Remote.CachedNumberValueProvider provider = new Remote.CachedNumberValueProvider("12", "42", "420");
+		resolver.setValueProviders(singletonList(provider));
+		UsageStatistics usageStatistics = new UsageStatistics((Path) null, UsageStatistics.DEFAULT_HALF_LIFE, 100);
+		resolver.setUsageStatistics(usageStatistics);
+		Method method = findMethod(Remote.class, "tag", List.class, String.class);
+
+		assertThat(completionsFor(method, 0, "--ids ")).containsExactly("12", "42", "420");
+		String category = UsageStatistics.categoryFor(Utils.createMethodParameter(method, 0));
+		usageStatistics.record(category, "420");
+		usageStatistics.record(category, "420");
+		usageStatistics.record(category, "42");
+		assertThat(completionsFor(method, 0, "--ids ")).containsExactly("420", "42", "12");
+	}
+
+	private List<String> completionsFor(Method method, int index, String input) {
+		return resolver.complete(Utils.createMethodParameter(method, index), contextFor(input)).stream()
+				.map(CompletionProposal::value).collect(Collectors.toList());
+	}
+
 	private CompletionContext contextFor(String input) {
 		DefaultParser defaultParser = new DefaultParser();
 		ParsedLine parsed = defaultParser.parse(input, input.length());